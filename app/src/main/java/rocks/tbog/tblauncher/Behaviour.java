@@ -53,7 +53,10 @@ import rocks.tbog.tblauncher.quicklist.EditQuickListDialog;
 import rocks.tbog.tblauncher.result.ResultAdapter;
 import rocks.tbog.tblauncher.searcher.ISearchActivity;
 import rocks.tbog.tblauncher.searcher.QuerySearcher;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
+import rocks.tbog.tblauncher.searcher.SearchSession;
 import rocks.tbog.tblauncher.searcher.Searcher;
+import rocks.tbog.tblauncher.searcher.SpeculativeSearch;
 import rocks.tbog.tblauncher.shortcut.ShortcutUtil;
 import rocks.tbog.tblauncher.ui.AnimatedListView;
 import rocks.tbog.tblauncher.ui.DialogFragment;
@@ -86,6 +89,8 @@ public class Behaviour implements ISearchActivity, KeyboardScrollHider.KeyboardH
     private View mResultLayout;
     private AnimatedListView mResultList;
     private ResultAdapter mResultAdapter;
+    private final SearchSession mSearchSession = new SearchSession();
+    private final SpeculativeSearch mSpeculativeSearch = new SpeculativeSearch(this, mSearchSession);
     private EditText mSearchEditText;
     private View mSearchBarContainer;
     private View mWidgetContainer;
@@ -579,7 +584,7 @@ public class Behaviour implements ISearchActivity, KeyboardScrollHider.KeyboardH
     }
 
     @Override
-    public void updateAdapter(List<? extends EntryItem> results, boolean isRefresh) {
+    public void updateAdapter(List<ScoredHit> results, boolean isRefresh) {
         if (isRefresh) {
             // We're refreshing an existing dataset, do not reset scroll!
             temporarilyDisableTranscriptMode();
@@ -689,10 +694,25 @@ public class Behaviour implements ISearchActivity, KeyboardScrollHider.KeyboardH
 //            return;
 //        }
 
-        updateSearchRecords(isRefresh, new QuerySearcher(this, query));
+        List<ScoredHit> results = isRefresh ? null : mSpeculativeSearch.take(query);
+        if (results != null) {
+            // the user typed what we predicted, no need to ask the providers
+            resetTask();
+            mTBLauncherActivity.dismissPopup();
+            if (results.isEmpty())
+                clearAdapter();
+            else
+                updateAdapter(results, false);
+            // same as a search that completed, the previous one may have shown the loader
+            displayLoader(!TBApplication.dataHandler(getContext()).fullLoadOverSent());
+            return;
+        }
+
+        updateSearchRecords(isRefresh, new QuerySearcher(this, query, mSearchSession, mSpeculativeSearch));
     }
 
     private void updateSearchRecords(boolean isRefresh, @NonNull Searcher searcher) {
+        mSpeculativeSearch.cancel();
         resetTask();
         mTBLauncherActivity.dismissPopup();
 
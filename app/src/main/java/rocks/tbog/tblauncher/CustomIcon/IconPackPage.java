@@ -7,6 +7,7 @@ import android.graphics.drawable.Drawable;
 import android.text.Editable;
 import android.text.TextWatcher;
 import android.view.View;
+import android.widget.AbsListView;
 import android.widget.BaseAdapter;
 import android.widget.GridView;
 import android.widget.ProgressBar;
@@ -18,7 +19,6 @@ import androidx.annotation.Nullable;
 import org.jetbrains.annotations.NotNull;
 
 import java.util.ArrayList;
-import java.util.Collection;
 
 import rocks.tbog.tblauncher.R;
 import rocks.tbog.tblauncher.TBApplication;
@@ -29,12 +29,17 @@ import rocks.tbog.tblauncher.utils.UISizes;
 import rocks.tbog.tblauncher.utils.Utilities;
 
 class IconPackPage extends PageAdapter.Page {
+    // how many icons to read from the pack at a time
+    private static final int PAGE_SIZE = 120;
     final ArrayList<IconData> iconDataList = new ArrayList<>();
     final String packageName;
     private ProgressBar mIconLoadingBar;
     private GridView mGridView;
     private TextView mSearch;
     private IconPackXML mIconPack = null;
+    private IconPackXML.DrawablePager mPager = null;
+    private boolean bLoadingPage = false;
+    private boolean bReleased = false;
 
     private void displayToast(View v, CharSequence message) {
         if (v == null)
@@ -75,6 +80,18 @@ class IconPackPage extends PageAdapter.Page {
             iconAdapter.setOnItemClickListener(iconClickListener::onItemClick);
         if (iconLongClickListener != null)
             iconAdapter.setOnItemLongClickListener(iconLongClickListener::onItemClick);
+        mGridView.setOnScrollListener(new AbsListView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(AbsListView view, int scrollState) {
+            }
+
+            @Override
+            public void onScroll(AbsListView view, int firstVisibleItem, int visibleItemCount, int totalItemCount) {
+                // load the next page before the user reaches the end
+                if (firstVisibleItem + visibleItemCount + PAGE_SIZE / 2 >= totalItemCount)
+                    loadNextPage();
+            }
+        });
 //        iconAdapter.setOnItemLongClickListener(((adapter, v, position) -> {
 //            String drawableName = adapter.getItem(position).drawableInfo.getDrawableName();
 //            displayToast(v, drawableName);
@@ -109,14 +126,14 @@ class IconPackPage extends PageAdapter.Page {
         super.loadData();
 
         // load the new pack
-        final IconPackXML pack = TBApplication.iconPackCache(pageView.getContext()).getIconPack(packageName);
+        final IconPackXML pack = TBApplication.iconPackCache(pageView.getContext()).getIconPack(pageView.getContext(), packageName);
         Utilities.runAsync((t) -> {
             Activity activity = Utilities.getActivity(pageView);
             if (activity != null)
-                pack.loadDrawables(activity.getPackageManager());
+                pack.load(activity.getPackageManager());
         }, (t) -> {
             Activity activity = Utilities.getActivity(pageView);
-            if (activity != null) {
+            if (activity != null && !bReleased) {
                 mIconPack = pack;
                 refreshList();
             } else
@@ -124,17 +141,56 @@ class IconPackPage extends PageAdapter.Page {
         });
     }
 
+    @Override
+    void releaseData() {
+        super.releaseData();
+        bReleased = true;
+        if (mPager != null)
+            mPager.close();
+        mPager = null;
+        mIconPack = null;
+    }
+
     private void refreshList() {
+        if (mPager != null)
+            mPager.close();
+        mPager = null;
+        bLoadingPage = false;
         iconDataList.clear();
+        ((BaseAdapter) mGridView.getAdapter()).notifyDataSetChanged();
         if (mIconPack != null) {
-            Collection<IconPackXML.DrawableInfo> drawables = mIconPack.getDrawableList();
             StringNormalizer.Result normalized = StringNormalizer.normalizeWithResult(mSearch.getText(), true);
             FuzzyScore fuzzyScore = new FuzzyScore(normalized.codePoints);
-            for (IconPackXML.DrawableInfo info : drawables) {
-                if (fuzzyScore.match(info.getDrawableName()).match)
-                    iconDataList.add(new IconData(mIconPack, info));
-            }
+            mPager = mIconPack.newDrawablePager(drawableName -> fuzzyScore.match(drawableName).match);
         }
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        final IconPackXML.DrawablePager pager = mPager;
+        if (pager == null) {
+            showList();
+            return;
+        }
+        if (bLoadingPage || pager.isFinished())
+            return;
+        bLoadingPage = true;
+        final IconPackXML iconPack = mIconPack;
+        final ArrayList<IconData> page = new ArrayList<>(PAGE_SIZE);
+        Utilities.runAsync((t) -> {
+            for (IconPackXML.DrawableInfo info : pager.nextPage(PAGE_SIZE))
+                page.add(new IconData(iconPack, info));
+        }, (t) -> {
+            // the search changed while we were loading
+            if (pager != mPager)
+                return;
+            bLoadingPage = false;
+            iconDataList.addAll(page);
+            showList();
+        });
+    }
+
+    private void showList() {
         mIconLoadingBar.setVisibility(View.GONE);
         boolean showGridAndSearch = !iconDataList.isEmpty() || (mSearch.length() > 0);
         mSearch.setVisibility(showGridAndSearch ? View.VISIBLE : View.GONE);
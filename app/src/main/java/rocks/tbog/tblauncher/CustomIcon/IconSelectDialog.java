@@ -314,6 +314,14 @@ public class IconSelectDialog extends DialogFragment<Drawable> {
         Utilities.setIconAsync(mPreview, shortcutEntry::getIcon);
     }
 
+    @Override
+    public void onDestroyView() {
+        PageAdapter adapter = (PageAdapter) mViewPager.getAdapter();
+        if (adapter != null)
+            adapter.releasePageData();
+        super.onDestroyView();
+    }
+
     @Override
     public void onActivityCreated(@Nullable Bundle savedInstanceState) {
         super.onActivityCreated(savedInstanceState);
@@ -34,6 +34,11 @@ class PageAdapter extends androidx.viewpager.widget.PagerAdapter implements View
             page.loadData();
     }
 
+    public void releasePageData() {
+        for (Page page : getPageIterable())
+            page.releaseData();
+    }
+
     @Override
     public void onPageScrolled(int position, float positionOffset, int positionOffsetPixels) {
         //Log.d("ISDialog", String.format("onPageScrolled %d %.2f", position, positionOffset));
@@ -82,6 +87,12 @@ class PageAdapter extends androidx.viewpager.widget.PagerAdapter implements View
         void loadData() {
             bDataLoaded = true;
         }
+
+        /**
+         * Called when the dialog goes away, close what the page keeps open
+         */
+        void releaseData() {
+        }
     }
 
     @Override
@@ -157,7 +157,7 @@ public class SystemPage extends CustomShapePage {
                 String packName = packInfo.second;
                 Activity activity = Utilities.getActivity(pageView);
                 if (activity != null) {
-                    IconPackXML pack = TBApplication.iconPackCache(activity).getIconPack(packPackageName);
+                    IconPackXML pack = TBApplication.iconPackCache(activity).getIconPack(activity, packPackageName);
                     pack.load(activity.getPackageManager());
                     Drawable drawable = pack.getComponentDrawable(activity, componentName, userHandle);
                     if (drawable!=null) {
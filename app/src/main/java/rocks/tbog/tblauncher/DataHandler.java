@@ -10,7 +10,6 @@ import android.content.ServiceConnection;
 import android.content.SharedPreferences;
 import android.content.pm.ShortcutInfo;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.os.Build;
 import android.os.Handler;
 import android.os.IBinder;
@@ -33,10 +32,17 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import rocks.tbog.tblauncher.dataprovider.ActionProvider;
 import rocks.tbog.tblauncher.dataprovider.AppCacheProvider;
@@ -54,14 +60,17 @@ import rocks.tbog.tblauncher.dataprovider.TagsProvider;
 import rocks.tbog.tblauncher.db.AppRecord;
 import rocks.tbog.tblauncher.db.DBHelper;
 import rocks.tbog.tblauncher.db.FavRecord;
+import rocks.tbog.tblauncher.db.HistoryModel;
 import rocks.tbog.tblauncher.db.ShortcutRecord;
 import rocks.tbog.tblauncher.db.ValuedHistoryRecord;
 import rocks.tbog.tblauncher.entry.AppEntry;
 import rocks.tbog.tblauncher.entry.EntryItem;
 import rocks.tbog.tblauncher.entry.ShortcutEntry;
 import rocks.tbog.tblauncher.entry.StaticEntry;
+import rocks.tbog.tblauncher.searcher.SearchSession;
 import rocks.tbog.tblauncher.searcher.Searcher;
 import rocks.tbog.tblauncher.shortcut.ShortcutUtil;
+import rocks.tbog.tblauncher.utils.PrefCache;
 import rocks.tbog.tblauncher.utils.UserHandleCompat;
 
 public class DataHandler extends BroadcastReceiver
@@ -69,6 +78,10 @@ public class DataHandler extends BroadcastReceiver
     final static private String TAG = "DataHandler";
 
     public static final Executor EXECUTOR_PROVIDERS;
+    /**
+     * Used to run the query on all providers at the same time
+     */
+    private static final ExecutorService EXECUTOR_SEARCH;
 
     static {
         ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
@@ -77,6 +90,14 @@ public class DataHandler extends BroadcastReceiver
         threadPoolExecutor.allowCoreThreadTimeOut(true);
 
         EXECUTOR_PROVIDERS = threadPoolExecutor;
+
+        int searchThreads = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        threadPoolExecutor = new ThreadPoolExecutor(
+                searchThreads, searchThreads, 5, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>());
+        threadPoolExecutor.allowCoreThreadTimeOut(true);
+
+        EXECUTOR_SEARCH = threadPoolExecutor;
     }
 
     /**
@@ -95,8 +116,21 @@ public class DataHandler extends BroadcastReceiver
     final private Context context;
     private String currentQuery;
     private final Map<String, ProviderEntry> providers = new LinkedHashMap<>(); // preserve insert order
+    /**
+     * Id scheme to the provider that knows the ids with this scheme, filled by {@link #getPojo(String)}
+     */
+    private final ConcurrentHashMap<String, ProviderEntry> providerByScheme = new ConcurrentHashMap<>();
     private boolean mFullLoadOverSent = false;
     private long start;
+    /**
+     * Incremented every time the searchable data of an entry may have changed
+     */
+    private final AtomicInteger mDataVersion = new AtomicInteger(0);
+    private final HistoryModel mHistoryModel;
+    /**
+     * Apps from the database, searched until the apps provider is loaded
+     */
+    private volatile AppCacheProvider mAppCache = null;
 
     /**
      * Initialize all providers
@@ -106,6 +140,8 @@ public class DataHandler extends BroadcastReceiver
         // (otherwise we might receive an exception about broadcast listeners not being able
         //  to bind to services)
         this.context = context.getApplicationContext();
+        mHistoryModel = new HistoryModel(this.context);
+        mHistoryModel.loadAsync();
 
         start = System.currentTimeMillis();
 
@@ -172,6 +208,9 @@ public class DataHandler extends BroadcastReceiver
 
         // add providers that may be toggled by preferences
         toggleableProviders(prefs);
+
+        // the icon files a crash or a failed upgrade left behind
+        EXECUTOR_PROVIDERS.execute(() -> DBHelper.removeUnusedIconFiles(this.context));
     }
 
     private void toggleableProviders(SharedPreferences prefs) {
@@ -198,6 +237,8 @@ public class DataHandler extends BroadcastReceiver
                 providers.remove(providerName);
             }
         }
+
+        providerByScheme.clear();
     }
 
     @Override
@@ -314,6 +355,7 @@ public class DataHandler extends BroadcastReceiver
         final ProviderEntry entry = new ProviderEntry();
         // Add empty provider object to list of providers
         this.providers.put(name, entry);
+        providerByScheme.clear();
 
         // Connect and bind to provider service
         this.context.bindService(intent, new ServiceConnection() {
@@ -361,6 +403,7 @@ public class DataHandler extends BroadcastReceiver
 
         // Remove provider from list
         this.providers.remove(name);
+        providerByScheme.clear();
     }
 
     private boolean allProvidersHaveLoaded() {
@@ -426,9 +469,30 @@ public class DataHandler extends BroadcastReceiver
     @Override
     public void onReceive(Context context, Intent intent) {
         // A provider finished loading and contacted us
+        releaseAppCache();
         this.handleProviderLoaded();
     }
 
+    @NonNull
+    private AppCacheProvider getAppCache() {
+        AppCacheProvider appCache = mAppCache;
+        if (appCache == null) {
+            // a race only means the entries of the first search are built twice
+            appCache = new AppCacheProvider(context);
+            mAppCache = appCache;
+        }
+        return appCache;
+    }
+
+    /**
+     * The apps provider has the entries now, free the cached ones
+     */
+    private void releaseAppCache() {
+        ProviderEntry entry = providers.get("app");
+        if (mAppCache != null && entry != null && entry.provider != null && entry.provider.isLoaded())
+            mAppCache = null;
+    }
+
     /**
      * Get records for this query.
      *
@@ -437,20 +501,151 @@ public class DataHandler extends BroadcastReceiver
      */
     @WorkerThread
     public void requestResults(String query, Searcher searcher) {
-        currentQuery = query;
+        requestResults(query, searcher, null);
+    }
+
+    /**
+     * Get records for this query.
+     * If the query extends the last one from the session, only the entries that matched before
+     * are checked.
+     *
+     * @param query    query to run
+     * @param searcher the searcher currently running
+     * @param session  the search session that remembers the previous query results
+     */
+    @WorkerThread
+    public void requestResults(String query, Searcher searcher, @Nullable SearchSession session) {
+        if (!searcher.isSpeculative())
+            setCurrentQuery(query);
+        String previousQuery = null;
+        List<EntryItem> candidates = null;
+        if (session != null) {
+            previousQuery = session.getQuery();
+            candidates = session.getCandidates(query, searcher.tagsEnabled(), mDataVersion.get());
+        }
+        // the apps provider may have loaded after the last broadcast we received
+        releaseAppCache();
+        ArrayList<Runnable> tasks = new ArrayList<>(this.providers.size());
         for (Map.Entry<String, ProviderEntry> setEntry : this.providers.entrySet()) {
-            if (searcher.isCancelled())
-                break;
-            IProvider<?> provider = setEntry.getValue().provider;
-            if (provider == null || !provider.isLoaded()) {
+            final IProvider<?> provider = setEntry.getValue().provider;
+            final boolean useCache;
+            if (provider instanceof Provider && ((Provider<?>) provider).hasPartialResults()) {
+                // search the entries loaded so far
+                useCache = false;
+            } else if (provider == null || !provider.isLoaded()) {
                 // if the apps provider has not finished yet, return the cached ones
                 if ("app".equals(setEntry.getKey()))
-                    provider = new AppCacheProvider(context, getCachedApps());
+                    useCache = true;
                 else
                     continue;
+            } else {
+                useCache = false;
+            }
+            final String lastQuery = previousQuery;
+            final List<EntryItem> lastMatched = candidates;
+            tasks.add(() -> {
+                if (searcher.isCancelled())
+                    return;
+                if (useCache) {
+                    getAppCache().requestResults(query, searcher);
+                    return;
+                }
+                // Retrieve results for query:
+                if (lastMatched != null && provider instanceof Provider && ((Provider<?>) provider).mayRefine(lastQuery, query))
+                    ((Provider<?>) provider).refineResults(query, searcher, lastMatched);
+                else
+                    provider.requestResults(query, searcher);
+            });
+        }
+
+        // speculative searches run in the background, don't compete with the user query
+        if (tasks.size() > 1 && !searcher.isSpeculative() && PrefCache.searchProvidersInParallel(context))
+            runParallel(tasks, searcher, PrefCache.getSearchProviderTimeout(context));
+        else
+            for (Runnable task : tasks)
+                task.run();
+    }
+
+    /**
+     * Run each provider on a different thread. If the time budget is exceeded the results found
+     * so far are displayed and the slow providers will add theirs to the final update.
+     *
+     * @param tasks    one task for each provider
+     * @param searcher the searcher currently running
+     * @param budgetMs how long to wait before displaying partial results
+     */
+    @WorkerThread
+    private void runParallel(List<Runnable> tasks, Searcher searcher, int budgetMs) {
+        ArrayList<Future<?>> futures = new ArrayList<>(tasks.size());
+        for (Runnable task : tasks)
+            futures.add(EXECUTOR_SEARCH.submit(task));
+
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        boolean partialPublished = false;
+        for (int idx = 0; idx < futures.size(); idx += 1) {
+            Future<?> future = futures.get(idx);
+            try {
+                if (partialPublished) {
+                    future.get();
+                } else {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                }
+            } catch (TimeoutException e) {
+                Log.d(TAG, "provider " + idx + " over the " + budgetMs + "ms budget for `" + searcher.getQuery() + "`");
+                searcher.publishPartialResults();
+                partialPublished = true;
+                // wait for the same provider again
+                idx -= 1;
+            } catch (InterruptedException e) {
+                // the searcher got cancelled, stop the providers and don't make the next search wait
+                for (Future<?> f : futures)
+                    f.cancel(true);
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException | CancellationException e) {
+                Log.e(TAG, "provider " + idx + " failed for `" + searcher.getQuery() + "`", e);
+            }
+        }
+    }
+
+    /**
+     * The query is saved in the history with the launched entry
+     *
+     * @param query the (trimmed) query that produced the displayed results
+     */
+    public void setCurrentQuery(String query) {
+        currentQuery = query;
+    }
+
+    /**
+     * Used by the search session to know if the previous results are still valid
+     *
+     * @return a number that changes every time the searchable data changes
+     */
+    public int getDataVersion() {
+        return mDataVersion.get();
+    }
+
+    /**
+     * Call this after entries were added, removed, renamed, hidden or had their tags changed
+     */
+    public void onSearchDataChanged() {
+        mDataVersion.incrementAndGet();
+    }
+
+    /**
+     * Call this after the name or tags of the entry changed
+     *
+     * @param entry the entry that changed
+     */
+    public void onEntryChanged(@NonNull EntryItem entry) {
+        onSearchDataChanged();
+        for (ProviderEntry providerEntry : this.providers.values()) {
+            IProvider<?> provider = providerEntry.provider;
+            if (provider instanceof Provider && provider.mayFindById(entry.id)) {
+                ((Provider<?>) provider).onEntryChanged(entry);
+                break;
             }
-            // Retrieve results for query:
-            provider.requestResults(query, searcher);
         }
     }
 
@@ -468,7 +663,7 @@ public class DataHandler extends BroadcastReceiver
 
             List<? extends EntryItem> pojos = entry.provider.getPojos();
             if (pojos != null)
-                searcher.addResult(pojos.toArray(new EntryItem[0]));
+                searcher.addEntries(pojos);
         }
     }
 
@@ -481,6 +676,8 @@ public class DataHandler extends BroadcastReceiver
                 return DBHelper.HistoryMode.FREQUENCY;
             case "adaptive":
                 return DBHelper.HistoryMode.ADAPTIVE;
+            case "decay":
+                return DBHelper.HistoryMode.DECAY;
             default:
                 return DBHelper.HistoryMode.RECENCY;
         }
@@ -493,7 +690,7 @@ public class DataHandler extends BroadcastReceiver
      * in this case it is probably a good idea to call this function 500ms after
      *
      * @param itemCount          max number of items to retrieve, total number may be less (search or calls are not returned for instance)
-     * @param historyMode        Recency vs Frecency vs Frequency vs Adaptive
+     * @param historyMode        Recency vs Frecency vs Frequency vs Adaptive vs Decay
      * @param sortHistory        Sort history entries alphabetically
      * @param itemsToExcludeById Items to exclude from history by their id
      * @return pojos in recent history
@@ -504,7 +701,7 @@ public class DataHandler extends BroadcastReceiver
         int extendedItemCount = itemCount + itemsToExcludeById.size();
 
         // Read history
-        List<ValuedHistoryRecord> ids = DBHelper.getHistory(context, extendedItemCount, historyMode);
+        List<ValuedHistoryRecord> ids = mHistoryModel.getHistory(extendedItemCount, historyMode);
 
         // Pre-allocate array slots that are likely to be used
         ArrayList<EntryItem> history = new ArrayList<>(ids.size());
@@ -535,7 +732,12 @@ public class DataHandler extends BroadcastReceiver
     }
 
     public int getHistoryLength() {
-        return DBHelper.getHistoryLength(this.context);
+        return mHistoryModel.size();
+    }
+
+    @NonNull
+    public HistoryModel getHistoryModel() {
+        return mHistoryModel;
     }
 
     /**
@@ -592,7 +794,11 @@ public class DataHandler extends BroadcastReceiver
     }
 
     public void clearHistory() {
-        DBHelper.clearHistory(this.context);
+        mHistoryModel.clear();
+    }
+
+    public void removeFromHistory(@NonNull String id) {
+        mHistoryModel.remove(id);
     }
 
     public void removeShortcut(ShortcutEntry shortcut) {
@@ -653,10 +859,12 @@ public class DataHandler extends BroadcastReceiver
     public boolean addToHidden(AppEntry entry) {
         // if it's hidden it shouldn't be a favorite, right?
         removeFromFavorites(entry);
+        onSearchDataChanged();
         return DBHelper.setAppHidden(context, entry.getUserComponentName());
     }
 
     public boolean removeFromHidden(AppEntry entry) {
+        onSearchDataChanged();
         return DBHelper.removeAppHidden(context, entry.getUserComponentName());
     }
 
@@ -871,15 +1079,25 @@ public class DataHandler extends BroadcastReceiver
         Set<String> excludedFromHistory = getExcludedFromHistory();
 
         if (!frozen && !excludedFromHistory.contains(id)) {
-            DBHelper.insertHistory(this.context, currentQuery, id);
+            mHistoryModel.add(currentQuery, id);
         }
     }
 
     @Nullable
     public EntryItem getPojo(@NonNull String id) {
+        int schemeEnd = id.indexOf("://");
+        String scheme = schemeEnd > 0 ? id.substring(0, schemeEnd) : null;
+
+        // The provider found last time for this scheme is most likely the one
+        ProviderEntry known = scheme != null ? providerByScheme.get(scheme) : null;
+        if (known != null && known.provider != null && known.provider.mayFindById(id))
+            return known.provider.findById(id);
+
         // Ask all providers if they know this id
         for (ProviderEntry entry : this.providers.values()) {
             if (entry.provider != null && entry.provider.mayFindById(id)) {
+                if (scheme != null)
+                    providerByScheme.put(scheme, entry);
                 return entry.provider.findById(id);
             }
         }
@@ -892,20 +1110,30 @@ public class DataHandler extends BroadcastReceiver
         return DBHelper.getAppsData(context);
     }
 
-    public void updateAppCache(ArrayList<AppRecord> appRecords) {
-        if (appRecords.size() > 0)
-            DBHelper.insertOrUpdateApps(context, appRecords);
-    }
-
-    public void removeAppCache(ArrayList<AppRecord> appRecords) {
-        if (appRecords.size() > 0)
-            DBHelper.deleteApps(context, appRecords);
+    /**
+     * Write the app changes found by the loader
+     *
+     * @param changedRecords new or renamed apps
+     * @param removedRecords apps no longer installed
+     */
+    public void updateAppCache(ArrayList<AppRecord> changedRecords, ArrayList<AppRecord> removedRecords) {
+        if (changedRecords.size() > 0 || removedRecords.size() > 0)
+            DBHelper.updateApps(context, changedRecords, removedRecords);
     }
 
     public void renameApp(String componentName, String newName) {
+        onAppNameChanged(componentName);
         DBHelper.setCustomAppName(context, componentName, newName);
     }
 
+    private void onAppNameChanged(String componentName) {
+        EntryItem entry = getPojo(AppEntry.SCHEME + componentName);
+        if (entry != null)
+            onEntryChanged(entry);
+        else
+            onSearchDataChanged();
+    }
+
     public void renameStaticEntry(@NonNull String entryId, @Nullable String newName) {
         if (newName == null)
             DBHelper.removeCustomStaticEntryName(context, entryId);
@@ -914,6 +1142,7 @@ public class DataHandler extends BroadcastReceiver
     }
 
     public void removeRenameApp(String componentName, String defaultName) {
+        onAppNameChanged(componentName);
         DBHelper.removeCustomAppName(context, componentName, defaultName);
     }
 
@@ -958,10 +1187,7 @@ public class DataHandler extends BroadcastReceiver
     }
 
     public Bitmap getCustomAppIcon(String componentName) {
-        byte[] bytes = DBHelper.getCustomAppIcon(context, componentName);
-        if (bytes == null)
-            return null;
-        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        return DBHelper.getCustomAppIconBitmap(context, componentName);
     }
 
     public AppRecord removeCustomAppIcon(String componentName) {
@@ -973,20 +1199,15 @@ public class DataHandler extends BroadcastReceiver
     }
 
     public Bitmap getCustomStaticEntryIcon(StaticEntry staticEntry) {
-        byte[] bytes = DBHelper.getCustomFavIcon(context, staticEntry.id);
-        if (bytes == null)
-            return null;
-        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        return DBHelper.getCustomFavIconBitmap(context, staticEntry.id);
     }
 
     public Bitmap getCustomShortcutIcon(ShortcutEntry shortcutEntry) {
-        byte[] bytes = DBHelper.getCustomFavIcon(context, shortcutEntry.id);
-        if (bytes == null)
-            return null;
-        return BitmapFactory.decodeByteArray(bytes, 0, bytes.length);
+        return DBHelper.getCustomFavIconBitmap(context, shortcutEntry.id);
     }
 
     public void renameShortcut(ShortcutEntry shortcutEntry, String newName) {
+        onEntryChanged(shortcutEntry);
         DBHelper.renameShortcut(context, shortcutEntry, newName);
     }
 
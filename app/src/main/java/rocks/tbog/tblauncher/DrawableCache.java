@@ -1,20 +1,28 @@
 package rocks.tbog.tblauncher;
 
+import android.app.ActivityManager;
 import android.content.Context;
 import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.drawable.BitmapDrawable;
 import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.collection.LruCache;
 
-import java.util.List;
-
 public class DrawableCache {
     private static final String TAG = "DrawCache";
     private boolean mEnabled = true;
-    private LruCache<String, DrawableInfo> mCache = new LruCache<>(16);
+    // the size is in bytes
+    private final LruCache<String, DrawableInfo> mCache = new LruCache<String, DrawableInfo>(1024 * 1024) {
+        @Override
+        protected int sizeOf(@NonNull String key, @NonNull DrawableInfo value) {
+            return value.byteCount;
+        }
+    };
 
     public void setSize(int maxSize) {
         mCache.resize(maxSize);
@@ -23,13 +31,30 @@ public class DrawableCache {
     private static class DrawableInfo {
 
         final Drawable drawable;
+        final int byteCount;
 
         DrawableInfo(Drawable drawable) {
             this.drawable = drawable;
+            this.byteCount = getByteCount(drawable);
         }
 
     }
 
+    private static int getByteCount(Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            if (bitmap != null) {
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+                    return bitmap.getAllocationByteCount();
+                return bitmap.getByteCount();
+            }
+        }
+        // assume ARGB_8888 for everything else
+        int width = Math.max(1, drawable.getIntrinsicWidth());
+        int height = Math.max(1, drawable.getIntrinsicHeight());
+        return width * height * 4;
+    }
+
     public void cacheDrawable(@NonNull String name, @Nullable Drawable drawable) {
         if (drawable == null) {
             mCache.remove(name);
@@ -41,6 +66,23 @@ public class DrawableCache {
         mCache.put(name, info);
     }
 
+    /**
+     * Cache the drawable only if no other drawable needs to be removed for it
+     *
+     * @return true if the drawable is in the cache
+     */
+    public boolean cacheDrawableIfRoom(@NonNull String name, @NonNull Drawable drawable) {
+        if (!mEnabled)
+            return false;
+        DrawableInfo info = new DrawableInfo(drawable);
+        synchronized (mCache) {
+            if (mCache.size() + info.byteCount > mCache.maxSize())
+                return false;
+            mCache.put(name, info);
+        }
+        return true;
+    }
+
     @Nullable
     public Drawable getCachedDrawable(@NonNull String name) {
         DrawableInfo info = mCache.get(name);
@@ -60,10 +102,11 @@ public class DrawableCache {
             clearCache();
         }
         boolean halfSize = pref.getBoolean("cache-half-apps", true);
-        List<?> apps = TBApplication.dataHandler(ctx).getApplications();
-        int size = apps == null ? 0 : apps.size();
-        size = size < 16 ? 16 : halfSize ? (size / 2) : (size * 115 / 100);
-        Log.i(TAG, "Cache size: " + size);
+        ActivityManager am = (ActivityManager) ctx.getSystemService(Context.ACTIVITY_SERVICE);
+        int memoryClass = am != null ? am.getMemoryClass() : 16;
+        // use 1/8 of the app memory, or 1/16 for the small cache
+        int size = memoryClass * 1024 * 1024 / (halfSize ? 16 : 8);
+        Log.i(TAG, "Cache size: " + (size / 1024) + "KiB");
         mCache.resize(size);
     }
 }
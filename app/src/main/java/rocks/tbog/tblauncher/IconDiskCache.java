@@ -0,0 +1,208 @@
+package rocks.tbog.tblauncher;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import rocks.tbog.tblauncher.utils.UserHandleCompat;
+import rocks.tbog.tblauncher.utils.Utilities;
+
+/**
+ * Keep the rendered (shaped and masked) app icons on disk so the icons don't have to be
+ * generated again after the process is killed.
+ * <p>
+ * Each icon configuration (icon pack, shape, background, size) has its own folder. The file name
+ * has the component, the user and the last update time of the package.
+ */
+public class IconDiskCache {
+    private static final String TAG = "IconDiskCache";
+    private static final String FOLDER = "icons";
+    private static final String EXTENSION = ".png";
+    // write and delete files one at a time, in the background
+    private static final ExecutorService DISK_WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "IconDiskCache");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final File mRoot;
+    private volatile File mFolder = null;
+    private volatile boolean mEnabled = true;
+    // package name -> last update time, so we don't ask the package manager for every icon
+    private final HashMap<String, Long> mLastUpdate = new HashMap<>();
+
+    public IconDiskCache(@NonNull Context context) {
+        mRoot = new File(context.getCacheDir(), FOLDER);
+    }
+
+    public void setEnabled(boolean enabled) {
+        if (mEnabled == enabled)
+            return;
+        mEnabled = enabled;
+        if (!enabled)
+            clearCache();
+    }
+
+    public boolean isEnabled() {
+        return mEnabled;
+    }
+
+    /**
+     * Select the folder for the current icon configuration. Folders of other configurations are
+     * removed.
+     *
+     * @param config all the settings that change the look of the icons
+     */
+    public void setConfig(@NonNull String config) {
+        String name = Integer.toHexString(config.hashCode());
+        File folder = mFolder;
+        if (folder != null && folder.getName().equals(name))
+            return;
+        final File newFolder = new File(mRoot, name);
+        mFolder = newFolder;
+        Log.i(TAG, "config " + name + " `" + config + "`");
+        DISK_WRITER.execute(() -> {
+            File[] list = mRoot.listFiles();
+            if (list != null)
+                for (File file : list)
+                    if (!file.equals(newFolder))
+                        deleteFolder(file);
+        });
+    }
+
+    /**
+     * Find where the icon is stored. Get the file before rendering the icon so a configuration
+     * change will not store the icon with the wrong settings.
+     *
+     * @return the file of the icon or null if the icon should not be stored
+     */
+    @WorkerThread
+    @Nullable
+    public File getIconFile(@NonNull Context context, @NonNull ComponentName componentName, @NonNull UserHandleCompat userHandle) {
+        File folder = mFolder;
+        if (!mEnabled || folder == null)
+            return null;
+        String packageName = componentName.getPackageName();
+        long lastUpdate = getLastUpdateTime(context, packageName);
+        if (lastUpdate == 0)
+            return null;
+        // the package and activity names can't have `/` or `+`
+        String name = userHandle.getUserComponentName(componentName).replace('/', '+');
+        return new File(folder, name + "_" + lastUpdate + EXTENSION);
+    }
+
+    @WorkerThread
+    @Nullable
+    public Drawable getIcon(@NonNull Context context, @NonNull File file) {
+        if (!file.isFile())
+            return null;
+        Bitmap bitmap = BitmapFactory.decodeFile(file.getPath());
+        if (bitmap == null) {
+            Log.w(TAG, "can't decode " + file);
+            return null;
+        }
+        return new BitmapDrawable(context.getResources(), bitmap);
+    }
+
+    @WorkerThread
+    public void putIcon(@NonNull final File file, @NonNull Drawable drawable) {
+        final Bitmap bitmap = Utilities.drawableToBitmap(drawable);
+        DISK_WRITER.execute(() -> {
+            File folder = file.getParentFile();
+            if (folder == null || !folder.equals(mFolder))
+                return;
+            if (!folder.isDirectory() && !folder.mkdirs())
+                return;
+            // write to a temporary file, a reader must never see half an icon
+            File tmp = new File(folder, file.getName() + ".tmp");
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+            } catch (IOException e) {
+                Log.e(TAG, "write " + tmp, e);
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+                return;
+            }
+            if (!tmp.renameTo(file))
+                //noinspection ResultOfMethodCallIgnored
+                tmp.delete();
+        });
+    }
+
+    /**
+     * The package was installed, updated or removed. Remove the icons of the old version.
+     */
+    public void onPackageChanged(@NonNull String packageName) {
+        synchronized (mLastUpdate) {
+            mLastUpdate.remove(packageName);
+        }
+        final File folder = mFolder;
+        if (folder == null)
+            return;
+        final String prefix = packageName + "+";
+        DISK_WRITER.execute(() -> {
+            File[] list = folder.listFiles();
+            if (list != null)
+                for (File file : list)
+                    if (file.getName().startsWith(prefix))
+                        //noinspection ResultOfMethodCallIgnored
+                        file.delete();
+        });
+    }
+
+    public void clearCache() {
+        synchronized (mLastUpdate) {
+            mLastUpdate.clear();
+        }
+        DISK_WRITER.execute(() -> deleteFolder(mRoot));
+    }
+
+    private long getLastUpdateTime(@NonNull Context context, @NonNull String packageName) {
+        synchronized (mLastUpdate) {
+            Long value = mLastUpdate.get(packageName);
+            if (value != null)
+                return value;
+        }
+        long lastUpdate;
+        try {
+            lastUpdate = context.getPackageManager().getPackageInfo(packageName, 0).lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            // work profile apps may not be visible, don't cache those
+            lastUpdate = 0;
+        }
+        synchronized (mLastUpdate) {
+            mLastUpdate.put(packageName, lastUpdate);
+        }
+        return lastUpdate;
+    }
+
+    private static void deleteFolder(@NonNull File folder) {
+        File[] list = folder.listFiles();
+        if (list != null)
+            for (File file : list) {
+                if (file.isDirectory())
+                    deleteFolder(file);
+                else
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+            }
+        //noinspection ResultOfMethodCallIgnored
+        folder.delete();
+    }
+}
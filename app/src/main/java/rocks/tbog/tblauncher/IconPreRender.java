@@ -0,0 +1,163 @@
+package rocks.tbog.tblauncher;
+
+import android.content.Context;
+import android.graphics.drawable.Drawable;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rocks.tbog.tblauncher.dataprovider.IProvider;
+import rocks.tbog.tblauncher.entry.AppEntry;
+import rocks.tbog.tblauncher.entry.EntryItem;
+import rocks.tbog.tblauncher.entry.ShortcutEntry;
+import rocks.tbog.tblauncher.result.ResultViewHelper;
+import rocks.tbog.tblauncher.utils.PriorityExecutor;
+
+/**
+ * Render the icons in the background after the icon settings changed, so the lists don't have to
+ * wait for them while scrolling. Entries are rendered in the order they are most likely to be
+ * seen: quick list, favorites, apps, shortcuts and then the hidden apps.
+ * <p>
+ * The tasks have a low priority and never use all the threads of
+ * {@link ResultViewHelper#EXECUTOR_ENTRY_ICON}, the icons of the visible views are loaded first.
+ */
+public class IconPreRender {
+    private static final String TAG = "IconPreRender";
+    private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
+
+    private final Context context;
+    private final ArrayList<EntryItem> mEntries = new ArrayList<>();
+    // index of the next entry to render
+    private final AtomicInteger mNext = new AtomicInteger(0);
+    private final AtomicInteger mDone = new AtomicInteger(0);
+    // chains of tasks still running
+    private final AtomicInteger mActive = new AtomicInteger(0);
+    private volatile boolean mCancelled = false;
+    private boolean mFinished = false;
+    private long mStartTime = 0;
+
+    public IconPreRender(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Collect the entries and start rendering
+     */
+    @UiThread
+    public void start() {
+        DataHandler dataHandler = TBApplication.dataHandler(context);
+        HashSet<String> added = new HashSet<>();
+        addEntries(added, dataHandler.getQuickListProvider());
+        addEntries(added, dataHandler.getFavProvider());
+        addEntries(added, dataHandler.getApplicationsWithoutHidden());
+        addEntries(added, dataHandler.getShortcutsProvider());
+        addEntries(added, dataHandler.getApplications());
+
+        int total = mEntries.size();
+        Log.i(TAG, "start rendering " + total + " icon(s)");
+        mStartTime = SystemClock.uptimeMillis();
+        if (total == 0) {
+            finish();
+            return;
+        }
+        // keep one thread free for the icons of the visible views
+        int threadCount = Math.min(total, PriorityExecutor.cpuThreadCount() - 1);
+        mActive.set(threadCount);
+        for (int i = 0; i < threadCount; i += 1)
+            ResultViewHelper.EXECUTOR_ENTRY_ICON.execute(new RenderTask());
+    }
+
+    @UiThread
+    public void cancel() {
+        if (mFinished)
+            return;
+        mCancelled = true;
+        finish();
+    }
+
+    public boolean isCancelled() {
+        return mCancelled;
+    }
+
+    private void addEntries(@NonNull HashSet<String> added, @Nullable IProvider<? extends EntryItem> provider) {
+        if (provider != null)
+            addEntries(added, provider.getPojos());
+    }
+
+    private void addEntries(@NonNull HashSet<String> added, @Nullable List<? extends EntryItem> entries) {
+        if (entries == null)
+            return;
+        for (EntryItem entry : entries) {
+            if (!(entry instanceof AppEntry) && !(entry instanceof ShortcutEntry))
+                continue;
+            if (added.add(entry.id))
+                mEntries.add(entry);
+        }
+    }
+
+    @UiThread
+    private void finish() {
+        if (mFinished)
+            return;
+        mFinished = true;
+        long time = SystemClock.uptimeMillis() - mStartTime;
+        Log.i(TAG, (mCancelled ? "cancelled after " : "rendered ") + mDone.get() + "/" + mEntries.size() + " icon(s) in " + time + "ms");
+    }
+
+    /**
+     * @return false if there is no reason to render more icons
+     */
+    @WorkerThread
+    private boolean render(@NonNull EntryItem entry) {
+        DrawableCache drawableCache = TBApplication.drawableCache(context);
+        if (drawableCache.getCachedDrawable(entry.id) != null)
+            return true;
+        Drawable drawable = null;
+        if (entry instanceof AppEntry)
+            drawable = ((AppEntry) entry).getIconDrawable(context);
+        else if (entry instanceof ShortcutEntry)
+            drawable = ((ShortcutEntry) entry).getIcon(context);
+        if (drawable == null)
+            return true;
+        // don't push out the icons we rendered before, those are more likely to be seen
+        if (drawableCache.cacheDrawableIfRoom(entry.id, drawable))
+            return true;
+        // the app icons are also stored on disk
+        return TBApplication.iconDiskCache(context).isEnabled();
+    }
+
+    private class RenderTask extends PriorityExecutor.Task {
+        RenderTask() {
+            super(PriorityExecutor.PRIORITY_LOW);
+        }
+
+        @WorkerThread
+        @Override
+        public void run() {
+            int total = mEntries.size();
+            int index = mCancelled ? total : mNext.getAndIncrement();
+            if (index >= total) {
+                // this chain of tasks is done, the last one finishes the job
+                if (mActive.decrementAndGet() == 0)
+                    MAIN_HANDLER.post(IconPreRender.this::finish);
+                return;
+            }
+            if (!render(mEntries.get(index)))
+                mNext.set(total);
+            mDone.incrementAndGet();
+            // go back in the queue, the tasks of the visible views may be waiting
+            ResultViewHelper.EXECUTOR_ENTRY_ICON.execute(new RenderTask());
+        }
+    }
+}
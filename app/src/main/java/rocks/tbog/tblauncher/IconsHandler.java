@@ -20,10 +20,12 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
 import androidx.annotation.WorkerThread;
 import androidx.core.content.res.ResourcesCompat;
 import androidx.preference.PreferenceManager;
 
+import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 
@@ -62,6 +64,8 @@ public class IconsHandler {
     private boolean mShortcutPackMask;
     private boolean mShortcutBadgePackMask;
     private Utilities.AsyncRun mLoadIconsPackTask = null;
+    private IconPreRender mPreRender = null;
+    private boolean mPreRenderAfterLoad = false;
 
     public IconsHandler(Context ctx) {
         super();
@@ -87,6 +91,34 @@ public class IconsHandler {
         mShortcutsShape = getAdaptiveShape(pref, "shortcut-shape");
 
         mShortcutBadgePackMask = pref.getBoolean("shortcut-pack-badge-mask", true);
+
+        IconDiskCache diskCache = TBApplication.iconDiskCache(ctx);
+        diskCache.setEnabled(pref.getBoolean("cache-icons-disk", true));
+        diskCache.setConfig(getIconConfig(pref));
+    }
+
+    /**
+     * @return all the settings used by {@link #getDrawableIconForPackage}
+     */
+    @NonNull
+    private String getIconConfig(SharedPreferences pref) {
+        String iconPack = "default";
+        if (mIconPack != null) {
+            iconPack = mIconPack.getPackPackageName();
+            try {
+                // the icon pack may have been updated
+                iconPack += "@" + ctx.getPackageManager().getPackageInfo(iconPack, 0).lastUpdateTime;
+            } catch (NameNotFoundException ignored) {
+            }
+        }
+        int iconSize = ctx.getResources().getDimensionPixelSize(R.dimen.icon_size);
+        int background = UIColors.getColor(pref, "icon-background");
+        return iconPack
+                + " shape=" + mSystemPack.getAdaptiveShape()
+                + " adaptive=" + mForceAdaptive
+                + " force=" + mForceShape
+                + " bg=" + Integer.toHexString(background)
+                + " size=" + iconSize;
     }
 
     private static int getAdaptiveShape(SharedPreferences pref, String key) {
@@ -113,7 +145,7 @@ public class IconsHandler {
         if (mIconPack == null || !mIconPack.getPackPackageName().equals(packageName)) {
             if (mLoadIconsPackTask != null)
                 mLoadIconsPackTask.cancel();
-            final IconPackXML iconPack = TBApplication.iconPackCache(ctx).getIconPack(packageName);
+            final IconPackXML iconPack = TBApplication.iconPackCache(ctx).getIconPack(ctx, packageName);
             // set the current icon pack
             mIconPack = iconPack;
             // start async loading
@@ -124,16 +156,50 @@ public class IconsHandler {
                 if (!task.isCancelled() && task == mLoadIconsPackTask) {
                     mLoadIconsPackTask = null;
                     TBApplication.quickList(ctx).onFavoritesChanged();
+                    if (mPreRenderAfterLoad)
+                        preRenderIcons();
                 }
             });
         }
     }
 
+    /**
+     * Render the icons in the background after the icon settings changed. A job that was already
+     * running gets cancelled. If the icon pack is still loading the job will start after.
+     */
+    @UiThread
+    public void preRenderIcons() {
+        if (mPreRender != null)
+            mPreRender.cancel();
+        mPreRender = null;
+        mPreRenderAfterLoad = mLoadIconsPackTask != null;
+        if (mPreRenderAfterLoad)
+            return;
+        mPreRender = new IconPreRender(ctx);
+        mPreRender.start();
+    }
+
     /**
      * Get or generate icon for an app
      */
     @WorkerThread
     public Drawable getDrawableIconForPackage(ComponentName componentName, UserHandleCompat userHandle) {
+        IconDiskCache diskCache = TBApplication.iconDiskCache(ctx);
+        File file = diskCache.getIconFile(ctx, componentName, userHandle);
+        if (file != null) {
+            Drawable drawable = diskCache.getIcon(ctx, file);
+            if (drawable != null)
+                return drawable;
+        }
+
+        Drawable drawable = generateIconForPackage(componentName, userHandle);
+        if (drawable != null && file != null)
+            diskCache.putIcon(file, drawable);
+        return drawable;
+    }
+
+    @WorkerThread
+    private Drawable generateIconForPackage(ComponentName componentName, UserHandleCompat userHandle) {
         // check the icon pack for a resource
         if (mIconPack != null) {
             // just checking will make this thread wait for the icon pack to load
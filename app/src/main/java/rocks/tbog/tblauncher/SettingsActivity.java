@@ -20,6 +20,7 @@ import android.widget.Toast;
 
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.ActionBar;
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import androidx.core.graphics.drawable.DrawableCompat;
@@ -44,8 +45,10 @@ import rocks.tbog.tblauncher.preference.EditSearchEnginesPreferenceDialog;
 import rocks.tbog.tblauncher.preference.EditSearchHintPreferenceDialog;
 import rocks.tbog.tblauncher.preference.QuickListPreferenceDialog;
 import rocks.tbog.tblauncher.preference.SliderDialog;
+import rocks.tbog.tblauncher.searcher.TopKBenchmark;
 import rocks.tbog.tblauncher.ui.PleaseWaitDialog;
 import rocks.tbog.tblauncher.utils.FileUtils;
+import rocks.tbog.tblauncher.utils.IconRenderBenchmark;
 import rocks.tbog.tblauncher.utils.PrefCache;
 import rocks.tbog.tblauncher.utils.SystemUiVisibility;
 import rocks.tbog.tblauncher.utils.UIColors;
@@ -218,6 +221,48 @@ public class SettingsActivity extends AppCompatActivity implements PreferenceFra
                     });
             }
 
+            // icon render benchmark
+            {
+                Preference pref = findPreference("debug-icon-benchmark");
+                if (pref != null)
+                    pref.setOnPreferenceClickListener(preference -> {
+                        Toast.makeText(activity, R.string.debug_icon_benchmark_running, Toast.LENGTH_SHORT).show();
+                        final String[] report = {null};
+                        Utilities.runAsync(t -> report[0] = new IconRenderBenchmark(activity.getApplicationContext()).run(),
+                                t -> {
+                                    if (activity.isFinishing())
+                                        return;
+                                    new AlertDialog.Builder(activity)
+                                            .setTitle(R.string.debug_icon_benchmark)
+                                            .setMessage(report[0])
+                                            .setPositiveButton(android.R.string.ok, null)
+                                            .show();
+                                });
+                        return true;
+                    });
+            }
+
+            // top-K collector benchmark
+            {
+                Preference pref = findPreference("debug-topk-benchmark");
+                if (pref != null)
+                    pref.setOnPreferenceClickListener(preference -> {
+                        Toast.makeText(activity, R.string.debug_topk_benchmark_running, Toast.LENGTH_SHORT).show();
+                        final String[] report = {null};
+                        Utilities.runAsync(t -> report[0] = new TopKBenchmark().run(),
+                                t -> {
+                                    if (activity.isFinishing())
+                                        return;
+                                    new AlertDialog.Builder(activity)
+                                            .setTitle(R.string.debug_topk_benchmark)
+                                            .setMessage(report[0])
+                                            .setPositiveButton(android.R.string.ok, null)
+                                            .show();
+                                });
+                        return true;
+                    });
+            }
+
             SharedPreferences sharedPreferences = PreferenceManager.getDefaultSharedPreferences(requireContext());
 
             // quick-list
@@ -350,7 +395,10 @@ public class SettingsActivity extends AppCompatActivity implements PreferenceFra
                     case "result-icon-size":
                     case "result-history-size":
                     case "result-history-adaptive":
+                    case "result-history-half-life":
                     case "result-search-cap":
+                    case "search-provider-timeout":
+                    case "speculative-search-count":
                         dialogFragment = SliderDialog.newInstance(key);
                         break;
                     case "exit-app":
@@ -471,7 +519,10 @@ public class SettingsActivity extends AppCompatActivity implements PreferenceFra
                 }
                 break;
             case "icon-background":
+                // the rendered icons on disk have the background color
+                TBApplication.iconsHandler(context).onPrefChanged(sharedPreferences);
                 TBApplication.drawableCache(context).clearCache();
+                TBApplication.iconsHandler(context).preRenderIcons();
                 // fallthrough
             case "quick-list-color":
                 // static entities will change color based on luminance
@@ -497,8 +548,12 @@ public class SettingsActivity extends AppCompatActivity implements PreferenceFra
                 break;
             case "result-history-size":
             case "result-history-adaptive":
+            case "result-history-half-life":
             case "fuzzy-search-tags":
             case "result-search-cap":
+            case "search-parallel":
+            case "search-provider-timeout":
+            case "speculative-search-count":
                 PrefCache.resetCache();
                 break;
             case "adaptive-shape":
@@ -510,9 +565,11 @@ public class SettingsActivity extends AppCompatActivity implements PreferenceFra
             case "shortcut-pack-mask":
             case "shortcut-shape":
             case "shortcut-pack-badge-mask":
+            case "cache-icons-disk":
                 TBApplication.iconsHandler(context).onPrefChanged(sharedPreferences);
                 TBApplication.drawableCache(context).clearCache();
                 TBApplication.quickList(context).onFavoritesChanged();
+                TBApplication.iconsHandler(context).preRenderIcons();
                 break;
             case "tags-enabled": {
                 boolean useTags = sharedPreferences.getBoolean("tags-enabled", true);
@@ -16,6 +16,7 @@ import androidx.preference.PreferenceManager;
 import rocks.tbog.tblauncher.icons.IconPackCache;
 import rocks.tbog.tblauncher.quicklist.QuickList;
 import rocks.tbog.tblauncher.searcher.Searcher;
+import rocks.tbog.tblauncher.utils.BitmapPool;
 
 public class TBApplication extends Application {
 
@@ -48,6 +49,10 @@ public class TBApplication extends Application {
      * We store a number of drawables in memory for fast redraw
      */
     private DrawableCache mDrawableCache = new DrawableCache();
+    /**
+     * We store the rendered app icons on disk so we don't have to shape them after a restart
+     */
+    private IconDiskCache mIconDiskCache = null;
     /**
      * We store a number of icon packs so we don't have to parse the XML
      */
@@ -82,6 +87,11 @@ public class TBApplication extends Application {
         return getApplication(context).mDrawableCache;
     }
 
+    @NonNull
+    public static IconDiskCache iconDiskCache(Context context) {
+        return getApplication(context).mIconDiskCache;
+    }
+
     @NonNull
     public static IconPackCache iconPackCache(Context context) {
         return getApplication(context).mIconPackCache;
@@ -190,6 +200,7 @@ public class TBApplication extends Application {
 //        }
 //        editor.commit();
 
+        mIconDiskCache = new IconDiskCache(this);
         mDrawableCache.onPrefChanged(this, mSharedPreferences);
         mWidgetManager.start(this);
     }
@@ -275,6 +286,7 @@ public class TBApplication extends Application {
             // this is called every time the screen is off
             SQLiteDatabase.releaseMemory();
             mIconPackCache.clearCache(this);
+            BitmapPool.ICONS.clear();
             if (mSharedPreferences.getBoolean("screen-off-cache-clear", false))
                 mDrawableCache.clearCache();
         }
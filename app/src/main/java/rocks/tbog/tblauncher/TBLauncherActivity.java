@@ -105,8 +105,6 @@ public class TBLauncherActivity extends AppCompatActivity implements ActivityCom
                     app.behaviour().displayLoader(false);
 
                     SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(TBLauncherActivity.this);
-                    // we need to set drawable cache preferences after we load all the apps
-                    app.drawableCache().onPrefChanged(TBLauncherActivity.this, prefs);
                     // make sure we load the icon pack as early as possible
                     app.iconsHandler().onPrefChanged(prefs);
 
@@ -86,6 +86,7 @@ public class TagsHandler {
         if (entry instanceof EntryWithTags) {
             if (removeTag(entry.id, tag)) {
                 ((EntryWithTags) entry).setTags(getTags(entry.id));
+                mApplication.getDataHandler().onEntryChanged(entry);
                 return true;
             }
         }
@@ -332,6 +333,7 @@ public class TagsHandler {
             }
         }
         entry.setTags(getTags(entry.id));
+        mApplication.getDataHandler().onEntryChanged(entry);
     }
 
     public boolean renameTag(String tagName, String newName) {
@@ -341,8 +343,10 @@ public class TagsHandler {
             if (pos >= 0) {
                 entry.getValue().set(pos, newName);
                 EntryItem entryItem = dataHandler.getPojo(entry.getKey());
-                if (entryItem instanceof EntryWithTags)
+                if (entryItem instanceof EntryWithTags) {
                     ((EntryWithTags) entryItem).setTags(entry.getValue());
+                    dataHandler.onEntryChanged(entryItem);
+                }
             }
         }
         return DBHelper.renameTag(getContext(), tagName, newName) > 0;
@@ -269,7 +269,7 @@ public class TagsManager {
 
             if (content.tagEntry != null) {
                 int drawFlags = EntryItem.FLAG_DRAW_ICON | EntryItem.FLAG_DRAW_NO_CACHE;
-                ResultViewHelper.setIconAsync(drawFlags, content.tagEntry, iconView, StaticEntry.AsyncSetEntryIcon.class);
+                ResultViewHelper.setIconAsync(drawFlags, content.tagEntry, iconView, StaticEntry.AsyncSetEntryIcon::new);
             } else {
                 Drawable icon = new CodePointDrawable(content.name);
                 icon = DrawableUtils.applyIconMaskShape(iconView.getContext(), icon, DrawableUtils.SHAPE_SQUIRCLE, false);
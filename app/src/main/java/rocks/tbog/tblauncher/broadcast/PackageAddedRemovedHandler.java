@@ -52,6 +52,10 @@ public class PackageAddedRemovedHandler extends BroadcastReceiver {
             dataHandler.removeFromExcluded(packageName);
         }
 
+        // The rendered icons of the old version are not valid anymore
+        if (packageName != null)
+            TBApplication.iconDiskCache(ctx).onPackageChanged(packageName);
+
         // This may be an icon pack, reload packs
         TBApplication.getApplication(ctx).resetIconsHandler();
 
@@ -147,6 +147,17 @@ public class ActionProvider extends StaticProvider<ActionEntry> {
             actionEntry.setName(context.getResources().getString(R.string.action_show_history_adaptive));
             pojos.add(actionEntry);
         }
+        // show history sorted by launches that lose half their weight every half-life
+        {
+            String id = ActionEntry.SCHEME + "show/history/decay";
+            ActionEntry actionEntry = new ActionEntry(id, R.drawable.ic_history);
+            actionEntry.setAction(v -> {
+                Context ctx = v.getContext();
+                TBApplication.behaviour(ctx).runSearcher("decay", HistorySearcher.class);
+            });
+            actionEntry.setName(context.getResources().getString(R.string.action_show_history_decay));
+            pojos.add(actionEntry);
+        }
     }
 
     @Override
@@ -2,30 +2,37 @@ package rocks.tbog.tblauncher.dataprovider;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 
+import rocks.tbog.tblauncher.TBApplication;
 import rocks.tbog.tblauncher.db.AppRecord;
 import rocks.tbog.tblauncher.entry.AppEntry;
-import rocks.tbog.tblauncher.entry.EntryItem;
 import rocks.tbog.tblauncher.normalizer.StringNormalizer;
 import rocks.tbog.tblauncher.searcher.Searcher;
 import rocks.tbog.tblauncher.utils.FuzzyScore;
 import rocks.tbog.tblauncher.utils.UserHandleCompat;
 
+/**
+ * The apps from the database, searched while the {@link AppProvider} is loading. The entries are
+ * built on the first search and kept until the apps provider is loaded.
+ */
 public class AppCacheProvider implements IProvider<AppEntry> {
+    private static final String TAG = "AppCacheProvider";
 
     final private Context context;
-    final private HashMap<String, AppRecord> apps;
+    @Nullable
+    private ArrayList<AppEntry> pojos = null;
 
-    public AppCacheProvider(Context context, HashMap<String, AppRecord> cachedApps) {
+    public AppCacheProvider(Context context) {
         this.context = context;
-        apps = cachedApps;
     }
 
     @WorkerThread
@@ -37,10 +44,21 @@ public class AppCacheProvider implements IProvider<AppEntry> {
             return;
         }
 
-        //FuzzyScore fuzzyScore = new FuzzyScore(queryNormalized.codePoints);
-        //FuzzyScore.MatchInfo matchInfo;
-        //boolean match;
+        FuzzyScore fuzzyScore = new FuzzyScore(queryNormalized.codePoints);
+
+        AppProvider.checkAppResults(getEntries(), fuzzyScore, searcher);
+    }
 
+    /**
+     * Build the entries on the first call, the searches that run in parallel wait for them
+     */
+    @WorkerThread
+    @NonNull
+    private synchronized List<AppEntry> getEntries() {
+        if (pojos != null)
+            return pojos;
+        long start = System.currentTimeMillis();
+        HashMap<String, AppRecord> apps = TBApplication.dataHandler(context).getCachedApps();
         ArrayList<AppEntry> pojos = new ArrayList<>(apps.size());
 
         // convert from AppRecord to AppEntry
@@ -57,12 +75,14 @@ public class AppCacheProvider implements IProvider<AppEntry> {
                 app.setName(user.getBadgedLabelForUser(context, rec.displayName));
             if (rec.hasCustomIcon())
                 app.setCustomIcon(rec.dbId);
+            app.setHiddenByUser(rec.isHidden());
             //app.setTags(tagsHandler.getTags(app.id));
         }
+        this.pojos = pojos;
 
-        FuzzyScore fuzzyScore = new FuzzyScore(queryNormalized.codePoints);
-
-        AppProvider.checkAppResults(pojos, fuzzyScore, searcher);
+        long time = System.currentTimeMillis() - start;
+        Log.i(TAG, "Time to build " + pojos.size() + " cached apps: " + time + "ms");
+        return pojos;
     }
 
     public void reload(boolean cancelCurrentLoadTask) {
@@ -1,6 +1,7 @@
 package rocks.tbog.tblauncher.dataprovider;
 
 import android.content.BroadcastReceiver;
+import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
@@ -10,9 +11,13 @@ import android.os.Process;
 import android.os.UserManager;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.WorkerThread;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Objects;
 
@@ -23,6 +28,7 @@ import rocks.tbog.tblauncher.entry.AppEntry;
 import rocks.tbog.tblauncher.entry.EntryWithTags;
 import rocks.tbog.tblauncher.loader.LoadAppEntry;
 import rocks.tbog.tblauncher.normalizer.StringNormalizer;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.searcher.Searcher;
 import rocks.tbog.tblauncher.utils.FuzzyScore;
 import rocks.tbog.tblauncher.utils.UserHandleCompat;
@@ -173,14 +179,59 @@ public class AppProvider extends Provider<AppEntry> {
             this.initialize(new LoadAppEntry(this));
     }
 
+    @Nullable
+    @Override
+    EntrySnapshot.Codec<AppEntry> getSnapshotCodec() {
+        return new EntrySnapshot.Codec<AppEntry>() {
+            @Override
+            public boolean canWrite(@NonNull AppEntry entry) {
+                return true;
+            }
+
+            @Override
+            public void write(@NonNull DataOutputStream out, @NonNull AppEntry entry) throws IOException {
+                out.writeUTF(entry.getUserComponentName());
+                out.writeLong(entry.getCustomIcon());
+                out.writeBoolean(entry.isHiddenByUser());
+                out.writeBoolean(entry.isExcludedFromHistory());
+            }
+
+            @Nullable
+            @Override
+            public AppEntry read(@NonNull DataInputStream in, @NonNull String id) throws IOException {
+                String userComponentName = in.readUTF();
+                long customIcon = in.readLong();
+                boolean hidden = in.readBoolean();
+                boolean excludedFromHistory = in.readBoolean();
+
+                ComponentName cn = UserHandleCompat.unflattenComponentName(userComponentName);
+                UserHandleCompat user = UserHandleCompat.fromComponentName(AppProvider.this, userComponentName);
+                AppEntry app = new AppEntry(id, cn.getPackageName(), cn.getClassName(), user);
+                if (customIcon != 0)
+                    app.setCustomIcon(customIcon);
+                app.setHiddenByUser(hidden);
+                app.setExcludedFromHistory(excludedFromHistory);
+                return app;
+            }
+        };
+    }
+
     /**
      * @param query    The string to search for
      * @param searcher The receiver of results
+     * @param entries  The apps to check
      */
 
+    @Override
+    void addToIndex(@NonNull CodePointIndex<AppEntry> index, int position, @NonNull AppEntry entry) {
+        super.addToIndex(index, position, entry);
+        for (EntryWithTags.TagDetails tag : entry.getTags())
+            index.add(position, tag.normalized);
+    }
+
     @WorkerThread
     @Override
-    public void requestResults(String query, Searcher searcher) {
+    protected void requestResults(String query, Searcher searcher, Iterable<AppEntry> entries) {
         StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
 
         if (queryNormalized.codePoints.length == 0) {
@@ -189,66 +240,40 @@ public class AppProvider extends Provider<AppEntry> {
 
         FuzzyScore fuzzyScore = new FuzzyScore(queryNormalized.codePoints);
 
-        checkAppResults(pojos, fuzzyScore, searcher);
+        checkAppResults(entries, fuzzyScore, searcher);
     }
 
     @WorkerThread
     static void checkAppResults(Iterable<AppEntry> pojos, FuzzyScore fuzzyScore, Searcher searcher) {
         FuzzyScore.MatchInfo matchInfo;
-        boolean match;
+        ScoredHit hit;
 
         for (AppEntry pojo : pojos) {
             if (pojo.isHiddenByUser()) {
                 continue;
             }
 
-            matchInfo = fuzzyScore.match(pojo.normalizedName.codePoints);
-            match = matchInfo.match;
-            pojo.setRelevance(pojo.normalizedName, matchInfo);
+            matchInfo = fuzzyScore.match(pojo.normalizedName);
+            hit = matchInfo.match ? ScoredHit.of(pojo, pojo.normalizedName, matchInfo) : null;
 
             if (searcher.tagsEnabled()) {
                 // check relevance for tags
                 for (EntryWithTags.TagDetails tag : pojo.getTags()) {
-                    matchInfo = fuzzyScore.match(tag.normalized.codePoints);
-                    if (matchInfo.match && (!match || matchInfo.score > pojo.getRelevance())) {
-                        match = true;
-                        pojo.setRelevance(tag.normalized, matchInfo);
+                    matchInfo = fuzzyScore.match(tag.normalized);
+                    if (matchInfo.match && (hit == null || matchInfo.score > hit.score)) {
+                        hit = ScoredHit.of(pojo, tag.normalized, matchInfo);
                     }
                 }
             }
 
-            if (match && !searcher.addResult(pojo)) {
+            if (hit != null && !searcher.addResult(hit)) {
                 return;
             }
         }
     }
 
-
-    /**
-     * Return a Pojo
-     *
-     * @param id we're looking for
-     * @return an AppEntry, or null
-     */
-    @Override
-    public AppEntry findById(@NonNull String id) {
-        for (AppEntry pojo : pojos) {
-            if (pojo.id.equals(id)) {
-                return pojo;
-            }
-        }
-
-        return null;
-    }
-
     public ArrayList<AppEntry> getAllApps() {
-        ArrayList<AppEntry> records = new ArrayList<>(pojos.size());
-
-        for (AppEntry pojo : pojos) {
-            pojo.resetRelevance();
-            records.add(pojo);
-        }
-        return records;
+        return new ArrayList<>(pojos);
     }
 
     public ArrayList<AppEntry> getAllAppsWithoutHidden() {
@@ -258,7 +283,6 @@ public class AppProvider extends Provider<AppEntry> {
             if (pojo.isHiddenByUser())
                 continue;
 
-            pojo.resetRelevance();
             records.add(pojo);
         }
         return records;
@@ -11,6 +11,7 @@ import rocks.tbog.tblauncher.calculator.Result;
 import rocks.tbog.tblauncher.calculator.ShuntingYard;
 import rocks.tbog.tblauncher.calculator.Tokenizer;
 import rocks.tbog.tblauncher.entry.CalculatorEntry;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.searcher.Searcher;
 
 
@@ -69,10 +70,7 @@ public class CalculatorProvider extends SimpleProvider<CalculatorEntry> {
 
             String queryProcessed = operation + readableResult;
             CalculatorEntry pojo = new CalculatorEntry(queryProcessed);
-            pojo.setRelevance(pojo.normalizedName, null);
-
-            pojo.boostRelevance(19);
-            searcher.addResult(pojo);
+            searcher.addResult(ScoredHit.of(pojo, 19));
         }
     }
 }
@@ -0,0 +1,103 @@
+package rocks.tbog.tblauncher.dataprovider;
+
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import rocks.tbog.tblauncher.entry.EntryItem;
+import rocks.tbog.tblauncher.normalizer.StringNormalizer;
+
+/**
+ * Inverted index from a lowercase code point to the entries that contain it.
+ * <p>
+ * The fuzzy search needs every character of the query to be found in the text, so only the
+ * entries present in the postings of all the query characters may match.
+ * Character n-grams would not work here because the matched characters don't need to be adjacent.
+ */
+class CodePointIndex<T extends EntryItem> {
+    @NonNull
+    private final List<T> entries;
+    private final SparseArray<BitSet> postings = new SparseArray<>();
+
+    CodePointIndex(@NonNull List<T> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * @param list entry list
+     * @return true if this index was built from the list
+     */
+    boolean isIndexOf(List<T> list) {
+        return entries == list;
+    }
+
+    /**
+     * @param entry what to look for
+     * @return position of the entry or -1 if not indexed
+     */
+    synchronized int indexOf(@NonNull EntryItem entry) {
+        return entries.indexOf(entry);
+    }
+
+    /**
+     * Add the code points of the text to the entry postings
+     *
+     * @param position position of the entry in the list
+     * @param text     searchable text of the entry
+     */
+    synchronized void add(int position, @NonNull StringNormalizer.Result text) {
+        for (int codePoint : text.lowerCodePoints) {
+            BitSet bitSet = postings.get(codePoint);
+            if (bitSet == null) {
+                bitSet = new BitSet(entries.size());
+                postings.put(codePoint, bitSet);
+            }
+            bitSet.set(position);
+        }
+    }
+
+    /**
+     * Remove the entry from all postings
+     *
+     * @param position position of the entry in the list
+     */
+    synchronized void remove(int position) {
+        for (int i = 0; i < postings.size(); i += 1)
+            postings.valueAt(i).clear(position);
+    }
+
+    /**
+     * Find all entries that contain every character of the query.
+     *
+     * @param query normalized query
+     * @return entries that may match the query, in list order
+     */
+    @NonNull
+    synchronized List<T> getCandidates(@NonNull StringNormalizer.Result query) {
+        BitSet result = null;
+        for (int codePoint : query.lowerCodePoints) {
+            BitSet bitSet = postings.get(codePoint);
+            if (bitSet == null)
+                return Collections.emptyList();
+            if (result == null) {
+                result = (BitSet) bitSet.clone();
+            } else {
+                result.and(bitSet);
+            }
+            if (result.isEmpty())
+                return Collections.emptyList();
+        }
+        if (result == null)
+            return entries;
+
+        ArrayList<T> candidates = new ArrayList<>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1))
+            candidates.add(entries.get(i));
+        return candidates;
+    }
+}
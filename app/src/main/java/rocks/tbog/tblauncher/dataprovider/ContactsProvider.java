@@ -1,26 +1,39 @@
 package rocks.tbog.tblauncher.dataprovider;
 
 import android.database.ContentObserver;
+import android.os.Handler;
+import android.os.Looper;
 import android.provider.ContactsContract;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
 import rocks.tbog.tblauncher.Permission;
 import rocks.tbog.tblauncher.entry.ContactEntry;
 import rocks.tbog.tblauncher.loader.LoadContactsEntry;
 import rocks.tbog.tblauncher.normalizer.PhoneNormalizer;
 import rocks.tbog.tblauncher.normalizer.StringNormalizer;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.searcher.Searcher;
 import rocks.tbog.tblauncher.utils.FuzzyScore;
 
 public class ContactsProvider extends Provider<ContactEntry> {
     private final static String TAG = "ContactsProvider";
+    // sync adapters change the contacts in bursts, wait for them to finish
+    private final static long SYNC_DELAY_MS = 3000;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mSyncChanges = this::syncChanges;
+    // the time of the last contact change we know about
+    private long mSyncTime = 0;
     private final ContentObserver cObserver = new ContentObserver(null) {
 
         @Override
         public void onChange(boolean selfChange) {
-            //reload contacts
-            Log.i(TAG, "Contacts changed, reloading provider.");
-            reload(true);
+            Log.i(TAG, "Contacts changed, sync scheduled.");
+            mHandler.removeCallbacks(mSyncChanges);
+            mHandler.postDelayed(mSyncChanges, SYNC_DELAY_MS);
         }
     };
 
@@ -30,6 +43,27 @@ public class ContactsProvider extends Provider<ContactEntry> {
             this.initialize(new LoadContactsEntry(this));
     }
 
+    /**
+     * Load only the contacts that changed after the last sync
+     */
+    private void syncChanges() {
+        if (isLoading()) {
+            // try again after the current load
+            mHandler.postDelayed(mSyncChanges, SYNC_DELAY_MS);
+            return;
+        }
+        if (!isLoaded()) {
+            reload(true);
+            return;
+        }
+        Log.i(TAG, "Contacts changed, loading changes.");
+        initialize(new LoadContactsEntry(this, new ArrayList<>(pojos), mSyncTime));
+    }
+
+    public void setSyncTime(long syncTime) {
+        mSyncTime = syncTime;
+    }
+
     @Override
     public void onCreate() {
         super.onCreate();
@@ -53,10 +87,26 @@ public class ContactsProvider extends Provider<ContactEntry> {
         super.onDestroy();
         //deregister content observer
         getContentResolver().unregisterContentObserver(cObserver);
+        mHandler.removeCallbacks(mSyncChanges);
+    }
+
+    @Override
+    public boolean mayRefine(@NonNull String previousQuery, @NonNull String query) {
+        // phone numbers are only checked for queries longer than 2 characters
+        return StringNormalizer.normalizeWithResult(previousQuery, false).length() > 2;
     }
 
     @Override
-    public void requestResults(String query, Searcher searcher) {
+    void addToIndex(@NonNull CodePointIndex<ContactEntry> index, int position, @NonNull ContactEntry entry) {
+        super.addToIndex(index, position, entry);
+        if (entry.normalizedNickname != null)
+            index.add(position, entry.normalizedNickname);
+        if (entry.normalizedPhone != null)
+            index.add(position, entry.normalizedPhone);
+    }
+
+    @Override
+    protected void requestResults(String query, Searcher searcher, Iterable<ContactEntry> entries) {
         StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
 
         if (queryNormalized.codePoints.length == 0) {
@@ -65,35 +115,32 @@ public class ContactsProvider extends Provider<ContactEntry> {
 
         FuzzyScore fuzzyScore = new FuzzyScore(queryNormalized.codePoints);
         FuzzyScore.MatchInfo matchInfo;
-        boolean match;
+        ScoredHit hit;
 
-        for (ContactEntry pojo : pojos) {
-            matchInfo = fuzzyScore.match(pojo.normalizedName.codePoints);
-            match = matchInfo.match;
-            pojo.setRelevance(pojo.normalizedName, matchInfo);
+        for (ContactEntry pojo : entries) {
+            matchInfo = fuzzyScore.match(pojo.normalizedName);
+            hit = matchInfo.match ? ScoredHit.of(pojo, pojo.normalizedName, matchInfo) : null;
 
             if (pojo.normalizedNickname != null) {
-                matchInfo = fuzzyScore.match(pojo.normalizedNickname.codePoints);
-                if (matchInfo.match && (!match || matchInfo.score > pojo.getRelevance())) {
-                    match = true;
-                    pojo.setRelevance(pojo.normalizedNickname, matchInfo);
+                matchInfo = fuzzyScore.match(pojo.normalizedNickname);
+                if (matchInfo.match && (hit == null || matchInfo.score > hit.score)) {
+                    hit = ScoredHit.of(pojo, pojo.normalizedNickname, matchInfo);
                 }
             }
 
-            if (!match && queryNormalized.length() > 2) {
+            if (hit == null && queryNormalized.length() > 2) {
                 // search for the phone number
-                matchInfo = fuzzyScore.match(pojo.normalizedPhone.codePoints);
-                match = matchInfo.match;
-                pojo.setRelevance(pojo.normalizedPhone, matchInfo);
+                matchInfo = fuzzyScore.match(pojo.normalizedPhone);
+                if (matchInfo.match)
+                    hit = ScoredHit.of(pojo, pojo.normalizedPhone, matchInfo);
             }
 
-            if (match) {
+            if (hit != null) {
                 int boost = Math.min(30, pojo.timesContacted);
                 if (pojo.starred) {
                     boost += 40;
                 }
-                pojo.boostRelevance(boost);
-                if (!searcher.addResult(pojo))
+                if (!searcher.addResult(hit.withBoost(boost)))
                     return;
             }
         }
@@ -22,7 +22,9 @@ import rocks.tbog.tblauncher.searcher.Searcher;
 
 public abstract class DBProvider<T extends EntryItem> implements IProvider<T> {
     final Context context;
-    protected List<T> entryList = new ArrayList<>();
+    // never edited in place, see setEntryList
+    protected volatile List<T> entryList = new ArrayList<>();
+    private volatile IdIndex<T> idIndex = null;
 
     private boolean mIsLoaded = false;
     private DBLoader<T> mLoadTask = null;
@@ -88,12 +90,18 @@ public abstract class DBProvider<T extends EntryItem> implements IProvider<T> {
      */
     @Override
     public T findById(@NonNull String id) {
-        for (T entryItem : entryList) {
-            if (entryItem.id.equals(id)) {
-                return entryItem;
-            }
-        }
-        return null;
+        IdIndex<T> ids = IdIndex.of(idIndex, entryList);
+        idIndex = ids;
+        return ids.get(id);
+    }
+
+    /**
+     * Replace the entries. Build a new list instead of changing {@link #entryList}, the id index
+     * and the searches may be reading the current one.
+     */
+    protected void setEntryList(@NonNull List<T> list) {
+        idIndex = null;
+        entryList = list;
     }
 
     @Override
@@ -137,6 +145,7 @@ public abstract class DBProvider<T extends EntryItem> implements IProvider<T> {
                 return;
 
             // get the result
+            provider.idIndex = new IdIndex<>(entryItems);
             provider.entryList = entryItems;
 
             // mark the provider as loaded
@@ -0,0 +1,215 @@
+package rocks.tbog.tblauncher.dataprovider;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import rocks.tbog.tblauncher.entry.EntryItem;
+import rocks.tbog.tblauncher.entry.EntryWithTags;
+import rocks.tbog.tblauncher.normalizer.StringNormalizer;
+
+/**
+ * The entries of a provider from the last load, with the normalized names and tags. After a cold
+ * start the provider searches these until the loader is done.
+ */
+class EntrySnapshot<T extends EntryItem> {
+    private static final String TAG = "EntrySnapshot";
+    private static final String FOLDER = "snapshots";
+    private static final int MAGIC = 0x54425345;
+    private static final int FORMAT = 1;
+    // write the files one at a time, in the background
+    private static final ExecutorService WRITER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "EntrySnapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * What the provider needs to create the entry again, besides the id, name and tags
+     */
+    interface Codec<T extends EntryItem> {
+        /**
+         * @return false if the entry can't be created from a snapshot
+         */
+        boolean canWrite(@NonNull T entry);
+
+        void write(@NonNull DataOutputStream out, @NonNull T entry) throws IOException;
+
+        @Nullable
+        T read(@NonNull DataInputStream in, @NonNull String id) throws IOException;
+    }
+
+    @NonNull
+    private final File file;
+    @NonNull
+    private final Codec<T> codec;
+
+    EntrySnapshot(@NonNull Context context, @NonNull String name, @NonNull Codec<T> codec) {
+        this.file = new File(new File(context.getCacheDir(), FOLDER), name);
+        this.codec = codec;
+    }
+
+    /**
+     * Map the file in memory and create the entries
+     *
+     * @return null if there is no valid snapshot
+     */
+    @WorkerThread
+    @Nullable
+    ArrayList<T> read() {
+        if (!file.isFile())
+            return null;
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            DataInputStream in = new DataInputStream(new BufferInputStream(buffer));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT)
+                return null;
+            int count = in.readInt();
+            ArrayList<T> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i += 1) {
+                String id = in.readUTF();
+                T entry = codec.read(in, id);
+                String name = in.readUTF();
+                StringNormalizer.Result normalizedName = in.readBoolean() ? StringNormalizer.Result.readFrom(in) : null;
+                int tagCount = in.readInt();
+                ArrayList<EntryWithTags.TagDetails> tags = new ArrayList<>(tagCount);
+                for (int t = 0; t < tagCount; t += 1) {
+                    String tagName = in.readUTF();
+                    tags.add(new EntryWithTags.TagDetails(tagName, StringNormalizer.Result.readFrom(in)));
+                }
+                if (entry == null)
+                    continue;
+                entry.setName(name, false);
+                entry.normalizedName = normalizedName;
+                if (entry instanceof EntryWithTags)
+                    ((EntryWithTags) entry).getTags().addAll(tags);
+                entries.add(entry);
+            }
+            return entries;
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "read " + file, e);
+        }
+        return null;
+    }
+
+    /**
+     * What we write of an entry, copied on the thread that owns the entry. The name and tags may
+     * change while the writer is busy.
+     */
+    private static class Row<T> {
+        @NonNull
+        final T entry;
+        @NonNull
+        final String name;
+        @Nullable
+        final StringNormalizer.Result normalizedName;
+        @NonNull
+        final ArrayList<EntryWithTags.TagDetails> tags;
+
+        Row(@NonNull T entry, @NonNull String name, @Nullable StringNormalizer.Result normalizedName,
+            @NonNull ArrayList<EntryWithTags.TagDetails> tags) {
+            this.entry = entry;
+            this.name = name;
+            this.normalizedName = normalizedName;
+            this.tags = tags;
+        }
+    }
+
+    /**
+     * Write the entries in the background. Call this from the thread that changes the entries.
+     */
+    void write(@NonNull List<T> entries) {
+        final ArrayList<Row<T>> rows = new ArrayList<>(entries.size());
+        for (T entry : entries) {
+            if (!codec.canWrite(entry))
+                continue;
+            ArrayList<EntryWithTags.TagDetails> tags = entry instanceof EntryWithTags
+                    ? new ArrayList<>(((EntryWithTags) entry).getTags())
+                    : new ArrayList<>(0);
+            rows.add(new Row<>(entry, entry.getName(), entry.normalizedName, tags));
+        }
+        WRITER.execute(() -> writeNow(rows));
+    }
+
+    @WorkerThread
+    private void writeNow(@NonNull List<Row<T>> rows) {
+        File folder = file.getParentFile();
+        if (folder != null && !folder.isDirectory() && !folder.mkdirs())
+            return;
+        // write to a temporary file, the next start must never see half a snapshot
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeInt(rows.size());
+            for (Row<T> row : rows) {
+                out.writeUTF(row.entry.id);
+                codec.write(out, row.entry);
+                out.writeUTF(row.name);
+                out.writeBoolean(row.normalizedName != null);
+                if (row.normalizedName != null)
+                    row.normalizedName.writeTo(out);
+                out.writeInt(row.tags.size());
+                for (EntryWithTags.TagDetails tag : row.tags) {
+                    out.writeUTF(tag.name);
+                    tag.normalized.writeTo(out);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // the previous snapshot, if any, is kept
+            Log.e(TAG, "snapshot not written, " + file, e);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "rename " + tmp);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Read a mapped file without copying it
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferInputStream(@NonNull ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? (buffer.get() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(@NonNull byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining())
+                return -1;
+            int count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package rocks.tbog.tblauncher.dataprovider;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+import java.util.List;
+
+import rocks.tbog.tblauncher.entry.EntryItem;
+
+/**
+ * Map from id to entry, built from an entry list.
+ * <p>
+ * The index is valid as long as it was built from the same list with the same size. This only
+ * holds if the list is never edited in place: {@link DBProvider} replaces its list with a new
+ * one on every change and {@link StaticProvider} only appends while it's constructed.
+ */
+class IdIndex<T extends EntryItem> {
+    @NonNull
+    private final List<T> entries;
+    private final int size;
+    private final HashMap<String, T> byId;
+
+    IdIndex(@NonNull List<T> entries) {
+        this.entries = entries;
+        this.size = entries.size();
+        byId = new HashMap<>(size * 4 / 3 + 1);
+        for (T entry : entries) {
+            // keep the first entry, like the linear search did
+            if (!byId.containsKey(entry.id))
+                byId.put(entry.id, entry);
+        }
+    }
+
+    /**
+     * @param list entry list
+     * @return true if this index was built from the list and the list did not grow since
+     */
+    boolean isIndexOf(@NonNull List<T> list) {
+        return entries == list && size == list.size();
+    }
+
+    @Nullable
+    T get(@NonNull String id) {
+        return byId.get(id);
+    }
+
+    /**
+     * Get a valid index for the list
+     *
+     * @param index the last index built, may be null
+     * @param list  entry list
+     * @return the same index if still valid or a new one
+     */
+    @NonNull
+    static <T extends EntryItem> IdIndex<T> of(@Nullable IdIndex<T> index, @NonNull List<T> list) {
+        if (index != null && index.isIndexOf(list))
+            return index;
+        return new IdIndex<>(list);
+    }
+}
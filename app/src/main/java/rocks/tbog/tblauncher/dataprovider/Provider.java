@@ -7,10 +7,13 @@ import android.os.IBinder;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import rocks.tbog.tblauncher.BuildConfig;
 import rocks.tbog.tblauncher.DataHandler;
@@ -18,6 +21,9 @@ import rocks.tbog.tblauncher.TBApplication;
 import rocks.tbog.tblauncher.TBLauncherActivity;
 import rocks.tbog.tblauncher.entry.EntryItem;
 import rocks.tbog.tblauncher.loader.LoadEntryItem;
+import rocks.tbog.tblauncher.normalizer.StringNormalizer;
+import rocks.tbog.tblauncher.searcher.Searcher;
+import rocks.tbog.tblauncher.utils.Utilities;
 
 public abstract class Provider<T extends EntryItem> extends Service implements IProvider<T> {
     final static String TAG = "Provider";
@@ -30,7 +36,25 @@ public abstract class Provider<T extends EntryItem> extends Service implements I
      * Storage for search items used by this provider
      */
     List<T> pojos = new ArrayList<>();
+    /**
+     * Index of the searchable text in `pojos`, built when needed
+     */
+    private CodePointIndex<T> index = null;
+    /**
+     * Index of the ids in `pojos`
+     */
+    private volatile IdIndex<T> idIndex = null;
     private boolean loaded = false;
+    /**
+     * `pojos` has the entries the loader published so far
+     */
+    private boolean partial = false;
+    /**
+     * `pojos` has the entries from the snapshot of the last load
+     */
+    private boolean fromSnapshot = false;
+    @Nullable
+    private EntrySnapshot<T> snapshot = null;
     private LoadEntryItem<T> loader = null;
     /**
      * Scheme used to build ids for the pojos created by this provider
@@ -49,9 +73,45 @@ public abstract class Provider<T extends EntryItem> extends Service implements I
         super.onCreate();
 
         TBApplication.dataHandler(this).onProviderRecreated(this);
+        loadSnapshot();
         this.reload(true);
     }
 
+    /**
+     * Override to keep a snapshot of the entries, searched after a cold start while the loader
+     * is running
+     *
+     * @return how to write and read an entry or null if the provider has no snapshot
+     */
+    @Nullable
+    EntrySnapshot.Codec<T> getSnapshotCodec() {
+        return null;
+    }
+
+    private void loadSnapshot() {
+        EntrySnapshot.Codec<T> codec = getSnapshotCodec();
+        if (codec == null)
+            return;
+        final EntrySnapshot<T> entrySnapshot = new EntrySnapshot<>(this, getClass().getSimpleName(), codec);
+        final AtomicReference<ArrayList<T>> entries = new AtomicReference<>(null);
+        final long start = System.currentTimeMillis();
+        snapshot = entrySnapshot;
+        Utilities.runAsync(task -> entries.set(entrySnapshot.read()), task -> {
+            ArrayList<T> list = entries.get();
+            // the loader may be faster
+            if (list == null || loaded || !pojos.isEmpty())
+                return;
+            this.idIndex = null;
+            this.pojos = list;
+            this.partial = true;
+            this.fromSnapshot = true;
+            long time = System.currentTimeMillis() - start;
+            Log.i(TAG, "Time to read snapshot of " + this.getClass().getSimpleName() + ": " + time + "ms");
+
+            TBApplication.dataHandler(this).onSearchDataChanged();
+        });
+    }
+
     protected boolean isLoading() {
         return loader != null;
     }
@@ -61,6 +121,12 @@ public abstract class Provider<T extends EntryItem> extends Service implements I
 
         if (this.loader != null)
             this.loader.cancel(false);
+        if (partial && !fromSnapshot) {
+            // the new loader will publish the entries again
+            this.idIndex = null;
+            this.pojos = new ArrayList<>();
+            this.partial = false;
+        }
 
         Log.i(TAG, "Starting provider: " + this.getClass().getSimpleName());
 
@@ -101,15 +167,145 @@ public abstract class Provider<T extends EntryItem> extends Service implements I
         Log.i(TAG, "Time to load " + this.getClass().getSimpleName() + ": " + time + "ms");
 
         // Store results
+        this.idIndex = new IdIndex<>(results);
         this.pojos = results;
         this.loaded = true;
+        this.partial = false;
+        this.fromSnapshot = false;
         this.loader = null;
 
+        if (snapshot != null)
+            snapshot.write(results);
+
+        // Previous search results may reference the old entries
+        TBApplication.dataHandler(this).onSearchDataChanged();
+
         // Broadcast this event
         Intent i = new Intent(TBLauncherActivity.LOAD_OVER);
         this.sendBroadcast(i);
     }
 
+    /**
+     * Add the entries the loader found so far, so the search can find them before the load is
+     * over. Only used when there are no entries from a previous load or snapshot.
+     *
+     * @param entries the entries found since the last call
+     */
+    public void loadPartial(@NonNull List<T> entries) {
+        if (loaded || fromSnapshot || (!partial && !pojos.isEmpty()))
+            return;
+        // the search may be using the old list, make a new one
+        ArrayList<T> list = new ArrayList<>(pojos.size() + entries.size());
+        list.addAll(pojos);
+        list.addAll(entries);
+        this.idIndex = null;
+        this.pojos = list;
+        this.partial = true;
+
+        TBApplication.dataHandler(this).onSearchDataChanged();
+    }
+
+    /**
+     * @return true if the provider is still loading and some entries can already be searched
+     */
+    public boolean hasPartialResults() {
+        return partial && !loaded;
+    }
+
+    @WorkerThread
+    @Override
+    public void requestResults(String query, Searcher searcher) {
+        StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
+        // only check the entries that have all the characters from the query
+        requestResults(query, searcher, getIndex().getCandidates(queryNormalized));
+    }
+
+    /**
+     * Get the index for the current entry list, (re)build it if needed
+     */
+    @NonNull
+    private synchronized CodePointIndex<T> getIndex() {
+        List<T> entries = pojos;
+        if (index == null || !index.isIndexOf(entries)) {
+            long start = System.currentTimeMillis();
+            index = new CodePointIndex<>(entries);
+            for (int position = 0; position < entries.size(); position += 1)
+                addToIndex(index, position, entries.get(position));
+            long time = System.currentTimeMillis() - start;
+            Log.v(TAG, "Time to index " + entries.size() + " entries of " + this.getClass().getSimpleName() + ": " + time + "ms");
+        }
+        return index;
+    }
+
+    /**
+     * Add all the searchable text of the entry to the index
+     *
+     * @param index    where to add
+     * @param position position of the entry in the list
+     * @param entry    what to add
+     */
+    void addToIndex(@NonNull CodePointIndex<T> index, int position, @NonNull T entry) {
+        if (entry.normalizedName != null)
+            index.add(position, entry.normalizedName);
+    }
+
+    /**
+     * Update the index after the searchable text (name, tags) of the entry changed
+     *
+     * @param entry the entry that changed
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void onEntryChanged(@NonNull EntryItem entry) {
+        if (index == null)
+            return;
+        int position = index.indexOf(entry);
+        if (position < 0)
+            return;
+        index.remove(position);
+        addToIndex(index, position, (T) entry);
+    }
+
+    /**
+     * Post search results for the given query string to the searcher, checking only the entries
+     * from the candidate list that belong to this provider
+     *
+     * @param query      Some string query (usually provided by an user)
+     * @param searcher   The receiver of results
+     * @param candidates Entries that matched the previous query
+     */
+    @WorkerThread
+    @SuppressWarnings("unchecked")
+    public void refineResults(String query, Searcher searcher, List<? extends EntryItem> candidates) {
+        ArrayList<T> entries = new ArrayList<>();
+        for (EntryItem entry : candidates) {
+            if (mayFindById(entry.id))
+                entries.add((T) entry);
+        }
+        requestResults(query, searcher, entries);
+    }
+
+    /**
+     * Tells whether the entries that matched the previous query are the only ones that may
+     * match the new query. The new query is assumed to start with the previous one.
+     *
+     * @param previousQuery query the candidates matched
+     * @param query         new query that extends the previous one
+     * @return true if {@link #refineResults} can be used
+     */
+    public boolean mayRefine(@NonNull String previousQuery, @NonNull String query) {
+        return true;
+    }
+
+    /**
+     * Check the given entries and post the ones that match to the searcher
+     *
+     * @param query    Some string query (usually provided by an user)
+     * @param searcher The receiver of results
+     * @param entries  What entries to check
+     */
+    @WorkerThread
+    protected abstract void requestResults(String query, Searcher searcher, Iterable<T> entries);
+
     @NonNull
     public String getScheme() {
         return pojoScheme;
@@ -134,12 +330,9 @@ public abstract class Provider<T extends EntryItem> extends Service implements I
      * @return null if not found
      */
     public T findById(@NonNull String id) {
-        for (T pojo : pojos) {
-            if (pojo.id.equals(id)) {
-                return pojo;
-            }
-        }
-        return null;
+        IdIndex<T> ids = IdIndex.of(idIndex, pojos);
+        idIndex = ids;
+        return ids.get(id);
     }
 
     @Override
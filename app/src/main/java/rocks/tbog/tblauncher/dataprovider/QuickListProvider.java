@@ -3,7 +3,6 @@ package rocks.tbog.tblauncher.dataprovider;
 import android.content.Context;
 
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 
 import rocks.tbog.tblauncher.DataHandler;
@@ -20,18 +19,25 @@ public class QuickListProvider extends DBProvider<EntryItem> {
 
     @Override
     public List<EntryItem> getPojos() {
+        List<EntryItem> list = entryList;
+        ArrayList<EntryItem> resolved = new ArrayList<>(list.size());
         ArrayList<EntryItem> toAdd = new ArrayList<>();
         DataHandler dataHandler = TBApplication.dataHandler(context);
-        for (Iterator<EntryItem> iterator = entryList.iterator(); iterator.hasNext(); ) {
-            EntryItem entryItem = iterator.next();
+        boolean changed = false;
+        for (EntryItem entryItem : list) {
             if (entryItem instanceof PlaceholderEntry) {
+                changed = true;
                 entryItem = dataHandler.getPojo(entryItem.id);
                 if (entryItem != null)
                     toAdd.add(entryItem);
-                iterator.remove();
+            } else {
+                resolved.add(entryItem);
             }
         }
-        entryList.addAll(toAdd);
+        if (changed) {
+            resolved.addAll(toAdd);
+            setEntryList(resolved);
+        }
         return super.getPojos();
     }
 
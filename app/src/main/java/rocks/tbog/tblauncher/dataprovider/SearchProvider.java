@@ -22,6 +22,7 @@ import rocks.tbog.tblauncher.entry.SearchEngineEntry;
 import rocks.tbog.tblauncher.entry.SearchEntry;
 import rocks.tbog.tblauncher.entry.UrlEntry;
 import rocks.tbog.tblauncher.normalizer.StringNormalizer;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.searcher.Searcher;
 import rocks.tbog.tblauncher.utils.FuzzyScore;
 
@@ -110,12 +111,12 @@ public class SearchProvider extends SimpleProvider<SearchEntry> {
 
     @Override
     public void requestResults(String s, Searcher searcher) {
-        searcher.addResult(getResults(s).toArray(new SearchEntry[0]));
+        searcher.addResult(getResults(s));
     }
 
     @NonNull
-    private ArrayList<SearchEntry> getResults(String query) {
-        ArrayList<SearchEntry> records = new ArrayList<>();
+    private ArrayList<ScoredHit> getResults(String query) {
+        ArrayList<ScoredHit> records = new ArrayList<>();
         StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
 
         if (queryNormalized.codePoints.length == 0) {
@@ -126,15 +127,13 @@ public class SearchProvider extends SimpleProvider<SearchEntry> {
             // Get default search engine
             String defaultSearchEngine = prefs.getString("default-search-provider", "Google");
             for (SearchEngineEntry entry : searchEngines) {
-                entry.setQuery(query);
-                entry.setRelevance(entry.normalizedName, null);
                 // Super low relevance, should never be displayed before anything
-                entry.boostRelevance(-500);
+                int relevance = -500;
                 if (entry.getName().equals(defaultSearchEngine))
                     // Display default search engine slightly higher
-                    entry.boostRelevance(100);
+                    relevance += 100;
 
-                records.add(entry);
+                records.add(ScoredHit.of(entry.forQuery(query), relevance));
             }
         }
 
@@ -150,9 +149,8 @@ public class SearchProvider extends SimpleProvider<SearchEntry> {
                 if (URLUtil.isValidUrl(guessedUrl)) {
                     SearchEntry pojo = new UrlEntry(query, guessedUrl);
                     pojo.setName(guessedUrl);
-                    FuzzyScore.MatchInfo matchInfo = fuzzyScore.match(pojo.normalizedName.codePoints);
-                    pojo.setRelevance(pojo.normalizedName, matchInfo);
-                    records.add(pojo);
+                    FuzzyScore.MatchInfo matchInfo = fuzzyScore.match(pojo.normalizedName);
+                    records.add(matchInfo.match ? ScoredHit.of(pojo, pojo.normalizedName, matchInfo) : ScoredHit.of(pojo, 0));
                 }
             }
         }
@@ -16,8 +16,12 @@ import android.util.Log;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.List;
 
 import rocks.tbog.tblauncher.R;
@@ -28,6 +32,7 @@ import rocks.tbog.tblauncher.entry.EntryWithTags;
 import rocks.tbog.tblauncher.entry.ShortcutEntry;
 import rocks.tbog.tblauncher.loader.LoadShortcutsEntryItem;
 import rocks.tbog.tblauncher.normalizer.StringNormalizer;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.searcher.Searcher;
 import rocks.tbog.tblauncher.shortcut.ShortcutUtil;
 import rocks.tbog.tblauncher.utils.FuzzyScore;
@@ -210,8 +215,49 @@ public class ShortcutsProvider extends Provider<ShortcutEntry> {
         }
     }
 
+    @Nullable
     @Override
-    public void requestResults(String query, Searcher searcher) {
+    EntrySnapshot.Codec<ShortcutEntry> getSnapshotCodec() {
+        return new EntrySnapshot.Codec<ShortcutEntry>() {
+            @Override
+            public boolean canWrite(@NonNull ShortcutEntry entry) {
+                // the ShortcutInfo can't be saved, Oreo shortcuts wait for the loader
+                return !entry.isOreoShortcut();
+            }
+
+            @Override
+            public void write(@NonNull DataOutputStream out, @NonNull ShortcutEntry entry) throws IOException {
+                out.writeLong(entry.getDbId());
+                out.writeUTF(entry.packageName);
+                out.writeUTF(entry.shortcutData);
+                out.writeBoolean(entry.hasCustomIcon());
+            }
+
+            @Nullable
+            @Override
+            public ShortcutEntry read(@NonNull DataInputStream in, @NonNull String id) throws IOException {
+                long dbId = in.readLong();
+                String packageName = in.readUTF();
+                String shortcutData = in.readUTF();
+                boolean customIcon = in.readBoolean();
+
+                ShortcutEntry shortcut = new ShortcutEntry(id, dbId, packageName, shortcutData);
+                if (customIcon)
+                    shortcut.setCustomIcon();
+                return shortcut;
+            }
+        };
+    }
+
+    @Override
+    void addToIndex(@NonNull CodePointIndex<ShortcutEntry> index, int position, @NonNull ShortcutEntry entry) {
+        super.addToIndex(index, position, entry);
+        for (EntryWithTags.TagDetails tag : entry.getTags())
+            index.add(position, tag.normalized);
+    }
+
+    @Override
+    protected void requestResults(String query, Searcher searcher, Iterable<ShortcutEntry> entries) {
         StringNormalizer.Result queryNormalized = StringNormalizer.normalizeWithResult(query, false);
 
         if (queryNormalized.codePoints.length == 0) {
@@ -220,25 +266,23 @@ public class ShortcutsProvider extends Provider<ShortcutEntry> {
 
         FuzzyScore fuzzyScore = new FuzzyScore(queryNormalized.codePoints);
         FuzzyScore.MatchInfo matchInfo;
-        boolean match;
+        ScoredHit hit;
 
-        for (ShortcutEntry pojo : pojos) {
-            matchInfo = fuzzyScore.match(pojo.normalizedName.codePoints);
-            match = matchInfo.match;
-            pojo.setRelevance(pojo.normalizedName, matchInfo);
+        for (ShortcutEntry pojo : entries) {
+            matchInfo = fuzzyScore.match(pojo.normalizedName);
+            hit = matchInfo.match ? ScoredHit.of(pojo, pojo.normalizedName, matchInfo) : null;
 
             if (searcher.tagsEnabled()) {
                 // check relevance for tags
                 for (EntryWithTags.TagDetails tag : pojo.getTags()) {
-                    matchInfo = fuzzyScore.match(tag.normalized.codePoints);
-                    if (matchInfo.match && (!match || matchInfo.score > pojo.getRelevance())) {
-                        match = true;
-                        pojo.setRelevance(tag.normalized, matchInfo);
+                    matchInfo = fuzzyScore.match(tag.normalized);
+                    if (matchInfo.match && (hit == null || matchInfo.score > hit.score)) {
+                        hit = ScoredHit.of(pojo, tag.normalized, matchInfo);
                     }
                 }
             }
 
-            if (match && !searcher.addResult(pojo)) {
+            if (hit != null && !searcher.addResult(hit)) {
                 return;
             }
         }
@@ -12,6 +12,8 @@ import rocks.tbog.tblauncher.searcher.Searcher;
 public abstract class StaticProvider<T extends EntryItem> implements IProvider<T> {
     @NonNull
     final List<T> pojos;
+    // subclasses fill the list after the constructor, build the index when needed
+    private volatile IdIndex<T> idIndex = null;
 
     StaticProvider(@NonNull List<T> list) {
         pojos = list;
@@ -41,12 +43,9 @@ public abstract class StaticProvider<T extends EntryItem> implements IProvider<T
 
     @Override
     public T findById(@NonNull String id) {
-        for (T pojo : pojos) {
-            if (pojo.id.equals(id)) {
-                return pojo;
-            }
-        }
-        return null;
+        IdIndex<T> ids = IdIndex.of(idIndex, pojos);
+        idIndex = ids;
+        return ids.get(id);
     }
 
     @Override
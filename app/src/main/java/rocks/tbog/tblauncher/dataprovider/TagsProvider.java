@@ -58,8 +58,12 @@ public class TagsProvider extends DBProvider<TagEntry> {
     }
 
     public void addTagEntry(TagEntry tagEntry) {
-        if (null == findById(tagEntry.id))
-            entryList.add(tagEntry);
+        if (null != findById(tagEntry.id))
+            return;
+        ArrayList<TagEntry> list = new ArrayList<>(entryList.size() + 1);
+        list.addAll(entryList);
+        list.add(tagEntry);
+        setEntryList(list);
     }
 
     private static class FavLoader extends DBProvider.DBLoader<TagEntry> {
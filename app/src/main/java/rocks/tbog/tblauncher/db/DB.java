@@ -11,10 +11,12 @@ import rocks.tbog.tblauncher.entry.FilterEntry;
 class DB extends SQLiteOpenHelper {
 
     private final static String DB_NAME = "kiss.s3db";
-    private final static int DB_VERSION = 12;
+    private final static int DB_VERSION = 13;
+    private final Context context;
 
     DB(Context context) {
         super(context, DB_NAME, null, DB_VERSION);
+        this.context = context.getApplicationContext();
     }
 
     @Override
@@ -41,16 +43,16 @@ class DB extends SQLiteOpenHelper {
     }
 
     private void addAppsTable(SQLiteDatabase db) {
-        db.execSQL("CREATE TABLE \"apps\" ( _id INTEGER PRIMARY KEY AUTOINCREMENT, display_name TEXT NOT NULL DEFAULT '', component_name TEXT NOT NULL UNIQUE, custom_flags INTEGER DEFAULT 0, custom_icon BLOB DEFAULT NULL )");
+        db.execSQL("CREATE TABLE \"apps\" ( _id INTEGER PRIMARY KEY AUTOINCREMENT, display_name TEXT NOT NULL DEFAULT '', component_name TEXT NOT NULL UNIQUE, custom_flags INTEGER DEFAULT 0, custom_icon TEXT DEFAULT NULL )");
         db.execSQL("CREATE INDEX \"index_component\" ON \"apps\"(component_name);");
     }
 
     private void createShortcutsTable(SQLiteDatabase db) {
-        db.execSQL("CREATE TABLE \"shortcuts\" ( _id INTEGER PRIMARY KEY AUTOINCREMENT, \"name\" TEXT NOT NULL, \"package\" TEXT, \"info_data\" TEXT, \"icon_png\" BLOB, \"custom_flags\" INTEGER DEFAULT 0)");
+        db.execSQL("CREATE TABLE \"shortcuts\" ( _id INTEGER PRIMARY KEY AUTOINCREMENT, \"name\" TEXT NOT NULL, \"package\" TEXT, \"info_data\" TEXT, \"icon_png\" TEXT, \"custom_flags\" INTEGER DEFAULT 0)");
     }
 
     void createFavoritesTable(SQLiteDatabase db, boolean generateDefaults) {
-        db.execSQL("CREATE TABLE \"favorites\" ( \"record\" TEXT NOT NULL UNIQUE, \"position\" TEXT NOT NULL, \"custom_flags\" INTEGER DEFAULT 0, \"name\" TEXT DEFAULT NULL, \"custom_icon\" BLOB DEFAULT NULL )");
+        db.execSQL("CREATE TABLE \"favorites\" ( \"record\" TEXT NOT NULL UNIQUE, \"position\" TEXT NOT NULL, \"custom_flags\" INTEGER DEFAULT 0, \"name\" TEXT DEFAULT NULL, \"custom_icon\" TEXT DEFAULT NULL )");
 
         if (!generateDefaults)
             return;
@@ -135,6 +137,11 @@ class DB extends SQLiteOpenHelper {
                         database.endTransaction();
                         database.execSQL("PRAGMA foreign_keys=on");
                     }
+                    // fall through
+                case 12:
+                    // the icon columns now have the name of the icon file
+                    IconFileStore.moveBlobsToFiles(context, database);
+                    // fall through
                 default:
                     break;
             }
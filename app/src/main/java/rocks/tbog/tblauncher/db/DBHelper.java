@@ -4,6 +4,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
+import android.graphics.Bitmap;
 import android.database.sqlite.SQLiteStatement;
 import android.text.TextUtils;
 import android.util.Log;
@@ -11,15 +12,16 @@ import android.util.Pair;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 
-import rocks.tbog.tblauncher.utils.PrefCache;
 import rocks.tbog.tblauncher.entry.AppEntry;
 import rocks.tbog.tblauncher.entry.EntryItem;
 import rocks.tbog.tblauncher.entry.ShortcutEntry;
@@ -33,6 +35,8 @@ public class DBHelper {
     private static final String[] TABLE_COLUMNS_FAVORITES = new String[]{"record", "position", "custom_flags", "name"};//, "custom_icon"};
     private static final String[] TABLE_COLUMNS_SHORTCUTS = new String[]{"_id", "name", "package", "info_data", "icon_png", "custom_flags"};
     private static final String[] TABLE_COLUMNS_SHORTCUTS_NO_ICON = new String[]{"_id", "name", "package", "info_data", "custom_flags"};
+    // SQLite allows 999 arguments in a statement
+    private static final int IDS_PER_DELETE = 500;
 
     private DBHelper() {
     }
@@ -44,55 +48,43 @@ public class DBHelper {
         return database.getReadableDatabase();
     }
 
-    private static ArrayList<ValuedHistoryRecord> readCursor(Cursor cursor) {
-        cursor.moveToFirst();
-
-        ArrayList<ValuedHistoryRecord> records = new ArrayList<>(cursor.getCount());
-        while (!cursor.isAfterLast()) {
-            ValuedHistoryRecord entry = new ValuedHistoryRecord();
-
-            entry.record = cursor.getString(0);
-            entry.value = cursor.getLong(1);
-
-            records.add(entry);
-            cursor.moveToNext();
-        }
-        cursor.close();
-
-        return records;
-    }
-
     /**
      * Insert new item into history
      *
-     * @param context android context
-     * @param query   query to insert
-     * @param record  record to insert
+     * @param context   android context
+     * @param query     query to insert
+     * @param record    record to insert
+     * @param timeStamp when the record was launched
+     * @return the row id or -1 if the insert failed
      */
-    public static void insertHistory(Context context, String query, String record) {
+    static long insertHistory(Context context, String query, String record, long timeStamp) {
         SQLiteDatabase db = getDatabase(context);
         ContentValues values = new ContentValues();
         values.put("query", query);
         values.put("record", record);
-        values.put("timeStamp", System.currentTimeMillis());
+        values.put("timeStamp", timeStamp);
         long rowId = db.insert("history", null, values);
-        Log.d(TAG, "insertHistory rowId " + rowId);
+        if (rowId == -1)
+            Log.e(TAG, "insertHistory failed for " + record);
+        return rowId;
+    }
 
-        if (Math.random() <= 0.005) {
-            // Roughly every 200 inserts, clean up the history of items older than 3 months
-            long monthsAgo = 7776000000L; // 1000 * 60 * 60 * 24 * 30 * 3;
-            db.delete("history", "timeStamp < ?", new String[]{Long.toString(System.currentTimeMillis() - monthsAgo)});
-            // And vacuum the DB for speed
-            db.execSQL("VACUUM");
-        }
+    /**
+     * Clean up the history of items older than the time stamp
+     */
+    static void removeHistoryOlderThan(Context context, long timeStamp) {
+        SQLiteDatabase db = getDatabase(context);
+        db.delete("history", "timeStamp < ?", new String[]{Long.toString(timeStamp)});
+        // And vacuum the DB for speed
+        db.execSQL("VACUUM");
     }
 
-    public static void removeFromHistory(Context context, String record) {
+    static void removeFromHistory(Context context, String record) {
         SQLiteDatabase db = getDatabase(context);
         db.delete("history", "record = ?", new String[]{record});
     }
 
-    public static void clearHistory(Context context) {
+    static void clearHistory(Context context) {
         SQLiteDatabase db = getDatabase(context);
         db.delete("history", "", null);
     }
@@ -117,59 +109,6 @@ public class DBHelper {
         }
     }
 
-    private static Cursor getHistoryByFrecency(SQLiteDatabase db, int limit) {
-        // Since smart history sql uses a group by we don't use the whole history but a limit of recent apps
-        int historyWindowSize = limit * 30;
-
-        // order history based on frequency * recency
-        // frequency = #launches_for_app / #all_launches
-        // recency = 1 / position_of_app_in_normal_history
-        String sql = "SELECT record, count(*) FROM " +
-                " (" +
-                "   SELECT * FROM history ORDER BY _id DESC " +
-                "   LIMIT " + historyWindowSize + "" +
-                " ) small_history " +
-                " GROUP BY record " +
-                " ORDER BY " +
-                "   count(*) * 1.0 / (select count(*) from history LIMIT " + historyWindowSize + ") / ((SELECT _id FROM history ORDER BY _id DESC LIMIT 1) - max(_id) + 0.001) " +
-                " DESC " +
-                " LIMIT " + limit;
-        return db.rawQuery(sql, null);
-    }
-
-    private static Cursor getHistoryByFrequency(SQLiteDatabase db, int limit) {
-        // order history based on frequency
-        String sql = "SELECT record, count(*) FROM history" +
-                " GROUP BY record " +
-                " ORDER BY count(*) DESC " +
-                " LIMIT " + limit;
-        return db.rawQuery(sql, null);
-    }
-
-    private static Cursor getHistoryByRecency(SQLiteDatabase db, int limit) {
-        return db.query(true, "history", new String[]{"record", "1"}, null, null,
-                null, null, "_id DESC", Integer.toString(limit));
-    }
-
-    /**
-     * Get the most used history items adaptively based on a set period of time
-     *
-     * @param db    The SQL db
-     * @param hours How many hours back we want to test frequency against
-     * @param limit Maximum result size
-     * @return Cursor
-     */
-    private static Cursor getHistoryByAdaptive(SQLiteDatabase db, int hours, int limit) {
-        // order history based on frequency
-        String sql = "SELECT record, count(*) FROM history " +
-                "WHERE timeStamp >= 0 " +
-                "AND timeStamp >" + (System.currentTimeMillis() - (hours * 3600000)) +
-                " GROUP BY record " +
-                " ORDER BY count(*) DESC " +
-                " LIMIT " + limit;
-        return db.rawQuery(sql, null);
-    }
-
     @NonNull
     static ArrayList<ValuedHistoryRecord> getHistoryRaw(@NonNull Context context) {
         SQLiteDatabase db = getDatabase(context);
@@ -191,93 +130,28 @@ public class DBHelper {
         return records;
     }
 
-    public enum HistoryMode {
-        RECENCY,
-        FRECENCY,
-        FREQUENCY,
-        ADAPTIVE,
-    }
-
     /**
-     * Retrieve previous query history
-     *
-     * @param context android context
-     * @param limit   max number of items to retrieve
-     * @return records with number of use
+     * @return all the launches, with the row id as the sequence
      */
-    @NonNull
-    public static List<ValuedHistoryRecord> getHistory(Context context, int limit, HistoryMode historyMode) {
-        List<ValuedHistoryRecord> records = null;
-
+    static ArrayList<HistoryModel.Launch> getHistoryLaunches(@NonNull Context context) {
         SQLiteDatabase db = getDatabase(context);
 
-        Cursor cursor = null;
-        switch (historyMode) {
-            case FRECENCY:
-                cursor = getHistoryByFrecency(db, limit);
-                break;
-            case FREQUENCY:
-                cursor = getHistoryByFrequency(db, limit);
-                break;
-            case ADAPTIVE:
-                cursor = getHistoryByAdaptive(db, PrefCache.getHistoryAdaptive(context), limit);
-                break;
-            case RECENCY:
-                cursor = getHistoryByRecency(db, limit);
-                break;
-        }
-        if (cursor != null) {
-            records = readCursor(cursor);
-            cursor.close();
-        }
-        if (records == null)
-            records = Collections.emptyList();
+        ArrayList<HistoryModel.Launch> launches;
+        try (Cursor cursor = db.query("history", new String[]{"_id", "record", "query", "timeStamp"}, null, null, null, null, "\"_id\" ASC")) {
 
-        return records;
-    }
-
-
-    /**
-     * Retrieve history size
-     *
-     * @param context android context
-     * @return total number of use for the application
-     */
-    public static int getHistoryLength(Context context) {
-        SQLiteDatabase db = getDatabase(context);
-
-        // Cursor query (boolean distinct, String table, String[] columns,
-        // String selection, String[] selectionArgs, String groupBy, String
-        // having, String orderBy, String limit)
-        Cursor cursor = db.query(false, "history", new String[]{"COUNT(*)"}, null, null,
-                null, null, null, null);
-
-        cursor.moveToFirst();
-        int historyLength = cursor.getInt(0);
-        cursor.close();
-        return historyLength;
+            launches = new ArrayList<>(cursor.getCount());
+            while (cursor.moveToNext())
+                launches.add(new HistoryModel.Launch(cursor.getLong(0), cursor.getString(1), cursor.getString(2), cursor.getLong(3)));
+        }
+        return launches;
     }
 
-    /**
-     * Retrieve previously selected items for the query
-     *
-     * @param context android context
-     * @param query   query to run
-     * @return records with number of use
-     */
-    public static ArrayList<ValuedHistoryRecord> getPreviousResultsForQuery(Context context,
-                                                                            String query) {
-        ArrayList<ValuedHistoryRecord> records;
-        SQLiteDatabase db = getDatabase(context);
-
-        // Cursor query (String table, String[] columns, String selection,
-        // String[] selectionArgs, String groupBy, String having, String
-        // orderBy)
-        Cursor cursor = db.query("history", new String[]{"record", "COUNT(*) AS count"},
-                "query LIKE ?", new String[]{query + "%"}, "record", null, "COUNT(*) DESC", "10");
-        records = readCursor(cursor);
-        cursor.close();
-        return records;
+    public enum HistoryMode {
+        RECENCY,
+        FRECENCY,
+        FREQUENCY,
+        ADAPTIVE,
+        DECAY,
     }
 
     public static boolean insertApp(Context context, AppEntry entry) {
@@ -305,21 +179,29 @@ public class DBHelper {
         values.put("name", shortcut.displayName);
         values.put("package", shortcut.packageName);
         values.put("info_data", shortcut.infoData);
-        values.put("icon_png", shortcut.iconPng);
         values.put("custom_flags", shortcut.getFlagsDB());
 
-        db.insert("shortcuts", null, values);
+        synchronized (IconFileStore.LOCK) {
+            values.put("icon_png", IconFileStore.store(context, shortcut.iconPng));
+            db.insert("shortcuts", null, values);
+        }
         return true;
     }
 
     public static void removeShortcut(@NonNull Context context, @NonNull ShortcutEntry shortcut) {
         SQLiteDatabase db = getDatabase(context);
-        db.delete("shortcuts", "package = ? AND info_data = ?", new String[]{shortcut.packageName, shortcut.shortcutData});
+        String selection = "package = ? AND info_data = ?";
+        String[] selectionArgs = {shortcut.packageName, shortcut.shortcutData};
+        HashSet<String> iconNames = IconFileStore.getNames(db, "shortcuts", "icon_png", selection, selectionArgs);
+        db.delete("shortcuts", selection, selectionArgs);
+        IconFileStore.removeIfUnused(context, db, iconNames);
     }
 
     public static void removeShortcut(@NonNull Context context, long dbId) {
         SQLiteDatabase db = getDatabase(context);
+        String iconName = getShortcutIconName(context, dbId);
         db.delete("shortcuts", "_id=?", new String[]{String.valueOf(dbId)});
+        IconFileStore.removeIfUnused(context, db, iconName);
     }
 
     public static void renameShortcut(@NonNull Context context, @NonNull ShortcutEntry shortcut, String newName) {
@@ -400,20 +282,34 @@ public class DBHelper {
         return records;
     }
 
+    /**
+     * @return the name of the icon file, see {@link IconFileStore#decode}
+     */
     @Nullable
-    public static byte[] getShortcutIcon(@NonNull Context context, long dbId) {
+    public static String getShortcutIconName(@NonNull Context context, long dbId) {
         SQLiteDatabase db = getDatabase(context);
-
-        Cursor cursor = db.query("shortcuts", new String[]{"icon_png"},
+        try (Cursor cursor = db.query("shortcuts", new String[]{"icon_png"},
                 "_id = ?", new String[]{Long.toString(dbId)},
-                null, null, null);
+                null, null, null)) {
+            if (cursor.moveToNext())
+                return IconFileStore.getName(cursor, 0);
+        }
+        return null;
+    }
 
-        byte[] iconBlob = null;
-        if (cursor.moveToNext()) {
-            iconBlob = cursor.getBlob(0);
+    /**
+     * @return the icon the shortcut had when it was pinned
+     */
+    @Nullable
+    public static Bitmap getShortcutIcon(@NonNull Context context, long dbId) {
+        SQLiteDatabase db = getDatabase(context);
+        try (Cursor cursor = db.query("shortcuts", new String[]{"icon_png"},
+                "_id = ?", new String[]{Long.toString(dbId)},
+                null, null, null)) {
+            if (cursor.moveToNext())
+                return IconFileStore.decode(context, cursor, 0);
         }
-        cursor.close();
-        return iconBlob;
+        return null;
     }
 
     /**
@@ -423,14 +319,19 @@ public class DBHelper {
         SQLiteDatabase db = getDatabase(context);
 
         // remove shortcuts
-        db.delete("shortcuts", "package = ?", new String[]{packageName});
+        String[] selectionArgs = {packageName};
+        HashSet<String> iconNames = IconFileStore.getNames(db, "shortcuts", "icon_png", "package = ?", selectionArgs);
+        db.delete("shortcuts", "package = ?", selectionArgs);
+        IconFileStore.removeIfUnused(context, db, iconNames);
     }
 
     public static void removeAllShortcuts(Context context) {
         SQLiteDatabase db = getDatabase(context);
+        HashSet<String> iconNames = IconFileStore.getNames(db, "shortcuts", "icon_png", null, null);
         // delete whole table
         db.delete("shortcuts", null, null);
         //db.execSQL("vacuum"); //https://www.sqlitetutorial.net/sqlite-vacuum/
+        IconFileStore.removeIfUnused(context, db, iconNames);
     }
 
     /**
@@ -590,24 +491,24 @@ public class DBHelper {
         return records;
     }
 
+    /**
+     * Move the icons the upgrade could not write to files and remove the icon files no row
+     * references, call it once at startup
+     */
+    @WorkerThread
+    public static void removeUnusedIconFiles(Context context) {
+        SQLiteDatabase db = getDatabase(context);
+        synchronized (IconFileStore.LOCK) {
+            IconFileStore.moveBlobsToFiles(context, db);
+        }
+        IconFileStore.removeUnused(context, db);
+    }
+
     public static void insertOrUpdateApps(Context context, ArrayList<AppRecord> appRecords) {
         SQLiteDatabase db = getDatabase(context);
         db.beginTransaction();
-        ContentValues values = new ContentValues();
         try {
-            for (AppRecord app : appRecords) {
-                values.put("display_name", app.displayName);
-                values.put("component_name", app.componentName);
-                values.put("custom_flags", app.getFlagsDB());
-                if (app.dbId == -1) {
-                    // insert
-                    db.insertWithOnConflict("apps", null, values, SQLiteDatabase.CONFLICT_IGNORE);
-                } else {
-                    // update
-                    db.updateWithOnConflict("apps", values, "_id=" + app.dbId, null, SQLiteDatabase.CONFLICT_IGNORE);
-                }
-            }
-
+            insertOrUpdateApps(db, appRecords);
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
@@ -616,13 +517,63 @@ public class DBHelper {
 
     public static void deleteApps(Context context, ArrayList<AppRecord> appRecords) {
         SQLiteDatabase db = getDatabase(context);
-        String[] list = new String[appRecords.size()];
-        for (int i = 0; i < appRecords.size(); i++) {
-            AppRecord rec = appRecords.get(i);
-            list[i] = String.valueOf(rec.dbId);
+        HashSet<String> iconNames = deleteApps(db, appRecords);
+        IconFileStore.removeIfUnused(context, db, iconNames);
+    }
+
+    /**
+     * Write all the changes found by loading the app list in one transaction
+     *
+     * @param changed apps to insert or update
+     * @param removed apps no longer installed
+     */
+    public static void updateApps(Context context, ArrayList<AppRecord> changed, ArrayList<AppRecord> removed) {
+        SQLiteDatabase db = getDatabase(context);
+        HashSet<String> iconNames;
+        db.beginTransaction();
+        try {
+            insertOrUpdateApps(db, changed);
+            iconNames = deleteApps(db, removed);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+        IconFileStore.removeIfUnused(context, db, iconNames);
+    }
+
+    private static void insertOrUpdateApps(SQLiteDatabase db, ArrayList<AppRecord> appRecords) {
+        ContentValues values = new ContentValues();
+        for (AppRecord app : appRecords) {
+            values.put("display_name", app.displayName);
+            values.put("component_name", app.componentName);
+            values.put("custom_flags", app.getFlagsDB());
+            if (app.dbId == -1) {
+                // insert
+                db.insertWithOnConflict("apps", null, values, SQLiteDatabase.CONFLICT_IGNORE);
+            } else {
+                // update
+                db.updateWithOnConflict("apps", values, "_id=" + app.dbId, null, SQLiteDatabase.CONFLICT_IGNORE);
+            }
+        }
+    }
+
+    /**
+     * @return the names of the icon files the removed apps had
+     */
+    private static HashSet<String> deleteApps(SQLiteDatabase db, ArrayList<AppRecord> appRecords) {
+        HashSet<String> iconNames = new HashSet<>();
+        for (int from = 0; from < appRecords.size(); from += IDS_PER_DELETE) {
+            int to = Math.min(appRecords.size(), from + IDS_PER_DELETE);
+            String[] list = new String[to - from];
+            for (int i = from; i < to; i++) {
+                AppRecord rec = appRecords.get(i);
+                list[i - from] = String.valueOf(rec.dbId);
+            }
+            String whereClause = String.format("_id IN (%s)", TextUtils.join(",", Collections.nCopies(list.length, "?")));
+            iconNames.addAll(IconFileStore.getNames(db, "apps", "custom_icon", whereClause, list));
+            db.delete("apps", whereClause, list);
         }
-        String whereClause = String.format("_id IN (%s)", TextUtils.join(",", Collections.nCopies(list.length, "?")));
-        db.delete("apps", whereClause, list);
+        return iconNames;
     }
 
     public static void setCustomAppName(Context context, String componentName, String newName) {
@@ -742,46 +693,61 @@ public class DBHelper {
 
     public static AppRecord setCustomAppIcon(Context context, String componentName, byte[] icon) {
         SQLiteDatabase db = getDatabase(context);
-        String sql = "UPDATE apps SET custom_flags=custom_flags|?, custom_icon=? WHERE component_name=?";
-        try {
-            SQLiteStatement statement = db.compileStatement(sql);
-            statement.bindLong(1, AppRecord.FLAG_CUSTOM_ICON);
-            statement.bindBlob(2, icon);
-            statement.bindString(3, componentName);
-            int count = statement.executeUpdateDelete();
-            if (count != 1) {
-                Log.e(TAG, "Update icon; count = " + count);
+        String oldIconName = getCustomAppIconName(context, componentName);
+        synchronized (IconFileStore.LOCK) {
+            String iconName = IconFileStore.store(context, icon);
+            if (iconName == null)
+                return getAppRecord(db, componentName);
+            String sql = "UPDATE apps SET custom_flags=custom_flags|?, custom_icon=? WHERE component_name=?";
+            try {
+                SQLiteStatement statement = db.compileStatement(sql);
+                statement.bindLong(1, AppRecord.FLAG_CUSTOM_ICON);
+                statement.bindString(2, iconName);
+                statement.bindString(3, componentName);
+                int count = statement.executeUpdateDelete();
+                if (count != 1) {
+                    Log.e(TAG, "Update icon; count = " + count);
+                }
+                statement.close();
+            } catch (Exception e) {
+                Log.e(TAG, "Insert or Update custom app name", e);
             }
-            statement.close();
-        } catch (Exception e) {
-            Log.e(TAG, "Insert or Update custom app name", e);
         }
+        IconFileStore.removeIfUnused(context, db, oldIconName);
 
         return getAppRecord(db, componentName);
     }
 
     public static void setCustomStaticEntryIcon(Context context, String entryId, byte[] icon) {
         SQLiteDatabase db = getDatabase(context);
-        String sql = "UPDATE favorites SET custom_flags=custom_flags|?, custom_icon=? WHERE record=?";
-        try {
-            SQLiteStatement statement = db.compileStatement(sql);
-            statement.bindLong(1, FavRecord.FLAG_CUSTOM_ICON);
-            statement.bindBlob(2, icon);
-            statement.bindString(3, entryId);
-            int count = statement.executeUpdateDelete();
-            if (count != 1) {
-                Log.e(TAG, "Update icon; count = " + count);
+        String oldIconName = getCustomFavIconName(context, entryId);
+        synchronized (IconFileStore.LOCK) {
+            String iconName = IconFileStore.store(context, icon);
+            if (iconName == null)
+                return;
+            String sql = "UPDATE favorites SET custom_flags=custom_flags|?, custom_icon=? WHERE record=?";
+            try {
+                SQLiteStatement statement = db.compileStatement(sql);
+                statement.bindLong(1, FavRecord.FLAG_CUSTOM_ICON);
+                statement.bindString(2, iconName);
+                statement.bindString(3, entryId);
+                int count = statement.executeUpdateDelete();
+                if (count != 1) {
+                    Log.e(TAG, "Update icon; count = " + count);
+                }
+                statement.close();
+            } catch (Exception e) {
+                Log.e(TAG, "Insert or Update custom fav name", e);
             }
-            statement.close();
-        } catch (Exception e) {
-            Log.e(TAG, "Insert or Update custom fav name", e);
         }
+        IconFileStore.removeIfUnused(context, db, oldIconName);
 
         //return getAppRecord(db, componentName);
     }
 
     public static AppRecord removeCustomAppIcon(Context context, String componentName) {
         SQLiteDatabase db = getDatabase(context);
+        String oldIconName = getCustomAppIconName(context, componentName);
         String sql = "UPDATE apps SET custom_flags=custom_flags&~?, custom_icon=NULL WHERE component_name=?";
         try {
             SQLiteStatement statement = db.compileStatement(sql);
@@ -795,12 +761,14 @@ public class DBHelper {
         } catch (Exception e) {
             Log.e(TAG, "Insert or Update custom app name", e);
         }
+        IconFileStore.removeIfUnused(context, db, oldIconName);
 
         return getAppRecord(db, componentName);
     }
 
     public static void removeCustomStaticEntryIcon(Context context, String entryId) {
         SQLiteDatabase db = getDatabase(context);
+        String oldIconName = getCustomFavIconName(context, entryId);
         String sql = "UPDATE favorites SET custom_flags=custom_flags&~?, custom_icon=NULL WHERE record=?";
         try {
             SQLiteStatement statement = db.compileStatement(sql);
@@ -814,6 +782,7 @@ public class DBHelper {
         } catch (Exception e) {
             Log.e(TAG, "Insert or Update custom app name", e);
         }
+        IconFileStore.removeIfUnused(context, db, oldIconName);
 
         //return getFavRecord(db, entryId);
     }
@@ -837,32 +806,88 @@ public class DBHelper {
         //return getFavRecord(db, entryId);
     }
 
+    /**
+     * @return the name of the icon file, see {@link IconFileStore#decode}
+     */
     @Nullable
-    public static byte[] getCustomAppIcon(Context context, String componentName) {
+    public static String getCustomAppIconName(Context context, String componentName) {
         SQLiteDatabase db = getDatabase(context);
         String[] selArgs = new String[]{componentName};
         try (Cursor cursor = db.query("apps", TABLE_APPS_CUSTOM_ICON,
                 "component_name=?", selArgs, null, null, null)) {
             if (cursor.moveToNext()) {
-                return cursor.getBlob(0);
+                return IconFileStore.getName(cursor, 0);
             }
         }
         return null;
     }
 
+    /**
+     * @return the name of the icon file, see {@link IconFileStore#decode}
+     */
     @Nullable
-    public static byte[] getCustomFavIcon(Context context, String record) {
+    public static String getCustomFavIconName(Context context, String record) {
         SQLiteDatabase db = getDatabase(context);
         String[] selArgs = new String[]{record};
         try (Cursor cursor = db.query("favorites", TABLE_FAVORITES_CUSTOM_ICON,
                 "record=?", selArgs, null, null, null)) {
             if (cursor.moveToNext()) {
-                return cursor.getBlob(0);
+                return IconFileStore.getName(cursor, 0);
             }
         }
         return null;
     }
 
+    @Nullable
+    public static Bitmap getCustomAppIconBitmap(Context context, String componentName) {
+        SQLiteDatabase db = getDatabase(context);
+        try (Cursor cursor = db.query("apps", TABLE_APPS_CUSTOM_ICON,
+                "component_name=?", new String[]{componentName}, null, null, null)) {
+            if (cursor.moveToNext())
+                return IconFileStore.decode(context, cursor, 0);
+        }
+        return null;
+    }
+
+    @Nullable
+    public static Bitmap getCustomFavIconBitmap(Context context, String record) {
+        SQLiteDatabase db = getDatabase(context);
+        try (Cursor cursor = db.query("favorites", TABLE_FAVORITES_CUSTOM_ICON,
+                "record=?", new String[]{record}, null, null, null)) {
+            if (cursor.moveToNext())
+                return IconFileStore.decode(context, cursor, 0);
+        }
+        return null;
+    }
+
+    /**
+     * @return the PNG image of the custom icon, used for export
+     */
+    @Nullable
+    public static byte[] getCustomAppIcon(Context context, String componentName) {
+        SQLiteDatabase db = getDatabase(context);
+        try (Cursor cursor = db.query("apps", TABLE_APPS_CUSTOM_ICON,
+                "component_name=?", new String[]{componentName}, null, null, null)) {
+            if (cursor.moveToNext())
+                return IconFileStore.read(context, cursor, 0);
+        }
+        return null;
+    }
+
+    /**
+     * @return the PNG image of the custom icon, used for export
+     */
+    @Nullable
+    public static byte[] getCustomFavIcon(Context context, String record) {
+        SQLiteDatabase db = getDatabase(context);
+        try (Cursor cursor = db.query("favorites", TABLE_FAVORITES_CUSTOM_ICON,
+                "record=?", new String[]{record}, null, null, null)) {
+            if (cursor.moveToNext())
+                return IconFileStore.read(context, cursor, 0);
+        }
+        return null;
+    }
+
     public static void setFavorite(Context context, FavRecord fav) {
         SQLiteDatabase db = getDatabase(context);
 
@@ -883,35 +908,42 @@ public class DBHelper {
 
     public static void setFavorites(Context context, Collection<Pair<FavRecord, byte[]>> favRecords) {
         SQLiteDatabase db = getDatabase(context);
-        db.beginTransaction();
-        try {
-            db.execSQL("DROP TABLE IF EXISTS \"favorites\"");
-            database.createFavoritesTable(db, false);
-
-            ContentValues values = new ContentValues();
-            for (Pair<FavRecord, byte[]> pair : favRecords) {
-                FavRecord fav = pair.first;
-                byte[] icon = pair.second;
-                values.put("record", fav.record);
-                values.put("position", fav.position == null ? "" : fav.position);
-                values.put("custom_flags", fav.getFlagsDB());
-                values.put(TABLE_FAVORITES_CUSTOM_ICON[0], icon);
-                db.insertWithOnConflict("favorites", null, values, SQLiteDatabase.CONFLICT_REPLACE);
-            }
+        HashSet<String> oldIconNames;
+        synchronized (IconFileStore.LOCK) {
+            db.beginTransaction();
+            try {
+                oldIconNames = IconFileStore.getNames(db, "favorites", TABLE_FAVORITES_CUSTOM_ICON[0], null, null);
+                db.execSQL("DROP TABLE IF EXISTS \"favorites\"");
+                database.createFavoritesTable(db, false);
+
+                ContentValues values = new ContentValues();
+                for (Pair<FavRecord, byte[]> pair : favRecords) {
+                    FavRecord fav = pair.first;
+                    byte[] icon = pair.second;
+                    values.put("record", fav.record);
+                    values.put("position", fav.position == null ? "" : fav.position);
+                    values.put("custom_flags", fav.getFlagsDB());
+                    values.put(TABLE_FAVORITES_CUSTOM_ICON[0], IconFileStore.store(context, icon));
+                    db.insertWithOnConflict("favorites", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+                }
 
-            db.setTransactionSuccessful();
-        } finally {
-            db.endTransaction();
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
         }
+        IconFileStore.removeIfUnused(context, db, oldIconNames);
     }
 
     public static boolean removeFavorite(Context context, String record) {
         SQLiteDatabase db = getDatabase(context);
+        String iconName = getCustomFavIconName(context, record);
 
         if (0 == db.delete("favorites", "record=?", new String[]{record})) {
             Log.e(TAG, "removeFavorite " + record);
             return false;
         }
+        IconFileStore.removeIfUnused(context, db, iconName);
         return true;
     }
 
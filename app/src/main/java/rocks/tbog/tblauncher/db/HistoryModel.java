@@ -0,0 +1,514 @@
+package rocks.tbog.tblauncher.db;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import rocks.tbog.tblauncher.utils.PrefCache;
+
+/**
+ * In-memory copy of the history table. It's loaded once and updated when an entry is launched,
+ * all {@link DBHelper.HistoryMode} are answered without querying the database.
+ * Each record also keeps an exponentially decayed launch score for {@link DBHelper.HistoryMode#DECAY}.
+ * Changes are written to the database in the background, in the order they were made. The table
+ * is read by the same thread, so the load sees all the changes made before it was started.
+ */
+public class HistoryModel {
+    private static final String TAG = "HistoryModel";
+    // history older than 3 months is removed
+    private static final long MAX_AGE = 7776000000L; // 1000 * 60 * 60 * 24 * 30 * 3;
+    private static final double LN2 = Math.log(2.0);
+    private static final ExecutorService DB_WRITER = Executors.newSingleThreadExecutor();
+
+    private final Context context;
+    private boolean mLoaded = false;
+    private boolean mLoading = false;
+    // incremented when a load in progress is no longer valid
+    private int mGeneration = 0;
+    // launches added while loading, not written to the database before the load started
+    private final ArrayList<Launch> mPending = new ArrayList<>(0);
+    // all launches, oldest first
+    private final ArrayList<Launch> mLaunches = new ArrayList<>();
+    private final HashMap<String, RecordStats> mStats = new HashMap<>();
+    // records ordered by decayed score, most relevant first
+    private final TreeSet<RecordStats> mByDecay = new TreeSet<>(BY_DECAY);
+    // queries that launched the records
+    private final QueryTrie mQueries = new QueryTrie();
+    // the launch sequence is the row id in the history table, the database chooses it when the
+    // launch is written; until then we use the next id we expect
+    private long mNextSequence = 1;
+    // half-life used for the decay keys, in milliseconds, 0 until needed
+    private long mHalfLife = 0;
+
+    static class Launch {
+        // row id, -1 until known
+        long sequence;
+        @NonNull
+        final String record;
+        final String query;
+        final long timeStamp;
+
+        Launch(long sequence, @NonNull String record, String query, long timeStamp) {
+            this.sequence = sequence;
+            this.record = record;
+            this.query = query;
+            this.timeStamp = timeStamp;
+        }
+    }
+
+    private static class RecordStats {
+        @NonNull
+        final String record;
+        int count = 0;
+        long lastSequence = 0;
+        long lastTimeStamp = 0;
+        /**
+         * log2 of the decayed score at time 0, in half-lives. Comparing this is the same as
+         * comparing the decayed scores at any time, so it never needs to be refreshed.
+         */
+        double decayKey = 0;
+
+        RecordStats(@NonNull String record) {
+            this.record = record;
+        }
+    }
+
+    // used while ranking records
+    private static class Rank {
+        @NonNull
+        final String record;
+        int count = 0;
+        long lastSequence = 0;
+        double score = 0;
+
+        Rank(@NonNull String record) {
+            this.record = record;
+        }
+    }
+
+    private static final Comparator<RecordStats> BY_DECAY = (lhs, rhs) -> {
+        int result = Double.compare(rhs.decayKey, lhs.decayKey);
+        if (result == 0)
+            result = lhs.record.compareTo(rhs.record);
+        return result;
+    };
+
+    private static final Comparator<Rank> BY_SCORE = (lhs, rhs) -> {
+        int result = Double.compare(rhs.score, lhs.score);
+        if (result == 0)
+            result = Long.compare(rhs.lastSequence, lhs.lastSequence);
+        return result;
+    };
+
+    public HistoryModel(@NonNull Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    /**
+     * Start loading the history in the background. Call this early, so the UI thread doesn't have
+     * to wait for it.
+     */
+    public synchronized void loadAsync() {
+        if (mLoaded || mLoading)
+            return;
+        mLoading = true;
+        final int generation = mGeneration;
+        DB_WRITER.execute(() -> load(generation));
+    }
+
+    @WorkerThread
+    private void load(int generation) {
+        long start = System.currentTimeMillis();
+        ArrayList<Launch> launches = DBHelper.getHistoryLaunches(context);
+        synchronized (this) {
+            if (generation != mGeneration) {
+                // changed while loading, a new load was started
+                return;
+            }
+            mLaunches.clear();
+            mLaunches.addAll(launches);
+            mNextSequence = launches.isEmpty() ? 1 : launches.get(launches.size() - 1).sequence + 1;
+            // the launches added meanwhile will be written after the load
+            for (Launch launch : mPending) {
+                launch.sequence = mNextSequence++;
+                mLaunches.add(launch);
+            }
+            mPending.clear();
+            mHalfLife = getHalfLife();
+            rebuildStats();
+            mLoading = false;
+            mLoaded = true;
+            notifyAll();
+
+            long time = System.currentTimeMillis() - start;
+            Log.i(TAG, "history with " + mLaunches.size() + " launches of " + mStats.size() + " records loaded in " + time + "ms");
+        }
+    }
+
+    /**
+     * Wait for the load, only call this from a synchronized method
+     */
+    private void ensureLoaded() {
+        while (!mLoaded) {
+            loadAsync();
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Log.e(TAG, "wait for history", e);
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Forget the loaded history and load it again after the changes already made
+     */
+    private void invalidate() {
+        mGeneration += 1;
+        mLoading = false;
+        mLoaded = false;
+        loadAsync();
+    }
+
+    @WorkerThread
+    private void writeLaunch(@NonNull Launch launch) {
+        synchronized (this) {
+            // written before the load started, the load will read it
+            mPending.remove(launch);
+        }
+        long rowId = DBHelper.insertHistory(context, launch.query, launch.record, launch.timeStamp);
+        if (rowId != -1)
+            onLaunchWritten(launch, rowId);
+    }
+
+    /**
+     * Use the row id the database chose as the sequence of the launch. The launches after it
+     * are not written yet, they get the ids that follow.
+     */
+    private synchronized void onLaunchWritten(@NonNull Launch launch, long rowId) {
+        if (launch.sequence == rowId || launch.sequence == -1)
+            return;
+        // the launches not written yet are at the end
+        int idx = mLaunches.size() - 1;
+        while (idx >= 0 && mLaunches.get(idx) != launch)
+            idx -= 1;
+        if (idx < 0) {
+            // not part of the loaded history anymore
+            launch.sequence = rowId;
+            return;
+        }
+        long sequence = rowId;
+        for (; idx < mLaunches.size(); idx += 1) {
+            Launch changed = mLaunches.get(idx);
+            RecordStats stats = mStats.get(changed.record);
+            if (stats != null && stats.lastSequence == changed.sequence)
+                stats.lastSequence = sequence;
+            changed.sequence = sequence++;
+        }
+        mNextSequence = sequence;
+    }
+
+    private void countLaunch(@NonNull Launch launch) {
+        if (launch.query != null)
+            mQueries.add(launch.query, launch.record);
+        RecordStats stats = mStats.get(launch.record);
+        if (stats == null) {
+            stats = new RecordStats(launch.record);
+            mStats.put(launch.record, stats);
+        } else {
+            mByDecay.remove(stats);
+        }
+        if (mHalfLife == 0)
+            mHalfLife = getHalfLife();
+        // score(t) = sum of 2^(-(t - launchTime) / halfLife) for all launches
+        double now = (double) launch.timeStamp / mHalfLife;
+        if (stats.count == 0)
+            stats.decayKey = now;
+        else
+            stats.decayKey = now + Math.log1p(Math.pow(2.0, stats.decayKey - now)) / LN2;
+        stats.count += 1;
+        stats.lastSequence = launch.sequence;
+        stats.lastTimeStamp = launch.timeStamp;
+        mByDecay.add(stats);
+    }
+
+    private void rebuildStats() {
+        mStats.clear();
+        mByDecay.clear();
+        mQueries.clear();
+        for (Launch launch : mLaunches)
+            countLaunch(launch);
+    }
+
+    private long getHalfLife() {
+        return Math.max(1, PrefCache.getHistoryHalfLife(context)) * 3600000L;
+    }
+
+    /**
+     * Insert new item into history. This doesn't wait for the history to load.
+     *
+     * @param query  query that found the record
+     * @param record record to insert
+     */
+    public synchronized void add(String query, @NonNull String record) {
+        final long timeStamp = System.currentTimeMillis();
+        final Launch launch;
+        if (mLoaded) {
+            launch = new Launch(mNextSequence++, record, query, timeStamp);
+            mLaunches.add(launch);
+            countLaunch(launch);
+        } else {
+            launch = new Launch(-1, record, query, timeStamp);
+            mPending.add(launch);
+            loadAsync();
+        }
+        DB_WRITER.execute(() -> writeLaunch(launch));
+
+        if (mLoaded && Math.random() <= 0.005) {
+            // Roughly every 200 inserts, clean up the history of items older than 3 months
+            final long oldest = timeStamp - MAX_AGE;
+            for (Iterator<Launch> iterator = mLaunches.iterator(); iterator.hasNext(); ) {
+                if (iterator.next().timeStamp < oldest)
+                    iterator.remove();
+            }
+            rebuildStats();
+            DB_WRITER.execute(() -> DBHelper.removeHistoryOlderThan(context, oldest));
+        }
+    }
+
+    public synchronized void remove(@NonNull String record) {
+        if (!mLoaded) {
+            for (Iterator<Launch> iterator = mPending.iterator(); iterator.hasNext(); ) {
+                if (record.equals(iterator.next().record))
+                    iterator.remove();
+            }
+            DB_WRITER.execute(() -> DBHelper.removeFromHistory(context, record));
+            // a load in progress may have read the record
+            invalidate();
+            return;
+        }
+        RecordStats stats = mStats.remove(record);
+        if (stats == null)
+            return;
+        mByDecay.remove(stats);
+        mQueries.remove(record);
+        for (Iterator<Launch> iterator = mLaunches.iterator(); iterator.hasNext(); ) {
+            if (record.equals(iterator.next().record))
+                iterator.remove();
+        }
+        DB_WRITER.execute(() -> DBHelper.removeFromHistory(context, record));
+    }
+
+    public synchronized void clear() {
+        mLaunches.clear();
+        mPending.clear();
+        mStats.clear();
+        mByDecay.clear();
+        mQueries.clear();
+        // a load in progress is no longer valid
+        mGeneration += 1;
+        mLoading = false;
+        mLoaded = true;
+        notifyAll();
+        DB_WRITER.execute(() -> DBHelper.clearHistory(context));
+    }
+
+    /**
+     * Forget the memory copy, call this after the history table was changed directly
+     */
+    public synchronized void reload() {
+        invalidate();
+    }
+
+    /**
+     * @return total number of launches
+     */
+    public synchronized int size() {
+        ensureLoaded();
+        return mLaunches.size();
+    }
+
+    /**
+     * Retrieve previously selected items for the query
+     *
+     * @param query start of the query, case insensitive
+     * @return records with number of use, most used first
+     */
+    @NonNull
+    public synchronized List<ValuedHistoryRecord> getPreviousResultsForQuery(@NonNull String query) {
+        ensureLoaded();
+        return mQueries.get(query, 10);
+    }
+
+    /**
+     * Retrieve the most relevant records
+     *
+     * @param limit       max number of items to retrieve
+     * @param historyMode how to order the records
+     * @return records with a mode dependant value, most relevant first
+     */
+    @NonNull
+    public synchronized List<ValuedHistoryRecord> getHistory(int limit, @NonNull DBHelper.HistoryMode historyMode) {
+        ensureLoaded();
+        if (limit <= 0 || mLaunches.isEmpty())
+            return Collections.emptyList();
+        switch (historyMode) {
+            case FRECENCY:
+                return getByFrecency(limit);
+            case FREQUENCY:
+                return getByFrequency(limit);
+            case ADAPTIVE:
+                return getByAdaptive(limit, PrefCache.getHistoryAdaptive(context));
+            case DECAY:
+                return getByDecay(limit);
+            case RECENCY:
+            default:
+                return getByRecency(limit);
+        }
+    }
+
+    /**
+     * The last launched distinct records
+     */
+    private List<ValuedHistoryRecord> getByRecency(int limit) {
+        ArrayList<ValuedHistoryRecord> records = new ArrayList<>(Math.min(limit, mStats.size()));
+        HashSet<String> seen = new HashSet<>();
+        for (int idx = mLaunches.size() - 1; idx >= 0 && records.size() < limit; idx -= 1) {
+            Launch launch = mLaunches.get(idx);
+            if (seen.add(launch.record))
+                records.add(newRecord(launch.record, 1));
+        }
+        return records;
+    }
+
+    /**
+     * Order records by launch count
+     */
+    private List<ValuedHistoryRecord> getByFrequency(int limit) {
+        ArrayList<Rank> ranks = new ArrayList<>(mStats.size());
+        for (RecordStats stats : mStats.values()) {
+            Rank rank = new Rank(stats.record);
+            rank.count = stats.count;
+            rank.lastSequence = stats.lastSequence;
+            rank.score = stats.count;
+            ranks.add(rank);
+        }
+        return toRecords(ranks, limit);
+    }
+
+    /**
+     * Order history based on frequency * recency, only for the recent launches
+     * frequency = #launches_for_app / #all_launches
+     * recency = 1 / position_of_app_in_normal_history
+     */
+    private List<ValuedHistoryRecord> getByFrecency(int limit) {
+        int historyWindowSize = limit * 30;
+        HashMap<String, Rank> window = countLaunches(historyWindowSize, Long.MIN_VALUE);
+        long lastSequence = mLaunches.get(mLaunches.size() - 1).sequence;
+        for (Rank rank : window.values())
+            rank.score = rank.count / (lastSequence - rank.lastSequence + 0.001);
+        return toRecords(window.values(), limit);
+    }
+
+    /**
+     * Get the most used history items adaptively based on a set period of time
+     *
+     * @param hours how many hours back we want to test frequency against
+     */
+    private List<ValuedHistoryRecord> getByAdaptive(int limit, int hours) {
+        long since = System.currentTimeMillis() - hours * 3600000L;
+        HashMap<String, Rank> window = countLaunches(Integer.MAX_VALUE, Math.max(0, since));
+        for (Rank rank : window.values())
+            rank.score = rank.count;
+        return toRecords(window.values(), limit);
+    }
+
+    /**
+     * Order records by the sum of their launches, each launch losing half its weight every half-life
+     */
+    private List<ValuedHistoryRecord> getByDecay(int limit) {
+        long halfLife = getHalfLife();
+        if (halfLife != mHalfLife) {
+            mHalfLife = halfLife;
+            rebuildStats();
+        }
+        ArrayList<ValuedHistoryRecord> records = new ArrayList<>(Math.min(limit, mByDecay.size()));
+        for (RecordStats stats : mByDecay) {
+            if (records.size() >= limit)
+                break;
+            records.add(newRecord(stats.record, stats.count));
+        }
+        return records;
+    }
+
+    /**
+     * Count launches from the most recent
+     *
+     * @param maxLaunches how many launches to count
+     * @param since       ignore launches older than this time stamp
+     */
+    private HashMap<String, Rank> countLaunches(int maxLaunches, long since) {
+        HashMap<String, Rank> window = new HashMap<>();
+        int end = Math.max(0, mLaunches.size() - maxLaunches);
+        for (int idx = mLaunches.size() - 1; idx >= end; idx -= 1) {
+            Launch launch = mLaunches.get(idx);
+            if (launch.timeStamp <= since)
+                continue;
+            Rank rank = window.get(launch.record);
+            if (rank == null) {
+                rank = new Rank(launch.record);
+                rank.lastSequence = launch.sequence;
+                window.put(launch.record, rank);
+            }
+            rank.count += 1;
+        }
+        return window;
+    }
+
+    private static List<ValuedHistoryRecord> toRecords(@NonNull Collection<Rank> ranks, int limit) {
+        ArrayList<Rank> sorted = new ArrayList<>(ranks);
+        Collections.sort(sorted, BY_SCORE);
+        int size = Math.min(limit, sorted.size());
+        ArrayList<ValuedHistoryRecord> records = new ArrayList<>(size);
+        for (int idx = 0; idx < size; idx += 1) {
+            Rank rank = sorted.get(idx);
+            records.add(newRecord(rank.record, rank.count));
+        }
+        return records;
+    }
+
+    private static ValuedHistoryRecord newRecord(@NonNull String record, long value) {
+        ValuedHistoryRecord rec = new ValuedHistoryRecord();
+        rec.record = record;
+        rec.value = value;
+        return rec;
+    }
+
+    /**
+     * Wait until all changes are written to the database
+     */
+    public static void flush() {
+        try {
+            DB_WRITER.submit(() -> {
+            }).get();
+        } catch (ExecutionException | InterruptedException e) {
+            Log.e(TAG, "flush history", e);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package rocks.tbog.tblauncher.db;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+
+/**
+ * Keep the custom icons and the shortcut icons as PNG files named after the hash of their
+ * content. The tables only store the file name, so the same image is written once and reading an
+ * icon does not keep a database cursor open.
+ * <p>
+ * An icon that could not be written to a file stays in its row as a BLOB until
+ * {@link #moveBlobsToFiles} succeeds, the readers accept both.
+ */
+public class IconFileStore {
+    private static final String TAG = "IconFileStore";
+    private static final String FOLDER = "icons";
+    private static final String EXTENSION = ".png";
+    // table, column and row key of each icon file reference
+    private static final String[][] ICON_COLUMNS = {
+            {"apps", "custom_icon", "_id"},
+            {"favorites", "custom_icon", "record"},
+            {"shortcuts", "icon_png", "_id"},
+    };
+    /**
+     * Hold this from {@link #store} until the row has the file name, a removal in between
+     * would find the new file unused
+     */
+    static final Object LOCK = new Object();
+
+    private IconFileStore() {
+        // this is a namespace
+    }
+
+    @NonNull
+    private static File getFolder(@NonNull Context context) {
+        return new File(context.getFilesDir(), FOLDER);
+    }
+
+    @Nullable
+    private static File getFile(@NonNull Context context, @Nullable String name) {
+        // the name comes from the database, make sure it's only a file name
+        if (name == null || name.isEmpty() || name.indexOf(File.separatorChar) != -1)
+            return null;
+        return new File(getFolder(context), name);
+    }
+
+    /**
+     * Write the image to a file, if no file has the same content
+     *
+     * @param png the image
+     * @return the file name to store in the database or null if the image could not be written
+     */
+    @Nullable
+    static String store(@NonNull Context context, @Nullable byte[] png) {
+        if (png == null || png.length == 0)
+            return null;
+        synchronized (LOCK) {
+            return storeLocked(context, png);
+        }
+    }
+
+    @Nullable
+    private static String storeLocked(@NonNull Context context, @NonNull byte[] png) {
+        String name;
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            name = toHex(digest.digest(png)) + EXTENSION;
+        } catch (NoSuchAlgorithmException e) {
+            Log.e(TAG, "hash", e);
+            return null;
+        }
+        File folder = getFolder(context);
+        File file = new File(folder, name);
+        if (file.isFile() && file.length() == png.length)
+            return name;
+        if (!folder.isDirectory() && !folder.mkdirs()) {
+            Log.e(TAG, "can't create " + folder);
+            return null;
+        }
+        // write to a temporary file, a reader must never see half an icon
+        File tmp = new File(folder, name + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(png);
+        } catch (IOException e) {
+            Log.e(TAG, "write " + tmp, e);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return null;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "rename " + tmp);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return null;
+        }
+        return name;
+    }
+
+    /**
+     * Decode the icon from the file descriptor, without reading the file in memory first
+     */
+    @Nullable
+    static Bitmap decode(@NonNull Context context, @Nullable String name) {
+        File file = getFile(context, name);
+        if (file == null || !file.isFile())
+            return null;
+        try (FileInputStream in = new FileInputStream(file)) {
+            return BitmapFactory.decodeFileDescriptor(in.getFD());
+        } catch (IOException e) {
+            Log.e(TAG, "decode " + file, e);
+        }
+        return null;
+    }
+
+    /**
+     * @return the file name from the icon column or null if the row has no icon file
+     */
+    @Nullable
+    static String getName(@NonNull Cursor cursor, int column) {
+        if (cursor.getType(column) != Cursor.FIELD_TYPE_STRING)
+            return null;
+        return cursor.getString(column);
+    }
+
+    /**
+     * Decode the icon of the row, from the file or from the PNG not moved to a file yet
+     */
+    @Nullable
+    static Bitmap decode(@NonNull Context context, @NonNull Cursor cursor, int column) {
+        if (cursor.getType(column) == Cursor.FIELD_TYPE_BLOB) {
+            byte[] png = cursor.getBlob(column);
+            return BitmapFactory.decodeByteArray(png, 0, png.length);
+        }
+        return decode(context, getName(cursor, column));
+    }
+
+    /**
+     * @return the PNG of the row, from the file or from the column
+     */
+    @Nullable
+    static byte[] read(@NonNull Context context, @NonNull Cursor cursor, int column) {
+        if (cursor.getType(column) == Cursor.FIELD_TYPE_BLOB)
+            return cursor.getBlob(column);
+        return read(context, getName(cursor, column));
+    }
+
+    /**
+     * @return the content of the icon file, used for export
+     */
+    @Nullable
+    static byte[] read(@NonNull Context context, @Nullable String name) {
+        File file = getFile(context, name);
+        if (file == null || !file.isFile())
+            return null;
+        byte[] data = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < data.length) {
+                int count = in.read(data, offset, data.length - offset);
+                if (count < 0)
+                    return null;
+                offset += count;
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "read " + file, e);
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * Get the file names referenced by some rows, call this before removing the rows
+     *
+     * @param selection which rows or null for all
+     * @return the file names
+     */
+    @NonNull
+    static HashSet<String> getNames(@NonNull SQLiteDatabase db, @NonNull String table, @NonNull String column,
+                                    @Nullable String selection, @Nullable String[] selectionArgs) {
+        String where = "typeof(" + column + ")='text'";
+        if (selection != null)
+            where += " AND (" + selection + ")";
+        HashSet<String> names = new HashSet<>();
+        try (Cursor cursor = db.query(true, table, new String[]{column}, where, selectionArgs,
+                null, null, null, null)) {
+            while (cursor.moveToNext())
+                names.add(cursor.getString(0));
+        }
+        return names;
+    }
+
+    /**
+     * Remove the file if no table references it anymore
+     */
+    static void removeIfUnused(@NonNull Context context, @NonNull SQLiteDatabase db, @Nullable String name) {
+        File file = getFile(context, name);
+        if (file == null)
+            return;
+        synchronized (LOCK) {
+            for (String[] column : ICON_COLUMNS) {
+                try (Cursor cursor = db.query(column[0], new String[]{column[1]}, column[1] + "=?",
+                        new String[]{name}, null, null, null, "1")) {
+                    if (cursor.moveToNext())
+                        return;
+                }
+            }
+            //noinspection ResultOfMethodCallIgnored
+            file.delete();
+        }
+    }
+
+    static void removeIfUnused(@NonNull Context context, @NonNull SQLiteDatabase db, @NonNull Collection<String> names) {
+        for (String name : names)
+            removeIfUnused(context, db, name);
+    }
+
+    /**
+     * Remove all the files not referenced by the tables. This lists the folder and reads all the
+     * tables, only call it once at startup.
+     */
+    static void removeUnused(@NonNull Context context, @NonNull SQLiteDatabase db) {
+        synchronized (LOCK) {
+            File[] list = getFolder(context).listFiles();
+            if (list == null || list.length == 0)
+                return;
+            HashSet<String> used = new HashSet<>();
+            for (String[] column : ICON_COLUMNS)
+                used.addAll(getNames(db, column[0], column[1], null, null));
+            for (File file : list)
+                if (!used.contains(file.getName()))
+                    //noinspection ResultOfMethodCallIgnored
+                    file.delete();
+        }
+    }
+
+    /**
+     * Move the icons stored in the rows to files. The rows are read one at a time, an icon can
+     * be too big for the cursor window if more are read. An icon that can't be written stays in
+     * its row, call this again later.
+     */
+    static void moveBlobsToFiles(@NonNull Context context, @NonNull SQLiteDatabase db) {
+        int moved = 0;
+        int failed = 0;
+        for (String[] iconColumn : ICON_COLUMNS) {
+            String table = iconColumn[0];
+            String column = iconColumn[1];
+            String key = iconColumn[2];
+            ArrayList<String> rows = new ArrayList<>();
+            try (Cursor cursor = db.query(table, new String[]{key}, "typeof(" + column + ")='blob'",
+                    null, null, null, null)) {
+                while (cursor.moveToNext())
+                    rows.add(cursor.getString(0));
+            }
+            for (String row : rows) {
+                byte[] png = null;
+                try (Cursor cursor = db.query(table, new String[]{column}, key + "=?",
+                        new String[]{row}, null, null, null)) {
+                    if (cursor.moveToNext())
+                        png = cursor.getBlob(0);
+                }
+                String name = store(context, png);
+                if (name == null && png != null && png.length > 0) {
+                    // never replace an icon we could not write
+                    Log.w(TAG, "can't move icon of " + table + " " + row + " to a file");
+                    failed += 1;
+                    continue;
+                }
+                ContentValues values = new ContentValues();
+                values.put(column, name);
+                db.update(table, values, key + "=?", new String[]{row});
+                moved += 1;
+            }
+        }
+        if (moved != 0 || failed != 0)
+            Log.i(TAG, "moved " + moved + " icon(s) to files, " + failed + " left in the database");
+    }
+
+    @NonNull
+    private static String toHex(@NonNull byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+            hex.append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
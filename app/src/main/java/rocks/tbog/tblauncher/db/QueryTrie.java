@@ -0,0 +1,108 @@
+package rocks.tbog.tblauncher.db;
+
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Prefix tree of the queries that launched a record. Each node counts the launches of all the
+ * queries that start with the node prefix, so a prefix lookup is a walk down the tree.
+ */
+class QueryTrie {
+    private final Node root = new Node();
+
+    private static class Node {
+        final SparseArray<Node> children = new SparseArray<>(1);
+        // record -> launch count for all queries going through this node
+        final HashMap<String, int[]> counts = new HashMap<>(1);
+
+        void increment(@NonNull String record) {
+            int[] count = counts.get(record);
+            if (count == null)
+                counts.put(record, new int[]{1});
+            else
+                count[0] += 1;
+        }
+
+        void remove(@NonNull String record) {
+            if (counts.remove(record) == null)
+                return;
+            for (int idx = children.size() - 1; idx >= 0; idx -= 1) {
+                Node child = children.valueAt(idx);
+                child.remove(record);
+                if (child.counts.isEmpty())
+                    children.removeAt(idx);
+            }
+        }
+    }
+
+    @NonNull
+    private static String toKey(@NonNull String query) {
+        // the SQL `LIKE` used before was case insensitive
+        return query.toLowerCase(Locale.ROOT);
+    }
+
+    void add(@NonNull String query, @NonNull String record) {
+        String key = toKey(query);
+        Node node = root;
+        node.increment(record);
+        for (int idx = 0; idx < key.length(); idx += 1) {
+            char c = key.charAt(idx);
+            Node child = node.children.get(c);
+            if (child == null) {
+                child = new Node();
+                node.children.put(c, child);
+            }
+            node = child;
+            node.increment(record);
+        }
+    }
+
+    void remove(@NonNull String record) {
+        root.remove(record);
+    }
+
+    void clear() {
+        root.children.clear();
+        root.counts.clear();
+    }
+
+    /**
+     * @param prefix start of the query
+     * @param limit  max number of records to return
+     * @return records launched by queries starting with prefix, with the launch count, most launched first
+     */
+    @NonNull
+    List<ValuedHistoryRecord> get(@NonNull String prefix, int limit) {
+        String key = toKey(prefix);
+        Node node = root;
+        for (int idx = 0; idx < key.length() && node != null; idx += 1)
+            node = node.children.get(key.charAt(idx));
+        if (node == null || node.counts.isEmpty())
+            return Collections.emptyList();
+
+        ArrayList<Map.Entry<String, int[]>> sorted = new ArrayList<>(node.counts.entrySet());
+        Collections.sort(sorted, (lhs, rhs) -> {
+            int result = Integer.compare(rhs.getValue()[0], lhs.getValue()[0]);
+            if (result == 0)
+                result = lhs.getKey().compareTo(rhs.getKey());
+            return result;
+        });
+        int size = Math.min(limit, sorted.size());
+        ArrayList<ValuedHistoryRecord> records = new ArrayList<>(size);
+        for (int idx = 0; idx < size; idx += 1) {
+            ValuedHistoryRecord rec = new ValuedHistoryRecord();
+            rec.record = sorted.get(idx).getKey();
+            rec.value = sorted.get(idx).getValue()[0];
+            records.add(rec);
+        }
+        return records;
+    }
+}
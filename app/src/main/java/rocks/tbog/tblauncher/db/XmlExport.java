@@ -271,6 +271,7 @@ public class XmlExport {
     public static void historyXml(@NonNull Context context, @NonNull SimpleXmlWriter sx) throws IOException {
         sx.startTag("history").attribute("version", "1");
 
+        HistoryModel.flush();
         List<ValuedHistoryRecord> history = DBHelper.getHistoryRaw(context);
         for (ValuedHistoryRecord historyRecord : history) {
             String query = historyRecord.name;
@@ -938,6 +938,7 @@ public class XmlImport {
                 history = mHistory;
             } else {
                 // load from DB first
+                HistoryModel.flush();
                 history = DBHelper.getHistoryRaw(context);
                 long time = history.isEmpty() ? 0 : history.get(history.size() - 1).value;
                 for (ValuedHistoryRecord rec : mHistory) {
@@ -947,6 +948,7 @@ public class XmlImport {
             }
 
             DBHelper.setHistory(context, history);
+            TBApplication.dataHandler(context).getHistoryModel().reload();
         }
 
         public enum Method {OVERWRITE, APPEND, SET}
@@ -25,6 +25,7 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresApi;
 import androidx.annotation.StringRes;
 import androidx.annotation.WorkerThread;
@@ -38,6 +39,7 @@ import rocks.tbog.tblauncher.IconsHandler;
 import rocks.tbog.tblauncher.R;
 import rocks.tbog.tblauncher.TBApplication;
 import rocks.tbog.tblauncher.result.ResultViewHelper;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.shortcut.ShortcutUtil;
 import rocks.tbog.tblauncher.ui.LinearAdapter;
 import rocks.tbog.tblauncher.ui.ListPopup;
@@ -144,17 +146,22 @@ public final class AppEntry extends EntryWithTags {
 
     @Override
     public void displayResult(@NonNull View view, int drawFlags) {
+        displayResult(view, drawFlags, null);
+    }
+
+    @Override
+    public void displayResult(@NonNull View view, int drawFlags, @Nullable ScoredHit hit) {
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_LIST)) {
-            displayListResult(view, drawFlags);
+            displayListResult(view, drawFlags, hit);
         } else {
-            displayGridResult(view, drawFlags);
+            displayGridResult(view, drawFlags, hit);
         }
     }
 
-    private void displayGridResult(@NonNull View view, int drawFlags) {
+    private void displayGridResult(@NonNull View view, int drawFlags, @Nullable ScoredHit hit) {
         TextView nameView = view.findViewById(android.R.id.text1);
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_NAME))
-            ResultViewHelper.displayHighlighted(relevanceSource, normalizedName, getName(), relevance, nameView);
+            ResultViewHelper.displayHighlighted(hit, normalizedName, getName(), nameView);
         else
             nameView.setVisibility(View.GONE);
 
@@ -162,7 +169,7 @@ public final class AppEntry extends EntryWithTags {
         ImageView bottomRightIcon = view.findViewById(android.R.id.icon2);
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_ICON)) {
             appIcon.setVisibility(View.VISIBLE);
-            ResultViewHelper.setIconAsync(drawFlags, this, appIcon, AsyncSetEntryIcon.class);
+            ResultViewHelper.setIconAsync(drawFlags, this, appIcon, AsyncSetEntryIcon::new);
             if (bottomRightIcon != null) {
                 if (isHiddenByUser()) {
                     bottomRightIcon.setVisibility(View.VISIBLE);
@@ -181,17 +188,17 @@ public final class AppEntry extends EntryWithTags {
         ResultViewHelper.applyPreferences(drawFlags, nameView, appIcon);
     }
 
-    private void displayListResult(@NonNull View view, int drawFlags) {
+    private void displayListResult(@NonNull View view, int drawFlags, @Nullable ScoredHit hit) {
         final Context context = view.getContext();
 
         TextView nameView = view.findViewById(R.id.item_app_name);
-        ResultViewHelper.displayHighlighted(relevanceSource, normalizedName, getName(), relevance, nameView);
+        ResultViewHelper.displayHighlighted(hit, normalizedName, getName(), nameView);
 
         TextView tagsView = view.findViewById(R.id.item_app_tag);
         // Hide tags view if tags are empty
         if (getTags().isEmpty()) {
             tagsView.setVisibility(View.GONE);
-        } else if (ResultViewHelper.displayHighlighted(relevanceSource, getTags(), relevance, tagsView, context)
+        } else if (ResultViewHelper.displayHighlighted(hit, getTags(), tagsView, context)
                 || Utilities.checkFlag(drawFlags, FLAG_DRAW_TAGS)) {
             tagsView.setVisibility(View.VISIBLE);
         } else {
@@ -202,7 +209,7 @@ public final class AppEntry extends EntryWithTags {
         ImageView bottomRightIcon = view.findViewById(android.R.id.icon2);
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_ICON)) {
             appIcon.setVisibility(View.VISIBLE);
-            ResultViewHelper.setIconAsync(drawFlags, this, appIcon, AsyncSetEntryIcon.class);
+            ResultViewHelper.setIconAsync(drawFlags, this, appIcon, AsyncSetEntryIcon::new);
             if (isHiddenByUser()) {
                 bottomRightIcon.setVisibility(View.VISIBLE);
                 bottomRightIcon.setImageResource(R.drawable.ic_eye_crossed);
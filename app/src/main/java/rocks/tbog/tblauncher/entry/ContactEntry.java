@@ -13,6 +13,7 @@ import android.widget.ImageView;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.content.ContextCompat;
 import androidx.preference.PreferenceManager;
 
@@ -25,11 +26,14 @@ import rocks.tbog.tblauncher.TBApplication;
 import rocks.tbog.tblauncher.normalizer.StringNormalizer;
 import rocks.tbog.tblauncher.result.ResultHelper;
 import rocks.tbog.tblauncher.result.ResultViewHelper;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.utils.UIColors;
 import rocks.tbog.tblauncher.utils.Utilities;
 
 public final class ContactEntry extends EntryItem {
     public static final String SCHEME = "contact://";
+    // ContactsContract.Contacts._ID of the contact with this phone
+    public final long contactId;
     public final String lookupKey;
 
     public final String phone;
@@ -53,13 +57,14 @@ public final class ContactEntry extends EntryItem {
 
     private String nickname = "";
 
-    public ContactEntry(String id, String lookupKey, String phone, StringNormalizer.Result normalizedPhone,
+    public ContactEntry(String id, long contactId, String lookupKey, String phone, StringNormalizer.Result normalizedPhone,
                         Uri iconUri, Boolean primary, int timesContacted, Boolean starred,
                         Boolean homeNumber) {
         super(id);
         if (BuildConfig.DEBUG && !id.startsWith(SCHEME)) {
             throw new IllegalStateException("Invalid " + ContactEntry.class.getSimpleName() + " id `" + id + "`");
         }
+        this.contactId = contactId;
         this.lookupKey = lookupKey;
         this.phone = phone;
         this.normalizedPhone = normalizedPhone;
@@ -102,19 +107,24 @@ public final class ContactEntry extends EntryItem {
 
     @Override
     public void displayResult(@NonNull View view, int drawFlags) {
+        displayResult(view, drawFlags, null);
+    }
+
+    @Override
+    public void displayResult(@NonNull View view, int drawFlags, @Nullable ScoredHit hit) {
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_LIST)) {
-            displayListResult(view, drawFlags);
+            displayListResult(view, drawFlags, hit);
         } else {
-            displayGridResult(view, drawFlags);
+            displayGridResult(view, drawFlags, hit);
         }
     }
 
-    private void displayGridResult(@NonNull View view, int drawFlags) {
+    private void displayGridResult(@NonNull View view, int drawFlags, @Nullable ScoredHit hit) {
         // Contact name
         TextView nameView = view.findViewById(android.R.id.text1);
         nameView.setTextColor(UIColors.getResultTextColor(view.getContext()));
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_NAME))
-            ResultViewHelper.displayHighlighted(relevanceSource, normalizedName, getName(), relevance, nameView);
+            ResultViewHelper.displayHighlighted(hit, normalizedName, getName(), nameView);
         else
             nameView.setVisibility(View.GONE);
 
@@ -123,7 +133,7 @@ public final class ContactEntry extends EntryItem {
         ImageView contactIcon = view.findViewById(android.R.id.icon);
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_ICON)) {
             contactIcon.setVisibility(View.VISIBLE);
-            ResultViewHelper.setIconAsync(drawFlags, this, contactIcon, AsyncSetEntryIcon.class);
+            ResultViewHelper.setIconAsync(drawFlags, this, contactIcon, AsyncSetEntryIcon::new);
         } else {
             contactIcon.setImageDrawable(null);
             contactIcon.setVisibility(View.GONE);
@@ -132,17 +142,17 @@ public final class ContactEntry extends EntryItem {
         ResultViewHelper.applyPreferences(drawFlags, nameView, contactIcon);
     }
 
-    private void displayListResult(@NonNull View view, int drawFlags) {
+    private void displayListResult(@NonNull View view, int drawFlags, @Nullable ScoredHit hit) {
         Context context = view.getContext();
         // Contact name
         TextView contactName = view.findViewById(R.id.item_contact_name);
         contactName.setTextColor(UIColors.getResultTextColor(context));
-        ResultViewHelper.displayHighlighted(relevanceSource, normalizedName, getName(), relevance, contactName);
+        ResultViewHelper.displayHighlighted(hit, normalizedName, getName(), contactName);
 
         // Contact phone
         TextView contactPhone = view.findViewById(R.id.item_contact_phone);
         contactPhone.setTextColor(UIColors.getResultText2Color(context));
-        ResultViewHelper.displayHighlighted(relevanceSource, normalizedPhone, phone, relevance, contactPhone);
+        ResultViewHelper.displayHighlighted(hit, normalizedPhone, phone, contactPhone);
 
         // Contact nickname
         TextView contactNickname = view.findViewById(R.id.item_contact_nickname);
@@ -150,7 +160,7 @@ public final class ContactEntry extends EntryItem {
         if (getNickname().isEmpty()) {
             contactNickname.setVisibility(View.GONE);
         } else {
-            ResultViewHelper.displayHighlighted(relevanceSource, normalizedNickname, getNickname(), relevance, contactNickname);
+            ResultViewHelper.displayHighlighted(hit, normalizedNickname, getNickname(), contactNickname);
         }
 
         // Contact photo
@@ -158,7 +168,7 @@ public final class ContactEntry extends EntryItem {
 
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_ICON)) {
             contactIcon.setVisibility(View.VISIBLE);
-            ResultViewHelper.setIconAsync(drawFlags, this, contactIcon, AsyncSetEntryIcon.class);
+            ResultViewHelper.setIconAsync(drawFlags, this, contactIcon, AsyncSetEntryIcon::new);
         } else {
             contactIcon.setImageDrawable(null);
             contactIcon.setVisibility(View.GONE);
@@ -16,15 +16,13 @@ import rocks.tbog.tblauncher.TBApplication;
 import rocks.tbog.tblauncher.db.FavRecord;
 import rocks.tbog.tblauncher.normalizer.StringNormalizer;
 import rocks.tbog.tblauncher.result.ResultHelper;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.ui.LinearAdapter;
 import rocks.tbog.tblauncher.ui.ListPopup;
-import rocks.tbog.tblauncher.utils.DebugInfo;
-import rocks.tbog.tblauncher.utils.FuzzyScore;
 import rocks.tbog.tblauncher.utils.Utilities;
 
 public abstract class EntryItem {
 
-    public static final RelevanceComparator RELEVANCE_COMPARATOR = new RelevanceComparator();
     public static final NameComparator NAME_COMPARATOR = new NameComparator();
 
     /**
@@ -94,11 +92,6 @@ public abstract class EntryItem {
     private
     String name = "";
 
-    // How relevant is this record? The higher, the most probable it will be displayed
-    protected FuzzyScore.MatchInfo relevance = null;
-    // Pointer to the normalizedName that the above relevance was calculated, used for highlighting
-    protected StringNormalizer.Result relevanceSource = null;
-
     public EntryItem(@NonNull String id) {
         this.id = id;
     }
@@ -137,25 +130,6 @@ public abstract class EntryItem {
         }
     }
 
-    public int getRelevance() {
-        return relevance == null ? 0 : relevance.score;
-    }
-
-    public void setRelevance(StringNormalizer.Result normalizedName, @Nullable FuzzyScore.MatchInfo matchInfo) {
-        relevanceSource = normalizedName;
-        relevance = matchInfo != null ? new FuzzyScore.MatchInfo(matchInfo) : new FuzzyScore.MatchInfo();
-    }
-
-    public void boostRelevance(int boost) {
-        if (relevance != null)
-            relevance.score += boost;
-    }
-
-    public void resetRelevance() {
-        this.relevanceSource = null;
-        this.relevance = null;
-    }
-
     /**
      * ID to use in the history
      * (may be different from the one used in the adapter for display)
@@ -173,18 +147,13 @@ public abstract class EntryItem {
 
     public abstract void displayResult(@NonNull View view, int drawFlags);
 
-    public static class RelevanceComparator implements java.util.Comparator<EntryItem> {
-        @Override
-        public int compare(EntryItem lhs, EntryItem rhs) {
-            if (lhs.getRelevance() == rhs.getRelevance()) {
-                if (lhs.relevanceSource != null && rhs.relevanceSource != null)
-                    return lhs.relevanceSource.compareTo(rhs.relevanceSource);
-                else
-                    return lhs.name.compareTo(rhs.name);
-            }
-            return lhs.getRelevance() - rhs.getRelevance();
-        }
-
+    /**
+     * Display as a search result, children that can highlight the matched text should override
+     *
+     * @param hit the search hit of this entry or null if not displayed for a query
+     */
+    public void displayResult(@NonNull View view, int drawFlags, @Nullable ScoredHit hit) {
+        displayResult(view, drawFlags);
     }
 
     public static class NameComparator implements java.util.Comparator<EntryItem> {
@@ -245,11 +214,6 @@ public abstract class EntryItem {
             }
         }
 
-        if (DebugInfo.itemRelevance(context)) {
-            adapter.add(new LinearAdapter.ItemTitle("Debug info"));
-            adapter.add(new LinearAdapter.ItemString("Relevance: " + getRelevance()));
-        }
-
         return menu;
     }
 
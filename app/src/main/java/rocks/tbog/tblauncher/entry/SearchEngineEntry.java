@@ -35,6 +35,19 @@ public final class SearchEngineEntry extends SearchEntry {
         setName(engineName, false);
     }
 
+    /**
+     * Searches may run at the same time, give each one its own entry
+     *
+     * @param query what to search for
+     * @return a copy of this search engine entry
+     */
+    @NonNull
+    public SearchEngineEntry forQuery(@NonNull String query) {
+        SearchEngineEntry entry = new SearchEngineEntry(getName(), url);
+        entry.setQuery(query);
+        return entry;
+    }
+
     @Override
     public void displayResult(@NonNull View view, int drawFlags) {
         Context context = view.getContext();
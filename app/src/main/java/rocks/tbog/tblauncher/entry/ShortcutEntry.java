@@ -38,6 +38,7 @@ import rocks.tbog.tblauncher.R;
 import rocks.tbog.tblauncher.TBApplication;
 import rocks.tbog.tblauncher.db.ShortcutRecord;
 import rocks.tbog.tblauncher.result.ResultViewHelper;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.shortcut.ShortcutUtil;
 import rocks.tbog.tblauncher.ui.LinearAdapter;
 import rocks.tbog.tblauncher.ui.ListPopup;
@@ -130,19 +131,24 @@ public final class ShortcutEntry extends EntryWithTags {
 
     @Override
     public void displayResult(@NonNull View view, int drawFlags) {
+        displayResult(view, drawFlags, null);
+    }
+
+    @Override
+    public void displayResult(@NonNull View view, int drawFlags, @Nullable ScoredHit hit) {
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_LIST)) {
-            displayListResult(view, drawFlags);
+            displayListResult(view, drawFlags, hit);
         } else {
-            displayGridResult(view, drawFlags);
+            displayGridResult(view, drawFlags, hit);
         }
     }
 
-    private void displayGridResult(@NonNull View view, int drawFlags) {
+    private void displayGridResult(@NonNull View view, int drawFlags, @Nullable ScoredHit hit) {
         drawFlags |= FLAG_RELOAD;
         TextView nameView = view.findViewById(android.R.id.text1);
         nameView.setTextColor(UIColors.getResultTextColor(view.getContext()));
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_NAME))
-            ResultViewHelper.displayHighlighted(relevanceSource, normalizedName, getName(), relevance, nameView);
+            ResultViewHelper.displayHighlighted(hit, normalizedName, getName(), nameView);
         else
             nameView.setVisibility(View.GONE);
 
@@ -151,7 +157,7 @@ public final class ShortcutEntry extends EntryWithTags {
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_ICON)) {
             icon1.setVisibility(View.VISIBLE);
             icon2.setVisibility(View.VISIBLE);
-            ResultViewHelper.setIconAsync(drawFlags, this, icon1, AsyncSetEntryIcon.class);
+            ResultViewHelper.setIconAsync(drawFlags, this, icon1, AsyncSetEntryIcon::new);
         } else {
             icon1.setImageDrawable(null);
             icon2.setImageDrawable(null);
@@ -162,14 +168,14 @@ public final class ShortcutEntry extends EntryWithTags {
         ResultViewHelper.applyPreferences(drawFlags, nameView, icon1);
     }
 
-    private void displayListResult(@NonNull View view, int drawFlags) {
+    private void displayListResult(@NonNull View view, int drawFlags, @Nullable ScoredHit hit) {
         drawFlags |= FLAG_RELOAD;
         Context context = view.getContext();
 
         TextView shortcutName = view.findViewById(R.id.item_app_name);
         shortcutName.setTextColor(UIColors.getResultTextColor(view.getContext()));
 
-        ResultViewHelper.displayHighlighted(relevanceSource, normalizedName, getName(), relevance, shortcutName);
+        ResultViewHelper.displayHighlighted(hit, normalizedName, getName(), shortcutName);
 
         TextView tagsView = view.findViewById(R.id.item_app_tag);
         tagsView.setTextColor(UIColors.getResultText2Color(view.getContext()));
@@ -177,7 +183,7 @@ public final class ShortcutEntry extends EntryWithTags {
         // Hide tags view if tags are empty
         if (getTags().isEmpty()) {
             tagsView.setVisibility(View.GONE);
-        } else if (ResultViewHelper.displayHighlighted(relevanceSource, getTags(), relevance, tagsView, context)
+        } else if (ResultViewHelper.displayHighlighted(hit, getTags(), tagsView, context)
                 || Utilities.checkFlag(drawFlags, FLAG_DRAW_TAGS)) {
             tagsView.setVisibility(View.VISIBLE);
         } else {
@@ -190,7 +196,7 @@ public final class ShortcutEntry extends EntryWithTags {
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_ICON)) {
             shortcutIcon.setVisibility(View.VISIBLE);
             appIcon.setVisibility(View.VISIBLE);
-            ResultViewHelper.setIconAsync(drawFlags, this, shortcutIcon, AsyncSetEntryIcon.class);
+            ResultViewHelper.setIconAsync(drawFlags, this, shortcutIcon, AsyncSetEntryIcon::new);
         } else {
             shortcutIcon.setImageDrawable(null);
             appIcon.setImageDrawable(null);
@@ -414,6 +420,14 @@ public final class ShortcutEntry extends EntryWithTags {
         }
     }
 
+    public long getDbId() {
+        return dbId;
+    }
+
+    public boolean hasCustomIcon() {
+        return customIcon;
+    }
+
     public void setCustomIcon() {
         customIcon = true;
     }
@@ -429,6 +443,13 @@ public final class ShortcutEntry extends EntryWithTags {
             super(image, drawFlags, entryItem);
         }
 
+        @Nullable
+        @Override
+        protected String getSharedKey() {
+            // the sub icon is not shared
+            return null;
+        }
+
         @Override
         public Drawable getDrawable(Context context) {
             ShortcutEntry shortcutEntry = (ShortcutEntry) entryItem;
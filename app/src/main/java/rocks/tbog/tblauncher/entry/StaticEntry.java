@@ -157,7 +157,7 @@ public abstract class StaticEntry extends EntryItem {
         ImageView appIcon = view.findViewById(android.R.id.icon);
         if (Utilities.checkFlag(drawFlags, FLAG_DRAW_ICON)) {
             appIcon.setVisibility(View.VISIBLE);
-            ResultViewHelper.setIconAsync(drawFlags, this, appIcon, AsyncSetEntryIcon.class);
+            ResultViewHelper.setIconAsync(drawFlags, this, appIcon, AsyncSetEntryIcon::new);
         } else {
             appIcon.setImageDrawable(null);
             appIcon.setVisibility(View.GONE);
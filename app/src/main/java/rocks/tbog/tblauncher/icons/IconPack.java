@@ -8,8 +8,6 @@ import android.graphics.drawable.Drawable;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.Collection;
-
 import rocks.tbog.tblauncher.utils.UserHandleCompat;
 
 public interface IconPack<DrawableInfo> {
@@ -26,9 +24,6 @@ public interface IconPack<DrawableInfo> {
     @NonNull
     Drawable applyBackgroundAndMask(@NonNull Context ctx, @NonNull Drawable defaultBitmap, boolean fitInside);
 
-    @NonNull
-    Collection<DrawableInfo> getDrawableList();
-
     @Nullable
     Drawable getDrawable(@NonNull DrawableInfo drawableInfo);
 }
@@ -1,22 +1,27 @@
 package rocks.tbog.tblauncher.icons;
 
+import android.content.Context;
+
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.collection.LruCache;
 
+import java.io.File;
 import java.lang.ref.SoftReference;
 import java.util.HashMap;
 
 import rocks.tbog.tblauncher.TBApplication;
 
 public class IconPackCache {
+    // where the parsed appfilter.xml files are kept
+    private static final String INDEX_FOLDER = "icon_packs";
     private SoftReferenceCache<String, IconPackXML> mCache = new SoftReferenceCache<>();
 
     @NonNull
-    public IconPackXML getIconPack(String packageName) {
+    public IconPackXML getIconPack(@NonNull Context context, String packageName) {
         IconPackXML pack = mCache.get(packageName);
         if (pack == null) {
-            pack = new IconPackXML(packageName);
+            pack = new IconPackXML(packageName, new File(context.getCacheDir(), INDEX_FOLDER));
             mCache.put(packageName, pack);
         }
         return pack;
@@ -2,8 +2,10 @@ package rocks.tbog.tblauncher.icons;
 
 import android.content.ComponentName;
 import android.content.Context;
+import android.content.pm.PackageInfo;
 import android.content.pm.PackageManager;
 import android.content.res.Resources;
+import android.content.res.XmlResourceParser;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
 import android.graphics.Matrix;
@@ -19,31 +21,57 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 import androidx.collection.ArraySet;
+import androidx.collection.LruCache;
+import androidx.core.content.pm.PackageInfoCompat;
 import androidx.core.content.res.ResourcesCompat;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.LinkedHashSet;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Random;
 
+import rocks.tbog.tblauncher.utils.BitmapPool;
 import rocks.tbog.tblauncher.utils.DrawableUtils;
 import rocks.tbog.tblauncher.utils.UserHandleCompat;
-import rocks.tbog.tblauncher.utils.Utilities;
 
 public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
     private final static String TAG = IconPackXML.class.getSimpleName();
+    private final static String INDEX_EXTENSION = ".idx";
+    private final static int INDEX_MAGIC = 0x54424950; // TBIP
+    private final static int INDEX_FORMAT = 2;
+    private final static int RESOLVED_ID_CACHE_SIZE = 256;
+    private final static PorterDuffXfermode XFERMODE_DST_OUT = new PorterDuffXfermode(PorterDuff.Mode.DST_OUT);
     private final Map<String, ArraySet<DrawableInfo>> drawablesByComponent = new ArrayMap<>(0);
-    private final LinkedHashSet<DrawableInfo> drawableList = new LinkedHashSet<>(0);
+    // drawable name -> resource id, only the icons we need are resolved
+    private final LruCache<String, Integer> resolvedIds = new LruCache<String, Integer>(RESOLVED_ID_CACHE_SIZE) {
+        @Override
+        protected Integer create(@NonNull String drawableName) {
+            Resources resources = packResources;
+            if (resources == null)
+                return 0;
+            return resources.getIdentifier(drawableName, "drawable", iconPackPackageName);
+        }
+    };
     // instance of a resource object of an icon pack
-    private Resources packResources;
+    private volatile Resources packResources;
     // package name of the icons pack
     @NonNull
     private final String iconPackPackageName;
@@ -57,12 +85,15 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
     private float factor = 1.0f;
 
     private final Random random = new Random();
-    private final Matrix matScale = new Matrix();
 
     private boolean loaded;
+    // where to keep the parsed appfilter.xml, null if we can't
+    @Nullable
+    private final File indexFile;
 
-    public IconPackXML(@NonNull String packageName) {
+    public IconPackXML(@NonNull String packageName, @Nullable File indexFolder) {
         iconPackPackageName = packageName;
+        indexFile = indexFolder != null ? new File(indexFolder, packageName + INDEX_EXTENSION) : null;
         loaded = false;
     }
 
@@ -96,30 +127,197 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
             Log.e(TAG, "get icon pack resources" + iconPackPackageName, e);
         }
 
-        parseAppFilterXML();
+        // the resource IDs may change when the pack is updated
+        long versionCode = 0;
+        long lastUpdateTime = 0;
+        try {
+            PackageInfo packageInfo = packageManager.getPackageInfo(iconPackPackageName, 0);
+            versionCode = PackageInfoCompat.getLongVersionCode(packageInfo);
+            lastUpdateTime = packageInfo.lastUpdateTime;
+        } catch (PackageManager.NameNotFoundException e) {
+            Log.e(TAG, "get icon pack version " + iconPackPackageName, e);
+        }
+
+        long start = System.currentTimeMillis();
+        if (lastUpdateTime != 0 && readIndex(versionCode, lastUpdateTime)) {
+            Log.i(TAG, iconPackPackageName + " loaded from index in " + (System.currentTimeMillis() - start) + "ms");
+        } else {
+            boolean parsed = parseAppFilterXML();
+            Log.i(TAG, iconPackPackageName + " parsed appfilter.xml in " + (System.currentTimeMillis() - start) + "ms");
+            // don't save a partial parse, the next load should try again
+            if (parsed && lastUpdateTime != 0)
+                writeIndex(versionCode, lastUpdateTime);
+        }
         loaded = true;
     }
 
-    public synchronized void loadDrawables(PackageManager packageManager) {
-        if (!loaded)
-            load(packageManager);
-        try {
-            packResources = packageManager.getResourcesForApplication(iconPackPackageName);
-        } catch (PackageManager.NameNotFoundException e) {
-            Log.e(TAG, "get icon pack resources" + iconPackPackageName, e);
+    /**
+     * Load the appfilter.xml data saved by {@link #writeIndex}
+     *
+     * @return true if the index matches the installed pack and was read successfully
+     */
+    private boolean readIndex(long versionCode, long lastUpdateTime) {
+        if (indexFile == null || !indexFile.isFile())
+            return false;
+        // read the file in one go and parse it from memory
+        byte[] data = new byte[(int) indexFile.length()];
+        try (DataInputStream file = new DataInputStream(new FileInputStream(indexFile))) {
+            file.readFully(data);
+        } catch (IOException e) {
+            Log.e(TAG, "read " + indexFile, e);
+            return false;
         }
 
-        parseDrawableXML();
+        ArrayList<DrawableInfo> drawables = new ArrayList<>(0);
+        ArrayList<DrawableInfo> back = new ArrayList<>(0);
+        ArrayMap<String, ArraySet<DrawableInfo>> byComponent = new ArrayMap<>(0);
+        DrawableInfo mask;
+        DrawableInfo front;
+        float scale;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_FORMAT)
+                return false;
+            if (in.readLong() != versionCode || in.readLong() != lastUpdateTime)
+                return false;
+            scale = in.readFloat();
+            mask = readDrawableInfo(in);
+            front = readDrawableInfo(in);
+            for (int count = in.readInt(); count > 0; count -= 1)
+                back.add(readDrawableInfo(in));
+
+            int drawableCount = in.readInt();
+            drawables.ensureCapacity(drawableCount);
+            for (int i = 0; i < drawableCount; i += 1)
+                drawables.add(readDrawableInfo(in));
+
+            int componentCount = in.readInt();
+            byComponent.ensureCapacity(componentCount);
+            for (int i = 0; i < componentCount; i += 1) {
+                String componentName = in.readUTF();
+                int setSize = in.readInt();
+                ArraySet<DrawableInfo> infoSet = new ArraySet<>(setSize);
+                for (int j = 0; j < setSize; j += 1)
+                    infoSet.add(drawables.get(in.readInt()));
+                byComponent.put(componentName, infoSet);
+            }
+        } catch (IOException | IndexOutOfBoundsException e) {
+            Log.e(TAG, "invalid index " + indexFile, e);
+            return false;
+        }
+
+        factor = scale;
+        maskImage = mask;
+        frontImage = front;
+        backImages.addAll(back);
+        drawablesByComponent.putAll(byComponent);
+        return true;
+    }
+
+    /**
+     * Save what {@link #parseAppFilterXML} found, so next time we don't parse the XML again. The
+     * components are saved with the drawables the pack has, the others are left out.
+     */
+    private void writeIndex(long versionCode, long lastUpdateTime) {
+        if (indexFile == null)
+            return;
+        Resources resources = packResources;
+        if (resources == null)
+            return;
+        File folder = indexFile.getParentFile();
+        if (folder == null || (!folder.isDirectory() && !folder.mkdirs()))
+            return;
+
+        // components reference the drawables by position
+        HashMap<DrawableInfo, Integer> drawableIndex = new HashMap<>(drawablesByComponent.size());
+        ArrayList<DrawableInfo> drawables = new ArrayList<>(drawablesByComponent.size());
+        ArrayMap<String, int[]> componentIndexes = new ArrayMap<>(drawablesByComponent.size());
+        for (Map.Entry<String, ArraySet<DrawableInfo>> entry : drawablesByComponent.entrySet()) {
+            ArraySet<DrawableInfo> infoSet = entry.getValue();
+            int[] indexes = new int[infoSet.size()];
+            int count = 0;
+            for (DrawableInfo info : infoSet) {
+                Integer index = drawableIndex.get(info);
+                if (index == null) {
+                    // don't save what the pack doesn't have; resolve without the cache, it only
+                    // has room for the icons in use
+                    if (resources.getIdentifier(info.drawableName, "drawable", iconPackPackageName) != 0) {
+                        index = drawables.size();
+                        drawables.add(info);
+                    } else {
+                        index = -1;
+                    }
+                    drawableIndex.put(info, index);
+                }
+                if (index >= 0)
+                    indexes[count++] = index;
+            }
+            if (count > 0)
+                componentIndexes.put(entry.getKey(), Arrays.copyOf(indexes, count));
+        }
+        File tmp = new File(folder, indexFile.getName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(INDEX_FORMAT);
+            out.writeLong(versionCode);
+            out.writeLong(lastUpdateTime);
+            out.writeFloat(factor);
+            writeDrawableInfo(out, maskImage);
+            writeDrawableInfo(out, frontImage);
+            out.writeInt(backImages.size());
+            for (DrawableInfo info : backImages)
+                writeDrawableInfo(out, info);
+
+            out.writeInt(drawables.size());
+            for (DrawableInfo info : drawables)
+                writeDrawableInfo(out, info);
+
+            out.writeInt(componentIndexes.size());
+            for (Map.Entry<String, int[]> entry : componentIndexes.entrySet()) {
+                out.writeUTF(entry.getKey());
+                int[] indexes = entry.getValue();
+                out.writeInt(indexes.length);
+                for (int index : indexes)
+                    out.writeInt(index);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "write " + tmp, e);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(indexFile)) {
+            Log.e(TAG, "rename " + tmp + " to " + indexFile);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+
+    @Nullable
+    private static DrawableInfo readDrawableInfo(@NonNull DataInputStream in) throws IOException {
+        if (!in.readBoolean())
+            return null;
+        return new DrawableInfo(in.readUTF());
+    }
+
+    private static void writeDrawableInfo(@NonNull DataOutputStream out, @Nullable DrawableInfo info) throws IOException {
+        out.writeBoolean(info != null);
+        if (info != null)
+            out.writeUTF(info.drawableName);
     }
 
     public boolean hasMask() {
         return maskImage != null;
     }
 
+    /**
+     * Read the drawables of the pack one page at a time. The pack must be loaded.
+     *
+     * @param filter what drawable names to keep, null to keep all
+     * @return a new reader, close it when done
+     */
     @NonNull
-    @Override
-    public Collection<DrawableInfo> getDrawableList() {
-        return Collections.unmodifiableCollection(drawableList);
+    public DrawablePager newDrawablePager(@Nullable NameFilter filter) {
+        return new DrawablePager(filter);
     }
 
     @Override
@@ -131,8 +329,15 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
     @Nullable
     public Drawable getComponentDrawable(String componentName) {
         ArraySet<DrawableInfo> drawables = drawablesByComponent.get(componentName);
-        DrawableInfo drawableInfo = drawables != null ? drawables.valueAt(0) : null;
-        return drawableInfo != null ? getDrawable(drawableInfo) : null;
+        if (drawables == null)
+            return null;
+        // the first drawable that exists in the pack
+        for (DrawableInfo drawableInfo : drawables) {
+            Drawable drawable = getDrawable(drawableInfo);
+            if (drawable != null)
+                return drawable;
+        }
+        return null;
     }
 
 //    @Nullable
@@ -152,39 +357,85 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
     @Nullable
     @Override
     public Drawable getDrawable(@NonNull DrawableInfo drawableInfo) {
+        int drawableId = getDrawableId(drawableInfo);
+        if (drawableId == 0)
+            return null;
         try {
-            return ResourcesCompat.getDrawable(packResources, drawableInfo.drawableId, null);
+            return ResourcesCompat.getDrawable(packResources, drawableId, null);
         } catch (Resources.NotFoundException ignored) {
         }
         return null;
     }
 
+    /**
+     * @return the resource id or 0 if the pack doesn't have the drawable
+     */
+    private int getDrawableId(@NonNull DrawableInfo drawableInfo) {
+        if (drawableInfo.drawableId != 0)
+            return drawableInfo.drawableId;
+        Integer drawableId = resolvedIds.get(drawableInfo.drawableName);
+        return drawableId != null ? drawableId : 0;
+    }
+
+    /**
+     * Get the bitmap of the drawable. If the drawable is not a bitmap, draw it on a bitmap from
+     * the pool. Give it back with {@link #releaseBitmap} when done.
+     */
     @NonNull
-    private Bitmap getBitmap(@NonNull DrawableInfo drawableInfo) {
-        Drawable drawable = getDrawable(drawableInfo);
-        return Utilities.drawableToBitmap(drawable);
+    private static Bitmap toBitmap(@Nullable Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            if (bitmap != null)
+                return bitmap;
+        }
+        final Bitmap bitmap;
+        if (drawable == null || drawable.getIntrinsicWidth() <= 0 || drawable.getIntrinsicHeight() <= 0)
+            bitmap = BitmapPool.ICONS.acquire(1, 1); // Single color bitmap will be created of 1x1 pixel
+        else
+            bitmap = BitmapPool.ICONS.acquire(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight());
+
+        Canvas canvas = new Canvas(bitmap);
+        if (drawable != null) {
+            drawable.setBounds(0, 0, canvas.getWidth(), canvas.getHeight());
+            drawable.draw(canvas);
+        } else {
+            canvas.drawRGB(255, 255, 255);
+        }
+        return bitmap;
+    }
+
+    private static void releaseBitmap(@Nullable Drawable drawable, @NonNull Bitmap bitmap) {
+        // the bitmap of a BitmapDrawable belongs to the drawable
+        if (drawable instanceof BitmapDrawable && ((BitmapDrawable) drawable).getBitmap() == bitmap)
+            return;
+        BitmapPool.ICONS.release(bitmap);
     }
 
     @NonNull
     @Override
     public Drawable applyBackgroundAndMask(@NonNull Context ctx, @NonNull Drawable systemIcon, boolean fitInside) {
+        // a bitmap we made, it goes back to the pool if it's not part of the result
+        Bitmap temporary = null;
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            if (systemIcon instanceof AdaptiveIconDrawable)
+            if (systemIcon instanceof AdaptiveIconDrawable) {
                 systemIcon = DrawableUtils.applyIconMaskShape(ctx, systemIcon, DrawableUtils.SHAPE_SQUARE, fitInside);
+                if (systemIcon instanceof BitmapDrawable)
+                    temporary = ((BitmapDrawable) systemIcon).getBitmap();
+            }
         }
 
+        final BitmapDrawable iconDrawable;
         if (systemIcon instanceof BitmapDrawable) {
-            return generateBitmap((BitmapDrawable) systemIcon);
+            iconDrawable = (BitmapDrawable) systemIcon;
+        } else {
+            temporary = toBitmap(systemIcon);
+            iconDrawable = new BitmapDrawable(ctx.getResources(), temporary);
         }
 
-        Bitmap bitmap;
-        if (systemIcon.getIntrinsicWidth() <= 0 || systemIcon.getIntrinsicHeight() <= 0)
-            bitmap = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888); // Single color bitmap will be created of 1x1 pixel
-        else
-            bitmap = Bitmap.createBitmap(systemIcon.getIntrinsicWidth(), systemIcon.getIntrinsicHeight(), Bitmap.Config.ARGB_8888);
-        systemIcon.setBounds(0, 0, bitmap.getWidth(), bitmap.getHeight());
-        systemIcon.draw(new Canvas(bitmap));
-        return generateBitmap(new BitmapDrawable(ctx.getResources(), bitmap));
+        BitmapDrawable result = generateBitmap(iconDrawable);
+        if (temporary != null && result.getBitmap() != temporary)
+            BitmapPool.ICONS.release(temporary);
+        return result;
     }
 
     @NonNull
@@ -195,9 +446,12 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
             return defaultBitmap;
         }
 
+        final DrawableUtils.RenderTools tools = DrawableUtils.getRenderTools();
+
         // select a random background image
         int backImageInd = random.nextInt(backImages.size());
-        Bitmap backImage = getBitmap(backImages.get(backImageInd));
+        Drawable backDrawable = getDrawable(backImages.get(backImageInd));
+        Bitmap backImage = toBitmap(backDrawable);
         int w = backImage.getWidth();
         int h = backImage.getHeight();
 
@@ -208,81 +462,50 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
 
         // draw the background first
         canvas.drawBitmap(backImage, 0, 0, null);
+        releaseBitmap(backDrawable, backImage);
 
-        // scale original icon
-        Bitmap scaledBitmap = Bitmap.createScaledBitmap(defaultBitmap.getBitmap(), (int) (w * factor), (int) (h * factor), false);
-        scaledBitmap.setDensity(Bitmap.DENSITY_NONE);
+        // scale original icon while drawing it
+        int scaledWidth = (int) (w * factor);
+        int scaledHeight = (int) (h * factor);
+        int offsetLeft = (w - scaledWidth) / 2;
+        int offsetTop = (h - scaledHeight) / 2;
+        tools.rect.set(offsetLeft, offsetTop, offsetLeft + scaledWidth, offsetTop + scaledHeight);
+        canvas.drawBitmap(defaultBitmap.getBitmap(), null, tools.rect, null);
 
-        int offsetLeft = (w - scaledBitmap.getWidth()) / 2;
-        int offsetTop = (h - scaledBitmap.getHeight()) / 2;
         if (maskImage != null) {
             // draw the scaled bitmap with mask
-            Bitmap mask = getBitmap(maskImage);
+            Drawable maskDrawable = getDrawable(maskImage);
+            Bitmap mask = toBitmap(maskDrawable);
 
             // paint the bitmap with mask into the result
-            Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG | Paint.ANTI_ALIAS_FLAG);
-            paint.setXfermode(new PorterDuffXfermode(PorterDuff.Mode.DST_OUT));
-            canvas.drawBitmap(scaledBitmap, offsetLeft, offsetTop, null);
+            Paint paint = tools.paint;
+            paint.reset();
+            paint.setFlags(Paint.FILTER_BITMAP_FLAG | Paint.ANTI_ALIAS_FLAG);
+            paint.setXfermode(XFERMODE_DST_OUT);
+            Matrix matScale = tools.matrix;
             matScale.setScale(w / (float) mask.getWidth(), h / (float) mask.getHeight());
             canvas.drawBitmap(mask, matScale, paint);
             paint.setXfermode(null);
-        } else { // draw the scaled bitmap without mask
-            canvas.drawBitmap(scaledBitmap, offsetLeft, offsetTop, null);
+            releaseBitmap(maskDrawable, mask);
         }
 
         // paint the front
         if (frontImage != null) {
-            canvas.drawBitmap(getBitmap(frontImage), 0, 0, null);
+            Drawable frontDrawable = getDrawable(frontImage);
+            Bitmap front = toBitmap(frontDrawable);
+            canvas.drawBitmap(front, 0, 0, null);
+            releaseBitmap(frontDrawable, front);
         }
 
         return new BitmapDrawable(packResources, result);
     }
 
-    private void parseDrawableXML() {
-        XmlPullParser xpp = null;
-        // search drawable.xml into icons pack apk resource folder
-        int drawableXmlId = packResources.getIdentifier("drawable", "xml", iconPackPackageName);
-        if (drawableXmlId > 0) {
-            xpp = packResources.getXml(drawableXmlId);
-        }
-        if (xpp == null)
-            return;
-        try {
-            int eventType = xpp.getEventType();
-            while (eventType != XmlPullParser.END_DOCUMENT) {
-                if (eventType == XmlPullParser.START_TAG) {
-                    int attrCount = xpp.getAttributeCount();
-                    switch (xpp.getName()) {
-                        case "item":
-                            for (int attrIdx = 0; attrIdx < attrCount; attrIdx += 1) {
-                                String attrName = xpp.getAttributeName(attrIdx);
-                                if (attrName.equals("drawable")) {
-                                    String drawableName = xpp.getAttributeValue(attrIdx);
-                                    int drawableId = packResources.getIdentifier(drawableName, "drawable", iconPackPackageName);
-                                    if (drawableId != 0) {
-                                        DrawableInfo drawableInfo = new DrawableInfo(drawableName, drawableId);
-                                        drawableList.add(drawableInfo);
-                                    }
-                                }
-                            }
-                            break;
-                        case "category":
-                            break;
-                        default:
-                            Log.d(TAG, "ignored " + xpp.getName());
-                    }
-                }
-                eventType = xpp.next();
-            }
-        } catch (XmlPullParserException | IOException e) {
-            Log.e(TAG, "parsing drawable.xml", e);
-        }
-
-    }
-
-    private void parseAppFilterXML() {
+    /**
+     * @return false if the XML could not be read to the end
+     */
+    private boolean parseAppFilterXML() {
         if (packResources == null)
-            return;
+            return false;
 
         XmlPullParser xpp = null;
         try {
@@ -301,9 +524,9 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
                             for (int i = 0; i < xpp.getAttributeCount(); i++) {
                                 if (xpp.getAttributeName(i).startsWith("img")) {
                                     String drawableName = xpp.getAttributeValue(i);
-                                    int drawableId = packResources.getIdentifier(drawableName, "drawable", iconPackPackageName);
-                                    if (drawableId != 0)
-                                        backImages.add(new DrawableInfo(drawableName, drawableId));
+                                    DrawableInfo drawableInfo = new DrawableInfo(drawableName);
+                                    if (getDrawableId(drawableInfo) != 0)
+                                        backImages.add(drawableInfo);
 //                                    Bitmap iconback = loadBitmap(drawableName);
 //                                    if (iconback != null) {
 //                                        backImages.add(iconback);
@@ -315,9 +538,9 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
                         else if (xpp.getName().equals("iconmask")) {
                             if (xpp.getAttributeCount() > 0 && xpp.getAttributeName(0).equals("img1")) {
                                 String drawableName = xpp.getAttributeValue(0);
-                                int drawableId = packResources.getIdentifier(drawableName, "drawable", iconPackPackageName);
-                                if (drawableId != 0)
-                                    maskImage = new DrawableInfo(drawableName, drawableId);
+                                DrawableInfo drawableInfo = new DrawableInfo(drawableName);
+                                if (getDrawableId(drawableInfo) != 0)
+                                    maskImage = drawableInfo;
                                 //maskImage = loadBitmap(drawableName);
                             }
                         }
@@ -325,9 +548,9 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
                         else if (xpp.getName().equals("iconupon")) {
                             if (xpp.getAttributeCount() > 0 && xpp.getAttributeName(0).equals("img1")) {
                                 String drawableName = xpp.getAttributeValue(0);
-                                int drawableId = packResources.getIdentifier(drawableName, "drawable", iconPackPackageName);
-                                if (drawableId != 0)
-                                    frontImage = new DrawableInfo(drawableName, drawableId);
+                                DrawableInfo drawableInfo = new DrawableInfo(drawableName);
+                                if (getDrawableId(drawableInfo) != 0)
+                                    frontImage = drawableInfo;
                                 //frontImage = loadBitmap(drawableName);
                             }
                         }
@@ -348,22 +571,12 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
                                 }
                             }
 
-                            if (drawableName == null)
-                                continue;
-                            int drawableId = packResources.getIdentifier(drawableName, "drawable", iconPackPackageName);
-                            if (drawableId != 0) {
-                                DrawableInfo drawableInfo = new DrawableInfo(drawableName, drawableId);
-                                drawableList.add(drawableInfo);
-                                if (componentName != null) {
-                                    ArraySet<DrawableInfo> infoSet = drawablesByComponent.get(componentName);
-                                    if (infoSet == null)
-                                        drawablesByComponent.put(componentName, infoSet = new ArraySet<>(1));
-                                    infoSet.add(drawableInfo);
-                                }
-                            } else {
-                                if (componentName == null)
-                                    componentName = "`null`";
-                                //Log.w(TAG, "Drawable `" + drawableName + "` for " + componentName + " not found");
+                            // the drawable id is resolved when the icon is needed
+                            if (drawableName != null && componentName != null) {
+                                ArraySet<DrawableInfo> infoSet = drawablesByComponent.get(componentName);
+                                if (infoSet == null)
+                                    drawablesByComponent.put(componentName, infoSet = new ArraySet<>(1));
+                                infoSet.add(new DrawableInfo(drawableName));
                             }
                         }
                     }
@@ -372,7 +585,9 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
             }
         } catch (Exception e) {
             Log.e(TAG, "Error parsing appfilter.xml " + e);
+            return false;
         }
+        return true;
     }
 
 
@@ -383,10 +598,133 @@ public class IconPackXML implements IconPack<IconPackXML.DrawableInfo> {
     }
 
 
+    public interface NameFilter {
+        boolean accept(@NonNull String drawableName);
+    }
+
+    /**
+     * Read the drawable names from drawable.xml, a page at a time. The parser keeps its position
+     * between pages so we only have in memory what was displayed. If the pack has no drawable.xml
+     * we list the drawables from appfilter.xml.
+     */
+    public class DrawablePager {
+        @Nullable
+        private final NameFilter filter;
+        // names already returned, some packs list the same drawable in more categories
+        private final HashSet<String> seen = new HashSet<>();
+        private XmlResourceParser xpp = null;
+        private Iterator<DrawableInfo> appFilterIterator = null;
+        private boolean started = false;
+        @Nullable
+        private final Resources resources = packResources;
+        // volatile so close() can stop a page that is being read
+        private volatile boolean finished = false;
+
+        DrawablePager(@Nullable NameFilter filter) {
+            this.filter = filter;
+        }
+
+        public boolean isFinished() {
+            return finished;
+        }
+
+        /**
+         * @param pageSize how many drawables to return
+         * @return the next drawables, less than pageSize only if there are no more
+         */
+        @WorkerThread
+        @NonNull
+        public synchronized List<DrawableInfo> nextPage(int pageSize) {
+            ArrayList<DrawableInfo> page = new ArrayList<>(pageSize);
+            if (!started)
+                start();
+            while (!finished && page.size() < pageSize) {
+                String drawableName = nextName();
+                if (drawableName == null) {
+                    finished = true;
+                    break;
+                }
+                if (!seen.add(drawableName))
+                    continue;
+                if (filter != null && !filter.accept(drawableName))
+                    continue;
+                // don't use the id cache, browsing would push out the ids of the icons in use
+                int drawableId = resources.getIdentifier(drawableName, "drawable", iconPackPackageName);
+                if (drawableId != 0)
+                    page.add(new DrawableInfo(drawableName, drawableId));
+            }
+            if (finished)
+                release();
+            return page;
+        }
+
+        public void close() {
+            finished = true;
+            synchronized (this) {
+                release();
+            }
+        }
+
+        private void release() {
+            appFilterIterator = null;
+            if (xpp != null) {
+                xpp.close();
+                xpp = null;
+            }
+        }
+
+        private void start() {
+            started = true;
+            if (resources == null) {
+                finished = true;
+                return;
+            }
+            // search drawable.xml into icons pack apk resource folder
+            int drawableXmlId = resources.getIdentifier("drawable", "xml", iconPackPackageName);
+            if (drawableXmlId > 0) {
+                xpp = resources.getXml(drawableXmlId);
+            } else {
+                ArrayList<DrawableInfo> list = new ArrayList<>();
+                synchronized (IconPackXML.this) {
+                    for (ArraySet<DrawableInfo> infoSet : drawablesByComponent.values())
+                        list.addAll(infoSet);
+                }
+                appFilterIterator = list.iterator();
+            }
+        }
+
+        @Nullable
+        private String nextName() {
+            if (appFilterIterator != null)
+                return appFilterIterator.hasNext() ? appFilterIterator.next().drawableName : null;
+            if (xpp == null)
+                return null;
+            try {
+                int eventType;
+                while ((eventType = xpp.next()) != XmlPullParser.END_DOCUMENT) {
+                    if (eventType != XmlPullParser.START_TAG || !"item".equals(xpp.getName()))
+                        continue;
+                    for (int attrIdx = 0; attrIdx < xpp.getAttributeCount(); attrIdx += 1) {
+                        if (xpp.getAttributeName(attrIdx).equals("drawable"))
+                            return xpp.getAttributeValue(attrIdx);
+                    }
+                }
+            } catch (XmlPullParserException | IOException e) {
+                Log.e(TAG, "parsing drawable.xml", e);
+            }
+            return null;
+        }
+    }
+
     public static class DrawableInfo {
         final String drawableName;
+        // resource id if already known, not part of equals
         final int drawableId;
 
+        DrawableInfo(@NonNull String drawableName) {
+            this(drawableName, 0);
+        }
+
         DrawableInfo(@NonNull String drawableName, int drawableId) {
             this.drawableName = drawableName;
             this.drawableId = drawableId;
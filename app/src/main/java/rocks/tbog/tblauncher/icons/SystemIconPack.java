@@ -12,8 +12,6 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
-import java.util.Collection;
-import java.util.Collections;
 import java.util.List;
 
 import rocks.tbog.tblauncher.utils.DrawableUtils;
@@ -95,12 +93,6 @@ public class SystemIconPack implements IconPack<Void> {
         return DrawableUtils.applyIconMaskShape(ctx, icon, mAdaptiveShape, fitInside);
     }
 
-    @NonNull
-    @Override
-    public Collection<Void> getDrawableList() {
-        return Collections.emptyList();
-    }
-
     @Nullable
     @Override
     public Drawable getDrawable(@NonNull Void aVoid) {
@@ -0,0 +1,142 @@
+package rocks.tbog.tblauncher.loader;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import rocks.tbog.tblauncher.entry.ContactEntry;
+import rocks.tbog.tblauncher.normalizer.PhoneNormalizer;
+
+/**
+ * The contacts from the last sync, kept on disk so a cold start only needs the changes made
+ * after {@link #syncTime}.
+ */
+class ContactsSnapshot {
+    private static final String TAG = "ContactsSnapshot";
+    private static final String FILE_NAME = "contacts.snapshot";
+    private static final int MAGIC = 0x54424353;
+    private static final int FORMAT = 1;
+
+    /**
+     * The newest {@link android.provider.ContactsContract.Contacts#CONTACT_LAST_UPDATED_TIMESTAMP}
+     * included in the entries
+     */
+    final long syncTime;
+    @NonNull
+    final ArrayList<ContactEntry> entries;
+
+    ContactsSnapshot(long syncTime, @NonNull ArrayList<ContactEntry> entries) {
+        this.syncTime = syncTime;
+        this.entries = entries;
+    }
+
+    @NonNull
+    private static File getFile(@NonNull Context context) {
+        return new File(context.getCacheDir(), FILE_NAME);
+    }
+
+    @WorkerThread
+    @Nullable
+    static ContactsSnapshot read(@NonNull Context context) {
+        File file = getFile(context);
+        if (!file.isFile())
+            return null;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT)
+                return null;
+            long syncTime = in.readLong();
+            int count = in.readInt();
+            ArrayList<ContactEntry> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i += 1) {
+                String id = in.readUTF();
+                long contactId = in.readLong();
+                String lookupKey = in.readUTF();
+                String phone = in.readUTF();
+                String icon = readNullableUTF(in);
+                boolean primary = in.readBoolean();
+                int timesContacted = in.readInt();
+                boolean starred = in.readBoolean();
+                String name = readNullableUTF(in);
+                String nickname = readNullableUTF(in);
+
+                ContactEntry contact = new ContactEntry(id, contactId, lookupKey, phone,
+                        PhoneNormalizer.simplifyPhoneNumber(phone), icon != null ? Uri.parse(icon) : null,
+                        primary, timesContacted, starred, false);
+                contact.setName(name);
+                if (nickname != null && !nickname.isEmpty())
+                    contact.setNickname(nickname);
+                entries.add(contact);
+            }
+            return new ContactsSnapshot(syncTime, entries);
+        } catch (IOException e) {
+            Log.w(TAG, "read " + file, e);
+        }
+        return null;
+    }
+
+    @WorkerThread
+    static void write(@NonNull Context context, long syncTime, @NonNull List<ContactEntry> entries) {
+        File file = getFile(context);
+        // write to a temporary file, the next start must never see half a snapshot
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(syncTime);
+            out.writeInt(entries.size());
+            for (ContactEntry contact : entries) {
+                out.writeUTF(contact.id);
+                out.writeLong(contact.contactId);
+                out.writeUTF(contact.lookupKey);
+                out.writeUTF(contact.phone);
+                writeNullableUTF(out, contact.iconUri != null ? contact.iconUri.toString() : null);
+                out.writeBoolean(contact.isPrimary());
+                out.writeInt(contact.timesContacted);
+                out.writeBoolean(contact.starred);
+                writeNullableUTF(out, contact.getName());
+                writeNullableUTF(out, contact.getNickname());
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "write " + tmp, e);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            Log.e(TAG, "rename " + tmp);
+            //noinspection ResultOfMethodCallIgnored
+            tmp.delete();
+        }
+    }
+
+    static void delete(@NonNull Context context) {
+        //noinspection ResultOfMethodCallIgnored
+        getFile(context).delete();
+    }
+
+    @Nullable
+    private static String readNullableUTF(@NonNull DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableUTF(@NonNull DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null)
+            out.writeUTF(value);
+    }
+}
@@ -12,24 +12,61 @@ import android.os.UserManager;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import rocks.tbog.tblauncher.DataHandler;
 import rocks.tbog.tblauncher.TBApplication;
 import rocks.tbog.tblauncher.TagsHandler;
 import rocks.tbog.tblauncher.db.AppRecord;
 import rocks.tbog.tblauncher.entry.AppEntry;
+import rocks.tbog.tblauncher.utils.PriorityExecutor;
 import rocks.tbog.tblauncher.utils.UserHandleCompat;
 
 public class LoadAppEntry extends LoadEntryItem<AppEntry> {
+    private static final String TAG = "LoadAppEntry";
+    // the labels are loaded from the resources of each app, do it on more threads
+    private static final PriorityExecutor EXECUTOR_LABELS = new PriorityExecutor(PriorityExecutor.cpuThreadCount(), "LoadAppEntry");
+    // don't start a thread for less activities than this
+    private static final int MIN_ACTIVITIES_PER_THREAD = 16;
 
     private HashMap<String, AppRecord> dbApps = null;
     private ArrayList<AppRecord> pendingChanges = null;
     private final TagsHandler tagsHandler;
 
+    private interface LabelLoader {
+        CharSequence loadLabel();
+    }
+
+    /**
+     * A launcher activity found by the package manager, {@link #app} is set after the label is
+     * loaded
+     */
+    private static class ActivityItem {
+        final String packageName;
+        final String activityName;
+        final UserHandleCompat user;
+        final LabelLoader labelLoader;
+        String componentName = null;
+        String appName = null;
+        AppEntry app = null;
+
+        ActivityItem(String packageName, String activityName, UserHandleCompat user, LabelLoader labelLoader) {
+            this.packageName = packageName;
+            this.activityName = activityName;
+            this.user = user;
+            this.labelLoader = labelLoader;
+        }
+    }
+
     public LoadAppEntry(Context context) {
         super(context);
         tagsHandler = TBApplication.tagsHandler(context);
@@ -81,23 +118,79 @@ public class LoadAppEntry extends LoadEntryItem<AppEntry> {
 
         dbApps = dataHandler.getCachedApps();
         pendingChanges = new ArrayList<>(0);
+        long timeReadDb = System.nanoTime();
+
+        ArrayList<ActivityItem> activities = listActivities(ctx);
+        long timeList = System.nanoTime();
+
+        loadEntries(ctx, activities);
+        long timeLabels = System.nanoTime();
+        // don't remove the apps we didn't get to
+        if (isCancelled())
+            return apps;
+
+        // update the records in the order the activities were found
+        apps.ensureCapacity(activities.size());
+        for (ActivityItem item : activities) {
+            updateRecord(item);
+            apps.add(item.app);
+        }
+
+        ArrayList<AppRecord> removedRecords = new ArrayList<>(0);
+        for (Map.Entry<String, AppRecord> entry : dbApps.entrySet()) {
+            AppRecord rec = entry.getValue();
+            if (rec.isFlagSet(AppRecord.FLAG_VALIDATED))
+                continue;
+            removedRecords.add(rec);
+        }
 
+        // add new apps to database and remove the uninstalled ones
+        dataHandler.updateAppCache(pendingChanges, removedRecords);
+        int changedCount = pendingChanges.size();
+        pendingChanges = null;
+        dbApps = null;
+
+        long end = System.nanoTime();
+        Log.i("time", Long.toString((end - start) / 1000000) + " milliseconds to list apps");
+        Log.i(TAG, "read db " + (timeReadDb - start) / 1000000 + "ms" +
+                ", list " + activities.size() + " activities " + (timeList - timeReadDb) / 1000000 + "ms" +
+                ", labels " + (timeLabels - timeList) / 1000000 + "ms" +
+                ", write " + changedCount + " changed and " + removedRecords.size() + " removed " + (end - timeLabels) / 1000000 + "ms");
+
+        return apps;
+    }
+
+    /**
+     * Ask the package manager for the launcher activities, the profiles are listed in parallel
+     */
+    @WorkerThread
+    @NonNull
+    private ArrayList<ActivityItem> listActivities(@NonNull Context ctx) {
+        ArrayList<ActivityItem> activities = new ArrayList<>();
         if (android.os.Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
             UserManager manager = (UserManager) ctx.getSystemService(Context.USER_SERVICE);
             LauncherApps launcher = (LauncherApps) ctx.getSystemService(Context.LAUNCHER_APPS_SERVICE);
-            if (manager != null && launcher != null)
-                // Handle multi-profile support introduced in Android 5 (#542)
-                for (android.os.UserHandle profile : manager.getUserProfiles()) {
-                    UserHandleCompat user = new UserHandleCompat(manager.getSerialNumberForUser(profile), profile);
-                    for (LauncherActivityInfo activityInfo : launcher.getActivityList(null, profile)) {
-                        ApplicationInfo appInfo = activityInfo.getApplicationInfo();
-
-                        String displayName = activityInfo.getLabel().toString();
-                        AppEntry app = processApp(displayName, appInfo.packageName, activityInfo.getName(), user);
-
-                        apps.add(app);
-                    }
+            if (manager == null || launcher == null)
+                return activities;
+            // Handle multi-profile support introduced in Android 5 (#542)
+            List<android.os.UserHandle> profiles = manager.getUserProfiles();
+            ArrayList<Future<List<LauncherActivityInfo>>> lists = new ArrayList<>(profiles.size());
+            // the first profile is listed by this thread
+            for (int i = 1; i < profiles.size(); i += 1) {
+                final android.os.UserHandle profile = profiles.get(i);
+                lists.add(EXECUTOR_LABELS.submit(() -> launcher.getActivityList(null, profile)));
+            }
+            for (int i = 0; i < profiles.size(); i += 1) {
+                android.os.UserHandle profile = profiles.get(i);
+                List<LauncherActivityInfo> activityList = i == 0 ? launcher.getActivityList(null, profile) : waitFor(lists.get(i - 1));
+                if (activityList == null)
+                    activityList = launcher.getActivityList(null, profile);
+                UserHandleCompat user = new UserHandleCompat(manager.getSerialNumberForUser(profile), profile);
+                for (LauncherActivityInfo activityInfo : activityList) {
+                    ApplicationInfo appInfo = activityInfo.getApplicationInfo();
+                    activities.add(new ActivityItem(appInfo.packageName, activityInfo.getName(), user, activityInfo::getLabel));
                 }
+            }
         } else {
             PackageManager manager = ctx.getPackageManager();
 
@@ -107,39 +200,87 @@ public class LoadAppEntry extends LoadEntryItem<AppEntry> {
             for (ResolveInfo info : manager.queryIntentActivities(mainIntent, 0)) {
                 UserHandleCompat user = UserHandleCompat.CURRENT_USER;
                 ApplicationInfo appInfo = info.activityInfo.applicationInfo;
-
-                String displayName = info.loadLabel(manager).toString();
-                AppEntry app = processApp(displayName, appInfo.packageName, info.activityInfo.name, user);
-
-                apps.add(app);
+                activities.add(new ActivityItem(appInfo.packageName, info.activityInfo.name, user, () -> info.loadLabel(manager)));
             }
         }
+        return activities;
+    }
 
-        // add new apps to database
-        dataHandler.updateAppCache(pendingChanges);
-        pendingChanges.clear();
+    /**
+     * Load the labels and create the entries. This thread and the label executor take the next
+     * activity from the list until all are done.
+     */
+    @WorkerThread
+    private void loadEntries(@NonNull Context ctx, @NonNull ArrayList<ActivityItem> activities) {
+        final AtomicInteger next = new AtomicInteger(0);
+        final Runnable worker = () -> {
+            int index;
+            while ((index = next.getAndIncrement()) < activities.size() && !isCancelled())
+                loadEntry(ctx, activities.get(index));
+        };
+        int threadCount = Math.min(PriorityExecutor.cpuThreadCount(), activities.size() / MIN_ACTIVITIES_PER_THREAD);
+        ArrayList<Future<?>> futures = new ArrayList<>(threadCount);
+        for (int i = 1; i < threadCount; i += 1)
+            futures.add(EXECUTOR_LABELS.submit(worker));
+        worker.run();
+        for (Future<?> future : futures)
+            waitFor(future);
+        if (isCancelled())
+            return;
+        // a worker may have failed, load what's left on this thread
+        for (ActivityItem item : activities)
+            if (item.app == null)
+                loadEntry(ctx, item);
+    }
 
-        for (Map.Entry<String, AppRecord> entry : dbApps.entrySet()) {
-            AppRecord rec = entry.getValue();
-            if (rec.isFlagSet(AppRecord.FLAG_VALIDATED))
-                continue;
-            pendingChanges.add(rec);
+    @Nullable
+    private static <T> T waitFor(@NonNull Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Log.e(TAG, "load apps", e.getCause());
+        } catch (InterruptedException e) {
+            Log.e(TAG, "load apps", e);
+            Thread.currentThread().interrupt();
         }
+        return null;
+    }
 
-        // remove apps from database
-        dataHandler.removeAppCache(pendingChanges);
-        pendingChanges = null;
-        dbApps = null;
+    /**
+     * Create the entry, only reads {@link #dbApps} so it can run on any thread
+     */
+    @WorkerThread
+    private void loadEntry(@NonNull Context ctx, @NonNull ActivityItem item) {
+        String appName = item.labelLoader.loadLabel().toString();
+        UserHandleCompat user = item.user;
+        String componentName = user.getUserComponentName(item.packageName, item.activityName);
+        AppRecord rec = dbApps.get(componentName);
 
-        long end = System.nanoTime();
-        Log.i("time", Long.toString((end - start) / 1000000) + " milliseconds to list apps");
+        String id = getScheme() + componentName;
+//        boolean isExcluded = excludedAppList.contains(componentName);
+//        boolean isExcludedFromHistory = excludedFromHistoryAppList.contains(id);
+        AppEntry app = new AppEntry(id, item.packageName, item.activityName, user);
 
-        return apps;
+        if (rec != null && rec.hasCustomName())
+            app.setName(rec.displayName);
+        else
+            app.setName(user.getBadgedLabelForUser(ctx, appName));
+        if (rec != null && rec.hasCustomIcon())
+            app.setCustomIcon(rec.dbId);
+        app.setHiddenByUser(rec != null && rec.isHidden());
+        app.setTags(tagsHandler.getTags(app.id));
+
+        item.componentName = componentName;
+        item.appName = appName;
+        item.app = app;
     }
 
-    @NonNull
-    private AppEntry processApp(String appName, String packageName, String activityName, UserHandleCompat user) {
-        String componentName = user.getUserComponentName(packageName, activityName);
+    /**
+     * Add the new and renamed apps to {@link #pendingChanges}
+     */
+    private void updateRecord(@NonNull ActivityItem item) {
+        String componentName = item.componentName;
+        String appName = item.appName;
         AppRecord rec = dbApps.get(componentName);
         if (rec == null) {
             rec = new AppRecord();
@@ -153,21 +294,5 @@ public class LoadAppEntry extends LoadEntryItem<AppEntry> {
         }
 
         rec.addFlags(AppRecord.FLAG_VALIDATED);
-
-        String id = getScheme() + componentName;
-//        boolean isExcluded = excludedAppList.contains(componentName);
-//        boolean isExcludedFromHistory = excludedFromHistoryAppList.contains(id);
-        AppEntry app = new AppEntry(id, packageName, activityName, user);
-
-        if (rec.hasCustomName())
-            app.setName(rec.displayName);
-        else
-            app.setName(user.getBadgedLabelForUser(context.get(), appName));
-        if (rec.hasCustomIcon())
-            app.setCustomIcon(rec.dbId);
-        app.setHiddenByUser(rec.isHidden());
-        app.setTags(tagsHandler.getTags(app.id));
-
-        return app;
     }
 }
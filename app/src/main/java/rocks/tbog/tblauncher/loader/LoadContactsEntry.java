@@ -1,30 +1,61 @@
 package rocks.tbog.tblauncher.loader;
 
+import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.Context;
 import android.database.Cursor;
 import android.net.Uri;
 import android.provider.ContactsContract;
+import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.app.ActivityCompat;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.List;
 
 import rocks.tbog.tblauncher.Permission;
+import rocks.tbog.tblauncher.dataprovider.ContactsProvider;
+import rocks.tbog.tblauncher.dataprovider.Provider;
 import rocks.tbog.tblauncher.entry.ContactEntry;
 import rocks.tbog.tblauncher.normalizer.PhoneNormalizer;
 import rocks.tbog.tblauncher.normalizer.StringNormalizer;
 
 public class LoadContactsEntry extends LoadEntryItem<ContactEntry> {
+    private static final String TAG = "LoadContacts";
+    // with more changed contacts it's faster to load all of them
+    private static final int MAX_CHANGED_CONTACTS = 500;
+    // how many contact ids to put in one query
+    private static final int IDS_PER_QUERY = 200;
+    // give the provider this many contacts at a time while loading all of them
+    private static final int PUBLISH_CHUNK_SIZE = 250;
 
+    @Nullable
+    private final List<ContactEntry> baseEntries;
+    private final long baseSyncTime;
+    private long syncTime = 0;
+
+    /**
+     * Load the contacts from the snapshot and the changes made after it. Load all the contacts if
+     * there is no snapshot.
+     */
     public LoadContactsEntry(Context context) {
+        this(context, null, 0);
+    }
+
+    /**
+     * Load the changes made to the contacts after the last sync
+     *
+     * @param entries  the contacts from the last sync
+     * @param syncTime the time of the last sync, see {@link #getSyncTime()}
+     */
+    public LoadContactsEntry(Context context, @Nullable List<ContactEntry> entries, long syncTime) {
         super(context);
+        this.baseEntries = entries;
+        this.baseSyncTime = syncTime;
     }
 
     @NonNull
@@ -33,165 +64,277 @@ public class LoadContactsEntry extends LoadEntryItem<ContactEntry> {
         return ContactEntry.SCHEME;
     }
 
+    /**
+     * @return the newest contact update time included in the result
+     */
+    public long getSyncTime() {
+        return syncTime;
+    }
+
     @Override
     protected ArrayList<ContactEntry> doInBackground(Void... params) {
         long start = System.nanoTime();
 
-        ArrayList<ContactEntry> contacts = new ArrayList<>();
         Context c = context.get();
         if (c == null) {
-            return contacts;
+            return new ArrayList<>();
         }
 
         // Skip if we don't have permission to list contacts yet:(
         if (!Permission.checkPermission(c, Permission.PERMISSION_READ_CONTACTS)) {
-            return contacts;
+            ContactsSnapshot.delete(c);
+            return new ArrayList<>();
         }
 
-        // Run query
-        Cursor cur = context.get().getContentResolver().query(
-                ContactsContract.CommonDataKinds.Phone.CONTENT_URI,
-                new String[]{ContactsContract.Contacts.LOOKUP_KEY,
-                        ContactsContract.CommonDataKinds.Phone.TIMES_CONTACTED,
-                        ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME,
-                        ContactsContract.CommonDataKinds.Phone.NUMBER,
-                        ContactsContract.CommonDataKinds.Phone.STARRED,
-                        ContactsContract.CommonDataKinds.Phone.IS_PRIMARY,
-                        ContactsContract.Contacts.PHOTO_ID,
-                        ContactsContract.Contacts._ID}, null, null, null);
-
-        // Prevent duplicates by keeping in memory encountered contacts.
-        Map<String, Set<ContactEntry>> mapContacts = new HashMap<>();
-
-        if (cur != null) {
-            if (cur.getCount() > 0) {
-                int lookupIndex = cur.getColumnIndex(ContactsContract.Contacts.LOOKUP_KEY);
-                int timesContactedIndex = cur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.TIMES_CONTACTED);
-                int displayNameIndex = cur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.DISPLAY_NAME);
-                int numberIndex = cur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.NUMBER);
-                int starredIndex = cur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.STARRED);
-                int isPrimaryIndex = cur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.IS_PRIMARY);
-                int photoIdIndex = cur.getColumnIndex(ContactsContract.Contacts.PHOTO_ID);
-                int contactIdIndex = cur.getColumnIndex(ContactsContract.Contacts._ID);
-
-                while (cur.moveToNext()) {
-                    String lookupKey = cur.getString(lookupIndex);
-                    int timesContacted = cur.getInt(timesContactedIndex);
-                    String name = cur.getString(displayNameIndex);
-                    int contactId = cur.getInt(contactIdIndex);
-
-                    String phone = cur.getString(numberIndex);
-                    if (phone == null) {
-                        phone = "";
-                    }
+        List<ContactEntry> base = baseEntries;
+        long baseTime = baseSyncTime;
+        boolean published = false;
+        if (base == null) {
+            ContactsSnapshot snapshot = ContactsSnapshot.read(c);
+            if (snapshot != null) {
+                base = snapshot.entries;
+                baseTime = snapshot.syncTime;
+                // cold start, search the contacts from the last sync while we check for changes
+                publishProgress(new ArrayList<>(snapshot.entries));
+                published = true;
+            }
+        }
 
-                    StringNormalizer.Result normalizedPhone = PhoneNormalizer.simplifyPhoneNumber(phone);
-                    boolean starred = cur.getInt(starredIndex) != 0;
-                    boolean primary = cur.getInt(isPrimaryIndex) != 0;
-                    String photoId = cur.getString(photoIdIndex);
-                    Uri icon = null;
-                    if (photoId != null) {
-                        icon = ContentUris.withAppendedId(ContactsContract.Data.CONTENT_URI,
-                                Long.parseLong(photoId));
-                    }
+        ArrayList<ContactEntry> contacts = null;
+        // the deleted contacts are only kept for some days
+        if (base != null && System.currentTimeMillis() - baseTime < ContactsContract.DeletedContacts.DAYS_KEPT_MILLISECONDS)
+            contacts = loadChanges(c.getContentResolver(), base, baseTime);
+        boolean changesOnly = contacts != null;
+        if (contacts == null)
+            contacts = loadAll(c.getContentResolver(), !published);
 
-                    ContactEntry contact = new ContactEntry(getScheme() + contactId + '/' + phone,
-                            lookupKey, phone, normalizedPhone, icon, primary, timesContacted,
-                            starred, false);
+        if (!isCancelled())
+            ContactsSnapshot.write(c, syncTime, contacts);
 
-                    contact.setName(name);
+        long end = System.nanoTime();
+        Log.i("time", Long.toString((end - start) / 1000000) + " milliseconds to list " + (changesOnly ? "changed " : "") + "contacts");
+        return contacts;
+    }
 
-                    if (name != null) {
-                        Set<ContactEntry> phones = mapContacts.get(contact.lookupKey);
-                        if (phones == null) {
-                            mapContacts.put(contact.lookupKey, phones = new HashSet<>());
-                        }
-                        phones.add(contact);
-                    }
-                }
+    @Override
+    protected void onPostExecute(ArrayList<ContactEntry> result) {
+        Provider<ContactEntry> provider = getProvider();
+        if (provider instanceof ContactsProvider)
+            ((ContactsProvider) provider).setSyncTime(syncTime);
+        super.onPostExecute(result);
+    }
+
+    @NonNull
+    private ArrayList<ContactEntry> loadAll(@NonNull ContentResolver resolver, boolean publish) {
+        // get the time before the query, changes made while we load will be found by the next sync
+        syncTime = 0;
+        try (Cursor cur = resolver.query(ContactsContract.Contacts.CONTENT_URI,
+                new String[]{ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP}, null, null,
+                ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + " DESC")) {
+            if (cur != null && cur.moveToFirst())
+                syncTime = cur.getLong(0);
+        }
+        return queryContacts(resolver, null, publish);
+    }
+
+    /**
+     * Remove the deleted and changed contacts from the base list and add the changed contacts
+     * from a new query.
+     *
+     * @return null if it's better to load all contacts
+     */
+    @Nullable
+    private ArrayList<ContactEntry> loadChanges(@NonNull ContentResolver resolver, @NonNull List<ContactEntry> base, long baseTime) {
+        long newSyncTime = baseTime;
+        String[] selectionArgs = new String[]{Long.toString(baseTime)};
+
+        HashSet<Long> changedIds = new HashSet<>();
+        try (Cursor cur = resolver.query(ContactsContract.Contacts.CONTENT_URI,
+                new String[]{ContactsContract.Contacts._ID, ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP},
+                ContactsContract.Contacts.CONTACT_LAST_UPDATED_TIMESTAMP + ">?", selectionArgs, null)) {
+            if (cur == null)
+                return null;
+            while (cur.moveToNext()) {
+                changedIds.add(cur.getLong(0));
+                newSyncTime = Math.max(newSyncTime, cur.getLong(1));
             }
-            cur.close();
+        }
+        if (changedIds.size() > MAX_CHANGED_CONTACTS)
+            return null;
+
+        HashSet<Long> deletedIds = new HashSet<>();
+        try (Cursor cur = resolver.query(ContactsContract.DeletedContacts.CONTENT_URI,
+                new String[]{ContactsContract.DeletedContacts.CONTACT_ID, ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP},
+                ContactsContract.DeletedContacts.CONTACT_DELETED_TIMESTAMP + ">?", selectionArgs, null)) {
+            if (cur == null)
+                return null;
+            while (cur.moveToNext()) {
+                deletedIds.add(cur.getLong(0));
+                newSyncTime = Math.max(newSyncTime, cur.getLong(1));
+            }
+        }
+
+        ArrayList<ContactEntry> contacts = new ArrayList<>(base.size());
+        for (ContactEntry contact : base) {
+            if (!changedIds.contains(contact.contactId) && !deletedIds.contains(contact.contactId))
+                contacts.add(contact);
         }
 
-        // Retrieve contacts' nicknames
-        Cursor nickCursor = context.get().getContentResolver().query(
+        ArrayList<Long> ids = new ArrayList<>(changedIds);
+        for (int from = 0; from < ids.size(); from += IDS_PER_QUERY) {
+            List<Long> idList = ids.subList(from, Math.min(ids.size(), from + IDS_PER_QUERY));
+            String selection = ContactsContract.Data.CONTACT_ID + " IN (" + TextUtils.join(",", idList) + ")";
+            contacts.addAll(queryContacts(resolver, selection, false));
+        }
+
+        Log.i(TAG, changedIds.size() + " changed and " + deletedIds.size() + " deleted contact(s)");
+        syncTime = newSyncTime;
+        return contacts;
+    }
+
+    /**
+     * Read the phones and the nicknames in one query ordered by lookup key, so each contact can
+     * be finished as soon as the cursor moves to the next one.
+     *
+     * @param contactSelection null for all contacts
+     * @param publish          give the contacts to the provider while loading
+     */
+    @NonNull
+    private ArrayList<ContactEntry> queryContacts(@NonNull ContentResolver resolver, @Nullable String contactSelection, boolean publish) {
+        ArrayList<ContactEntry> contacts = new ArrayList<>();
+
+        String selection = ContactsContract.Data.MIMETYPE + " IN (?,?)";
+        if (contactSelection != null)
+            selection += " AND " + contactSelection;
+        Cursor cur = resolver.query(
                 ContactsContract.Data.CONTENT_URI,
-                new String[]{
-                        ContactsContract.CommonDataKinds.Nickname.NAME,
-                        ContactsContract.Data.LOOKUP_KEY},
-                ContactsContract.Data.MIMETYPE + "= ?",
-                new String[]{ContactsContract.CommonDataKinds.Nickname.CONTENT_ITEM_TYPE},
-                null);
-
-        if (nickCursor != null) {
-            if (nickCursor.getCount() > 0) {
-                int lookupKeyIndex = nickCursor.getColumnIndex(ContactsContract.Data.LOOKUP_KEY);
-                int nickNameIndex = nickCursor.getColumnIndex(ContactsContract.CommonDataKinds.Nickname.NAME);
-                while (nickCursor.moveToNext()) {
-                    String lookupKey = nickCursor.getString(lookupKeyIndex);
-                    String nick = nickCursor.getString(nickNameIndex);
-
-                    if (nick != null && lookupKey != null) {
-                        Set<ContactEntry> phones = mapContacts.get(lookupKey);
-                        if (phones != null)
-                            for (ContactEntry contact : phones) {
-                                contact.setNickname(nick);
-                            }
+                new String[]{ContactsContract.Data.LOOKUP_KEY,
+                        ContactsContract.Data.MIMETYPE,
+                        // same column as ContactsContract.CommonDataKinds.Nickname.NAME
+                        ContactsContract.CommonDataKinds.Phone.NUMBER,
+                        ContactsContract.Data.TIMES_CONTACTED,
+                        ContactsContract.Data.DISPLAY_NAME,
+                        ContactsContract.Data.STARRED,
+                        ContactsContract.Data.IS_PRIMARY,
+                        ContactsContract.Data.PHOTO_ID,
+                        ContactsContract.Data._ID,
+                        ContactsContract.Data.CONTACT_ID},
+                selection,
+                new String[]{ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE,
+                        ContactsContract.CommonDataKinds.Nickname.CONTENT_ITEM_TYPE},
+                ContactsContract.Data.LOOKUP_KEY);
+        if (cur == null)
+            return contacts;
+
+        int lookupIndex = cur.getColumnIndex(ContactsContract.Data.LOOKUP_KEY);
+        int mimeTypeIndex = cur.getColumnIndex(ContactsContract.Data.MIMETYPE);
+        int dataIndex = cur.getColumnIndex(ContactsContract.CommonDataKinds.Phone.NUMBER);
+        int timesContactedIndex = cur.getColumnIndex(ContactsContract.Data.TIMES_CONTACTED);
+        int displayNameIndex = cur.getColumnIndex(ContactsContract.Data.DISPLAY_NAME);
+        int starredIndex = cur.getColumnIndex(ContactsContract.Data.STARRED);
+        int isPrimaryIndex = cur.getColumnIndex(ContactsContract.Data.IS_PRIMARY);
+        int photoIdIndex = cur.getColumnIndex(ContactsContract.Data.PHOTO_ID);
+        int dataIdIndex = cur.getColumnIndex(ContactsContract.Data._ID);
+        int contactIdIndex = cur.getColumnIndex(ContactsContract.Data.CONTACT_ID);
+
+        // phones and nickname of the contact we're reading
+        ContactGroup group = new ContactGroup();
+        int published = 0;
+        try {
+            while (cur.moveToNext() && !isCancelled()) {
+                String lookupKey = cur.getString(lookupIndex);
+                if (lookupKey == null)
+                    continue;
+                if (!lookupKey.equals(group.lookupKey)) {
+                    group.addTo(contacts);
+                    group.reset(lookupKey);
+                    if (publish && contacts.size() - published >= PUBLISH_CHUNK_SIZE) {
+                        publishProgress(new ArrayList<>(contacts.subList(published, contacts.size())));
+                        published = contacts.size();
                     }
                 }
+
+                if (ContactsContract.CommonDataKinds.Nickname.CONTENT_ITEM_TYPE.equals(cur.getString(mimeTypeIndex))) {
+                    String nick = cur.getString(dataIndex);
+                    if (nick != null)
+                        group.nickname = nick;
+                    continue;
+                }
+
+                String name = cur.getString(displayNameIndex);
+                if (name == null)
+                    continue;
+                int timesContacted = cur.getInt(timesContactedIndex);
+                int dataId = cur.getInt(dataIdIndex);
+                long contactId = cur.getLong(contactIdIndex);
+
+                String phone = cur.getString(dataIndex);
+                if (phone == null) {
+                    phone = "";
+                }
+
+                StringNormalizer.Result normalizedPhone = PhoneNormalizer.simplifyPhoneNumber(phone);
+                boolean starred = cur.getInt(starredIndex) != 0;
+                boolean primary = cur.getInt(isPrimaryIndex) != 0;
+                String photoId = cur.getString(photoIdIndex);
+                Uri icon = null;
+                if (photoId != null) {
+                    icon = ContentUris.withAppendedId(ContactsContract.Data.CONTENT_URI,
+                            Long.parseLong(photoId));
+                }
+
+                ContactEntry contact = new ContactEntry(ContactEntry.SCHEME + dataId + '/' + phone,
+                        contactId, lookupKey, phone, normalizedPhone, icon, primary, timesContacted,
+                        starred, false);
+
+                contact.setName(name);
+                group.phones.add(contact);
             }
-            nickCursor.close();
+            group.addTo(contacts);
+        } finally {
+            cur.close();
+        }
+        if (publish && published < contacts.size())
+            publishProgress(new ArrayList<>(contacts.subList(published, contacts.size())));
+        return contacts;
+    }
+
+    /**
+     * The rows of one contact
+     */
+    private static class ContactGroup {
+        String lookupKey = null;
+        String nickname = null;
+        final ArrayList<ContactEntry> phones = new ArrayList<>();
+
+        void reset(String lookupKey) {
+            this.lookupKey = lookupKey;
+            nickname = null;
+            phones.clear();
         }
 
-//        Cursor imCursor = context.get().getContentResolver().query(ContactsContract.Data.CONTENT_URI
-//                , new String[]{ContactsContract.Data.LOOKUP_KEY, ContactsContract.CommonDataKinds.Phone.NUMBER}
-//                , ContactsContract.Data.MIMETYPE + "= ? AND " + ContactsContract.RawContacts.ACCOUNT_TYPE + "= ?"
-//                , new String[]{
-//                        ContactsContract.CommonDataKinds.Phone.CONTENT_ITEM_TYPE,
-//                        "com.whatsapp"
-//                }
-//                , null);
-//
-//        if(imCursor != null) {
-//            int lookupIndex = imCursor.getColumnIndex(ContactsContract.Data.LOOKUP_KEY);
-//            int phoneIndex = imCursor.getColumnIndex(ContactsContract.CommonDataKinds.Phone.NUMBER);
-//            while (imCursor.moveToNext()) {
-//                String lookupKey = imCursor.getString(lookupIndex);
-//                String phone = imCursor.getString(phoneIndex);
-//
-//                if (phone != null && lookupKey != null && mapContacts.containsKey(lookupKey)) {
-//                    for (ContactsPojo contact : mapContacts.get(lookupKey)) {
-//                        if(contact.phone.equals(phone)) {
-//                            contact.hasIM = true;
-//                        }
-//                    }
-//                }
-//            }
-//            imCursor.close();
-//        }
-
-        for (Set<ContactEntry> phones : mapContacts.values()) {
-            // Find primary phone and add this one.
-            boolean hasPrimary = false;
+        /**
+         * Add the primary phone or, if there is none, all the different phones
+         */
+        void addTo(@NonNull ArrayList<ContactEntry> contacts) {
+            if (phones.isEmpty())
+                return;
+            if (nickname != null)
+                for (ContactEntry contact : phones)
+                    contact.setNickname(nickname);
+
             for (ContactEntry contact : phones) {
                 if (contact.isPrimary()) {
                     contacts.add(contact);
-                    hasPrimary = true;
-                    break;
+                    return;
                 }
             }
 
-            // If no primary available, add all (excluding duplicates).
-            if (!hasPrimary) {
-                HashSet<String> added = new HashSet<>(phones.size());
-                for (ContactEntry contact : phones) {
-                    if (added.add(contact.normalizedPhone.toString()))
-                        contacts.add(contact);
-                }
+            HashSet<String> added = new HashSet<>(phones.size());
+            for (ContactEntry contact : phones) {
+                if (added.add(contact.normalizedPhone.toString()))
+                    contacts.add(contact);
             }
         }
-        long end = System.nanoTime();
-        Log.i("time", Long.toString((end - start) / 1000000) + " milliseconds to list contacts");
-        return contacts;
     }
 }
@@ -4,6 +4,7 @@ import android.content.Context;
 import android.os.AsyncTask;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
@@ -11,7 +12,7 @@ import java.util.ArrayList;
 import rocks.tbog.tblauncher.dataprovider.Provider;
 import rocks.tbog.tblauncher.entry.EntryItem;
 
-public abstract class LoadEntryItem<T extends EntryItem> extends AsyncTask<Void, Void, ArrayList<T>> {
+public abstract class LoadEntryItem<T extends EntryItem> extends AsyncTask<Void, ArrayList<T>, ArrayList<T>> {
 
     final WeakReference<Context> context;
     private WeakReference<Provider<T>> weakProvider;
@@ -28,6 +29,24 @@ public abstract class LoadEntryItem<T extends EntryItem> extends AsyncTask<Void,
     @NonNull
     public abstract String getScheme();
 
+    @Nullable
+    protected Provider<T> getProvider() {
+        return weakProvider != null ? weakProvider.get() : null;
+    }
+
+    /**
+     * Give the provider the entries loaded so far
+     */
+    @SafeVarargs
+    @Override
+    protected final void onProgressUpdate(ArrayList<T>... values) {
+        Provider<T> provider = getProvider();
+        if (provider != null && !isCancelled()) {
+            for (ArrayList<T> entries : values)
+                provider.loadPartial(entries);
+        }
+    }
+
     @Override
     protected void onPostExecute(ArrayList<T> result) {
         super.onPostExecute(result);
@@ -2,6 +2,9 @@ package rocks.tbog.tblauncher.normalizer;
 
 import androidx.annotation.NonNull;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.nio.CharBuffer;
 import java.text.Normalizer;
 import java.util.Arrays;
@@ -102,8 +105,29 @@ public class StringNormalizer {
     }
 
     public static class Result implements Comparable<Result> {
+        /**
+         * code point is lowercase and has a different uppercase
+         */
+        public static final byte CHAR_LOWER = 0x01;
+        /**
+         * code point is uppercase and has a different lowercase
+         */
+        public static final byte CHAR_UPPER = 0x02;
+        /**
+         * code point is whitespace
+         */
+        public static final byte CHAR_SEPARATOR = 0x04;
+
         private final int originalInputLastCharPosition;
         public final int[] codePoints;
+        /**
+         * `codePoints` converted to lowercase, may be the same array if there is nothing to convert
+         */
+        public final int[] lowerCodePoints;
+        /**
+         * Character class for each code point, a combination of CHAR_LOWER, CHAR_UPPER and CHAR_SEPARATOR
+         */
+        public final byte[] charClass;
         private final int[] mapPositions;
 
         Result(final int originalInputLastCharPosition,
@@ -113,12 +137,65 @@ public class StringNormalizer {
             this.originalInputLastCharPosition = originalInputLastCharPosition;
             this.codePoints = codePoints;
             this.mapPositions = mapPositions;
+
+            // compute once what the search needs for each code point
+            int[] lower = null;
+            charClass = new byte[codePoints.length];
+            for (int i = 0; i < codePoints.length; i += 1) {
+                int codePoint = codePoints[i];
+                int codePointLower = Character.toLowerCase(codePoint);
+                int codePointUpper = Character.toUpperCase(codePoint);
+                byte flags = 0;
+                if (codePointLower != codePointUpper) {
+                    if (codePoint == codePointLower)
+                        flags |= CHAR_LOWER;
+                    else if (codePoint == codePointUpper)
+                        flags |= CHAR_UPPER;
+                }
+                if (Character.isWhitespace(codePoint))
+                    flags |= CHAR_SEPARATOR;
+                charClass[i] = flags;
+                if (codePointLower != codePoint) {
+                    if (lower == null)
+                        lower = Arrays.copyOf(codePoints, codePoints.length);
+                    lower[i] = codePointLower;
+                }
+            }
+            lowerCodePoints = lower != null ? lower : codePoints;
         }
 
         public int length() {
             return this.codePoints.length;
         }
 
+        /**
+         * Store the normalized text so it can be used without normalizing it again
+         */
+        public void writeTo(@NonNull DataOutput out) throws IOException {
+            out.writeInt(originalInputLastCharPosition);
+            out.writeInt(codePoints.length);
+            for (int codePoint : codePoints)
+                out.writeInt(codePoint);
+            for (int position : mapPositions)
+                out.writeInt(position);
+        }
+
+        /**
+         * Read what {@link #writeTo} stored
+         */
+        @NonNull
+        public static Result readFrom(@NonNull DataInput in) throws IOException {
+            int originalInputLastCharPosition = in.readInt();
+            int length = in.readInt();
+            int[] codePoints = new int[length];
+            int[] mapPositions = new int[length];
+            for (int i = 0; i < length; i += 1)
+                codePoints[i] = in.readInt();
+            for (int i = 0; i < length; i += 1)
+                mapPositions[i] = in.readInt();
+            return new Result(originalInputLastCharPosition, codePoints, mapPositions);
+        }
+
         /**
          * Map a position in the normalized string to a position in the original string
          *
@@ -141,7 +218,7 @@ public class StringNormalizer {
             int result;
             int minLength = Math.min(this.codePoints.length, that.codePoints.length);
             for (int i = 0; i < minLength; i += 1) {
-                if ((result = Character.toLowerCase(this.codePoints[i]) - Character.toLowerCase(that.codePoints[i])) != 0)
+                if ((result = this.lowerCodePoints[i] - that.lowerCodePoints[i]) != 0)
                     return result;
             }
 
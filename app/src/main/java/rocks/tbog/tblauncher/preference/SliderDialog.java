@@ -69,9 +69,15 @@ public class SliderDialog extends PreferenceDialogFragmentCompat {
                 break;
             case "result-history-size":
             case "result-history-adaptive":
+            case "result-history-half-life":
             case "result-search-cap":
+            case "search-provider-timeout":
                 mSliderOffset = 1;
                 seekBar.setMax(1000 - mSliderOffset);
+                break;
+            case "speculative-search-count":
+                mSliderOffset = 0;
+                seekBar.setMax(5);
         }
 
         int seekBarProgress = (Integer) preference.getValue() - mSliderOffset;
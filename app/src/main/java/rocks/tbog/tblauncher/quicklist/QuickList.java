@@ -32,6 +32,7 @@ import rocks.tbog.tblauncher.dataprovider.IProvider;
 import rocks.tbog.tblauncher.dataprovider.Provider;
 import rocks.tbog.tblauncher.dataprovider.QuickListProvider;
 import rocks.tbog.tblauncher.entry.EntryItem;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.ui.ListPopup;
 import rocks.tbog.tblauncher.utils.UIColors;
 
@@ -159,7 +160,7 @@ public class QuickList {
                         Collections.sort(list, comparator);
                     }
                     app.behaviour().clearSearch();
-                    app.behaviour().updateAdapter(list, false);
+                    app.behaviour().updateAdapter(ScoredHit.fromEntries(list), false);
                     mLastSelection = actionId;
                     bActionOn = true;
                 }
@@ -183,7 +184,7 @@ public class QuickList {
                 List<? extends EntryItem> list;
                 list = provider != null ? provider.getPojos() : null;
                 if (list != null) {
-                    app.behaviour().updateAdapter(list, false);
+                    app.behaviour().updateAdapter(ScoredHit.fromEntries(list), false);
                     mLastSelection = filterName;
                     bFilterOn = true;
                 } else {
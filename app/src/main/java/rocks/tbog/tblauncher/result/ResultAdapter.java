@@ -19,10 +19,14 @@ import org.jetbrains.annotations.NotNull;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 
 import rocks.tbog.tblauncher.TBApplication;
 import rocks.tbog.tblauncher.entry.EntryItem;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
+import rocks.tbog.tblauncher.ui.LinearAdapter;
 import rocks.tbog.tblauncher.ui.ListPopup;
+import rocks.tbog.tblauncher.utils.DebugInfo;
 
 public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filterable {
 
@@ -30,9 +34,9 @@ public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filter
      * Array list containing all the results currently displayed
      */
     @NonNull
-    private final ArrayList<EntryItem> results;
+    private final ArrayList<ScoredHit> results;
     @Nullable
-    private ArrayList<EntryItem> resultsOriginal = null;
+    private ArrayList<ScoredHit> resultsOriginal = null;
 
     // Mapping from letter to a position (only used for fast scroll, when viewing app list)
     private HashMap<String, Integer> alphaIndexer = new HashMap<>();
@@ -40,7 +44,7 @@ public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filter
     private String[] sections = new String[0];
     private Filter mFilter = new FilterById();
 
-    public ResultAdapter(@NotNull ArrayList<EntryItem> results) {
+    public ResultAdapter(@NotNull ArrayList<ScoredHit> results) {
         this.results = results;
     }
 
@@ -51,7 +55,7 @@ public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filter
 
     @Override
     public int getItemViewType(int position) {
-        return ResultHelper.getItemViewType(results.get(position));
+        return ResultHelper.getItemViewType(results.get(position).entry);
     }
 
     @Override
@@ -66,14 +70,14 @@ public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filter
 
     @Override
     public Object getItem(int position) {
-        return results.get(position);
+        return results.get(position).entry;
     }
 
     @Override
     public long getItemId(int position) {
         // In some situation, Android tries to display an item that does not exist (e.g. item 24 in a list containing 22 items)
         // See https://github.com/Neamar/KISS/issues/890
-        return position < results.size() ? results.get(position).id.hashCode() : -1;
+        return position < results.size() ? results.get(position).entry.id.hashCode() : -1;
     }
 
     @Override
@@ -90,12 +94,13 @@ public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filter
         if (prefs.getBoolean("shortcut-show-badge", true))
             drawFlags |= EntryItem.FLAG_DRAW_ICON_BADGE;
 
-        EntryItem entryItem = results.get(position);
+        ScoredHit hit = results.get(position);
+        EntryItem entryItem = hit.entry;
         if (convertView == null) {
             LayoutInflater inflater = LayoutInflater.from(context);
             convertView = inflater.inflate(entryItem.getResultLayout(drawFlags), parent, false);
         }
-        entryItem.displayResult(convertView, drawFlags);
+        entryItem.displayResult(convertView, drawFlags, hit);
         return convertView;
     }
 
@@ -103,7 +108,7 @@ public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filter
         final EntryItem result;
 
         try {
-            result = results.get(position);
+            result = results.get(position).entry;
             ResultHelper.launch(v, result);
         } catch (ArrayIndexOutOfBoundsException e) {
 //            return;
@@ -119,12 +124,20 @@ public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filter
 
     public boolean onLongClick(final int pos, View v) {
         ListPopup menu;
+        ScoredHit hit;
         try {
-            menu = results.get(pos).getPopupMenu(v);
+            hit = results.get(pos);
+            menu = hit.entry.getPopupMenu(v);
         } catch (ArrayIndexOutOfBoundsException ignored) {
             return false;
         }
 
+        if (DebugInfo.itemRelevance(v.getContext()) && menu.getAdapter() instanceof LinearAdapter) {
+            LinearAdapter adapter = (LinearAdapter) menu.getAdapter();
+            adapter.add(new LinearAdapter.ItemTitle("Debug info"));
+            adapter.add(new LinearAdapter.ItemString("Relevance: " + hit.score));
+        }
+
         // check if menu contains elements and if yes show it
         if (!menu.getAdapter().isEmpty()) {
             TBApplication.behaviour(v.getContext()).registerPopup(menu);
@@ -141,18 +154,27 @@ public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filter
      * @param result what to remove
      */
     public void removeResult(EntryItem result) {
-        results.remove(result);
+        removeEntry(results, result);
         if (resultsOriginal != null)
-            resultsOriginal.remove(result);
+            removeEntry(resultsOriginal, result);
         notifyDataSetChanged();
     }
 
+    private static void removeEntry(@NonNull ArrayList<ScoredHit> list, @NonNull EntryItem entry) {
+        for (Iterator<ScoredHit> iterator = list.iterator(); iterator.hasNext(); ) {
+            if (iterator.next().entry.equals(entry)) {
+                iterator.remove();
+                break;
+            }
+        }
+    }
+
     /**
      * Should be called only from Behaviour.
      *
      * @param results new list of results
      */
-    public void updateResults(Collection<? extends EntryItem> results) {
+    public void updateResults(Collection<ScoredHit> results) {
         resultsOriginal = null;
         this.results.clear();
         this.results.addAll(results);
@@ -254,10 +276,10 @@ public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filter
             if (constraint == null || constraint.length() == 0 || resultsOriginal == null)
                 return null;
             String schema = constraint.toString();
-            ArrayList<EntryItem> filterList = new ArrayList<>();
-            for (EntryItem entryItem : resultsOriginal) {
-                if (entryItem.id.startsWith(schema))
-                    filterList.add(entryItem);
+            ArrayList<ScoredHit> filterList = new ArrayList<>();
+            for (ScoredHit hit : resultsOriginal) {
+                if (hit.entry.id.startsWith(schema))
+                    filterList.add(hit);
             }
             FilterResults filterResults = new FilterResults();
             filterResults.values = filterList;
@@ -271,7 +293,7 @@ public class ResultAdapter extends BaseAdapter implements SectionIndexer, Filter
         protected void publishResults(CharSequence constraint, FilterResults filterResults) {
             if (filterResults != null) {
                 results.clear();
-                results.addAll((ArrayList<EntryItem>) filterResults.values);
+                results.addAll((ArrayList<ScoredHit>) filterResults.values);
                 notifyDataSetChanged();
             } else if (resultsOriginal != null) {
                 results.clear();
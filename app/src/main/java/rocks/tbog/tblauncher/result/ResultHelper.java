@@ -16,7 +16,6 @@ import rocks.tbog.tblauncher.BuildConfig;
 import rocks.tbog.tblauncher.Permission;
 import rocks.tbog.tblauncher.R;
 import rocks.tbog.tblauncher.TBApplication;
-import rocks.tbog.tblauncher.db.DBHelper;
 import rocks.tbog.tblauncher.entry.AppEntry;
 import rocks.tbog.tblauncher.entry.ContactEntry;
 import rocks.tbog.tblauncher.entry.EntryItem;
@@ -77,7 +76,7 @@ public class ResultHelper {
     }
 
     private static void removeFromHistory(@NonNull EntryItem pojo, @NonNull Context context) {
-        DBHelper.removeFromHistory(context, pojo.id);
+        TBApplication.dataHandler(context).removeFromHistory(pojo.id);
     }
 
     public static void launchAddToFavorites(@NonNull Context context, EntryItem pojo) {
@@ -4,12 +4,12 @@ import android.app.Activity;
 import android.content.Context;
 import android.graphics.drawable.Drawable;
 import android.os.AsyncTask;
+import android.os.Handler;
+import android.os.Looper;
 import android.text.Spannable;
 import android.text.SpannableString;
 import android.text.SpannableStringBuilder;
 import android.text.style.ForegroundColorSpan;
-import android.util.Log;
-import android.util.Pair;
 import android.util.TypedValue;
 import android.view.ViewGroup;
 import android.widget.ImageView;
@@ -17,40 +17,50 @@ import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
 import androidx.annotation.WorkerThread;
 
 import java.lang.ref.WeakReference;
-import java.lang.reflect.Constructor;
-import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 import rocks.tbog.tblauncher.TBApplication;
 import rocks.tbog.tblauncher.entry.EntryItem;
 import rocks.tbog.tblauncher.entry.EntryWithTags;
 import rocks.tbog.tblauncher.normalizer.StringNormalizer;
+import rocks.tbog.tblauncher.searcher.ScoredHit;
 import rocks.tbog.tblauncher.utils.FuzzyScore;
+import rocks.tbog.tblauncher.utils.PriorityExecutor;
 import rocks.tbog.tblauncher.utils.UIColors;
 import rocks.tbog.tblauncher.utils.UISizes;
 import rocks.tbog.tblauncher.utils.Utilities;
 
 public final class ResultViewHelper {
 
+    /**
+     * Serial and in order, for the AsyncTask icon loaders of the dialogs
+     */
     public final static Executor EXECUTOR_LOAD_ICON = AsyncTask.SERIAL_EXECUTOR;
+    /**
+     * Icons of the entries, the last bound view loads first. Only {@link AsyncSetEntryDrawable}
+     * and {@link rocks.tbog.tblauncher.IconPreRender} use it, they don't depend on the order.
+     */
+    public final static PriorityExecutor EXECUTOR_ENTRY_ICON = new PriorityExecutor(PriorityExecutor.cpuThreadCount(), "LoadIcon");
     private static final String TAG = "RVH";
 
     private ResultViewHelper() {
         // this is a namespace
     }
 
-    private static SpannableString highlightText(StringNormalizer.Result normalized, String text, FuzzyScore.MatchInfo matchInfo, int color) {
+    private static SpannableString highlightText(StringNormalizer.Result normalized, String text, long[] matchedRanges, int color) {
         SpannableString enriched = new SpannableString(text);
 
-        for (Pair<Integer, Integer> position : matchInfo.getMatchedSequences()) {
+        for (long range : matchedRanges) {
             enriched.setSpan(
                     new ForegroundColorSpan(color),
-                    normalized.mapPosition(position.first),
-                    normalized.mapPosition(position.second),
+                    normalized.mapPosition(FuzzyScore.rangeStart(range)),
+                    normalized.mapPosition(FuzzyScore.rangeEnd(range)),
                     Spannable.SPAN_INCLUSIVE_EXCLUSIVE
             );
         }
@@ -61,29 +71,27 @@ public final class ResultViewHelper {
     /**
      * Highlight text
      *
-     * @param relevance the mapping and code points of the matched text
-     * @param normText  the mapping and code points of the provided text
-     * @param text      provided visible text that may need highlighting
-     * @param matchInfo matched sequences
-     * @param view      TextView that gets the text
+     * @param hit      the search hit with the matched text and sequences
+     * @param normText the mapping and code points of the provided text
+     * @param text     provided visible text that may need highlighting
+     * @param view     TextView that gets the text
      * @return if the text got any matches
      */
-    public static boolean displayHighlighted(@Nullable StringNormalizer.Result relevance, StringNormalizer.Result normText,
-                                             String text, @Nullable FuzzyScore.MatchInfo matchInfo,
-                                             TextView view) {
-        if (matchInfo == null || !matchInfo.match || !normText.equals(relevance)) {
+    public static boolean displayHighlighted(@Nullable ScoredHit hit, StringNormalizer.Result normText,
+                                             String text, TextView view) {
+        if (hit == null || !hit.isMatchOf(normText)) {
             view.setText(text);
             return false;
         }
 
         int color = UIColors.getResultHighlightColor(view.getContext());
-        view.setText(highlightText(normText, text, matchInfo, color));
+        view.setText(highlightText(normText, text, hit.getMatchedRanges(), color));
 
         return true;
     }
 
-    public static boolean displayHighlighted(StringNormalizer.Result normalized, Iterable<EntryWithTags.TagDetails> tags,
-                                             @Nullable FuzzyScore.MatchInfo matchInfo, TextView view, Context context) {
+    public static boolean displayHighlighted(@Nullable ScoredHit hit, Iterable<EntryWithTags.TagDetails> tags,
+                                             TextView view, Context context) {
 //        final StringBuilder debug = new StringBuilder();
 //        Printer debugPrint = x -> debug.append(x).append("\n");
         boolean matchFound = false;
@@ -95,8 +103,8 @@ public final class ResultViewHelper {
             if (!first)
                 builder.append(" \u2223 ");
             first = false;
-            if (matchInfo != null && matchInfo.match && tag.normalized.equals(normalized)) {
-                builder.append(highlightText(tag.normalized, tag.name, matchInfo, color));
+            if (hit != null && hit.isMatchOf(tag.normalized)) {
+                builder.append(highlightText(tag.normalized, tag.name, hit.getMatchedRanges(), color));
                 matchFound = true;
 
 //                debug.setLength(0);
@@ -111,11 +119,13 @@ public final class ResultViewHelper {
         return matchFound;
     }
 
-    public static void setIconAsync(int drawFlags, @NonNull EntryItem entry, @NonNull ImageView appIcon, @NonNull Class<? extends AsyncSetEntryDrawable> asyncSetEntryIconClass) {
+    public static void setIconAsync(int drawFlags, @NonNull EntryItem entry, @NonNull ImageView appIcon, @NonNull AsyncSetEntryDrawable.Factory factory) {
         if (!Utilities.checkFlag(drawFlags, EntryItem.FLAG_DRAW_NO_CACHE)) {
             Drawable cache = TBApplication.drawableCache(appIcon.getContext()).getCachedDrawable(entry.id);
             if (cache != null) {
                 // found the icon in cache
+                if (appIcon.getTag() instanceof AsyncSetEntryDrawable)
+                    ((AsyncSetEntryDrawable) appIcon.getTag()).cancel();
                 appIcon.setImageDrawable(cache);
                 appIcon.setTag(entry.id);
                 // continue to run the async task only if FLAG_RELOAD set
@@ -125,15 +135,7 @@ public final class ResultViewHelper {
         }
 
         // run the async task
-        AsyncSetEntryDrawable task;
-        try {
-            Constructor<? extends AsyncSetEntryDrawable> constructor = asyncSetEntryIconClass.getConstructor(ImageView.class, int.class, EntryItem.class);
-            task = constructor.newInstance(appIcon, drawFlags, entry);
-        } catch (IllegalAccessException | InstantiationException | NoSuchMethodException | InvocationTargetException e) {
-            Log.e(TAG, "new <? extends AsyncSetEntryDrawable>", e);
-            return;
-        }
-        task.executeOnExecutor(EXECUTOR_LOAD_ICON);
+        factory.newTask(appIcon, drawFlags, entry).execute();
     }
 
     public static void applyPreferences(int drawFlags, TextView nameView, ImageView iconView) {
@@ -169,14 +171,38 @@ public final class ResultViewHelper {
         tagsView.setTextSize(TypedValue.COMPLEX_UNIT_PX, UISizes.getResultText2Size(ctx));
     }
 
-    public static abstract class AsyncSetEntryDrawable extends AsyncTask<Void, Void, Drawable> {
+    /**
+     * Load the icon of an entry on {@link #EXECUTOR_ENTRY_ICON} and set it to an ImageView.
+     * Tasks loading the same icon at the same time share the result.
+     */
+    public static abstract class AsyncSetEntryDrawable extends PriorityExecutor.Task {
+        // tasks waiting or running, by shared key; only accessed from the UI thread
+        private static final HashMap<String, AsyncSetEntryDrawable> IN_FLIGHT = new HashMap<>();
+        private static final Handler MAIN_HANDLER = new Handler(Looper.getMainLooper());
         private final WeakReference<ImageView> weakImage;
+        private final WeakReference<Context> weakContext;
         protected final String cacheId;
         protected int drawFlags;
         protected EntryItem entryItem;
+        // the ImageView does not need this drawable anymore
+        private boolean viewCancelled = false;
+        // nobody needs this drawable anymore
+        private volatile boolean cancelled = false;
+        private boolean done = false;
+        // task loading the drawable for us
+        @Nullable
+        private AsyncSetEntryDrawable leader = null;
+        // tasks waiting for our drawable
+        @Nullable
+        private ArrayList<AsyncSetEntryDrawable> followers = null;
+
+        public interface Factory {
+            @NonNull
+            AsyncSetEntryDrawable newTask(@NonNull ImageView image, int drawFlags, @NonNull EntryItem entryItem);
+        }
 
         public AsyncSetEntryDrawable(@NonNull ImageView image, int drawFlags, @NonNull EntryItem entryItem) {
-            super();
+            super(PriorityExecutor.PRIORITY_NORMAL);
             cacheId = entryItem.id;
 
             Object tag = image.getTag();
@@ -184,7 +210,7 @@ public final class ResultViewHelper {
             boolean keepIcon = false;
             if (tag instanceof AsyncSetEntryDrawable) {
                 AsyncSetEntryDrawable task = (AsyncSetEntryDrawable) tag;
-                task.cancel(false);
+                task.cancel();
                 // if the old task was loading the same entry we can keep the icon while we refresh it
                 keepIcon = entryItem.equals(task.entryItem);
             } else if (tag instanceof String) {
@@ -194,10 +220,83 @@ public final class ResultViewHelper {
             if (!keepIcon)
                 image.setImageResource(android.R.color.transparent);
             this.weakImage = new WeakReference<>(image);
+            this.weakContext = new WeakReference<>(image.getContext());
             this.drawFlags = drawFlags;
             this.entryItem = entryItem;
         }
 
+        /**
+         * Tasks with the same key produce the same drawable
+         *
+         * @return null if the result can't be shared
+         */
+        @Nullable
+        protected String getSharedKey() {
+            return getClass().getName() + "/" + drawFlags + "/" + cacheId;
+        }
+
+        /**
+         * Start loading or wait for a task loading the same drawable
+         */
+        @UiThread
+        public void execute() {
+            String key = getSharedKey();
+            if (key != null) {
+                AsyncSetEntryDrawable running = IN_FLIGHT.get(key);
+                if (running != null && !running.cancelled) {
+                    leader = running;
+                    if (running.followers == null)
+                        running.followers = new ArrayList<>(1);
+                    running.followers.add(this);
+                    return;
+                }
+                IN_FLIGHT.put(key, this);
+            }
+            EXECUTOR_ENTRY_ICON.execute(this);
+        }
+
+        /**
+         * Called when the ImageView got recycled or is loading something else
+         */
+        @UiThread
+        public void cancel() {
+            viewCancelled = true;
+            weakImage.clear();
+            if (leader != null) {
+                leader.removeFollower(this);
+                leader = null;
+            } else {
+                updateCancelled();
+            }
+        }
+
+        public boolean isCancelled() {
+            return viewCancelled;
+        }
+
+        private void removeFollower(@NonNull AsyncSetEntryDrawable follower) {
+            if (followers != null)
+                followers.remove(follower);
+            updateCancelled();
+        }
+
+        private void updateCancelled() {
+            if (done || !viewCancelled || (followers != null && !followers.isEmpty()))
+                return;
+            cancelled = true;
+            // if it did not start yet, it never will
+            if (EXECUTOR_ENTRY_ICON.remove(this))
+                onFinished();
+        }
+
+        @UiThread
+        private void onFinished() {
+            done = true;
+            String key = getSharedKey();
+            if (key != null && IN_FLIGHT.get(key) == this)
+                IN_FLIGHT.remove(key);
+        }
+
         @Nullable
         public ImageView getImageView() {
             ImageView imageView = weakImage.get();
@@ -208,21 +307,33 @@ public final class ResultViewHelper {
             return imageView;
         }
 
+        @WorkerThread
         @Override
-        protected Drawable doInBackground(Void... voids) {
-            ImageView image = getImageView();
-            if (isCancelled() || image == null || image.getTag() != this) {
-                weakImage.clear();
-                return null;
-            }
-            Context ctx = image.getContext();
-            return getDrawable(ctx);
+        public void run() {
+            Context ctx = weakContext.get();
+            Drawable drawable = null;
+            if (!cancelled && ctx != null)
+                drawable = getDrawable(ctx);
+            final Drawable result = drawable;
+            MAIN_HANDLER.post(() -> {
+                onFinished();
+                if (!viewCancelled)
+                    onPostExecute(result);
+                if (followers != null) {
+                    for (AsyncSetEntryDrawable follower : followers) {
+                        follower.leader = null;
+                        follower.done = true;
+                        follower.onPostExecute(result);
+                    }
+                    followers = null;
+                }
+            });
         }
 
         @WorkerThread
         protected abstract Drawable getDrawable(Context context);
 
-        @Override
+        @UiThread
         protected void onPostExecute(Drawable drawable) {
             ImageView image = getImageView();
             if (image == null || drawable == null) {
@@ -0,0 +1,134 @@
+package rocks.tbog.tblauncher.searcher;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link TopK} for multiple producer threads.
+ * <p>
+ * Each thread fills its own heap so producers never wait for each other. When a heap is full
+ * its lowest score becomes a shared threshold; any item below it can't be in the merged result
+ * and is rejected by all threads without looking at their heap.
+ * <p>
+ * The heaps are kept by the collector, not by the threads. The search threads are pooled and a
+ * thread local would keep the items of the last search alive.
+ *
+ * @param <T> item type
+ */
+public class ConcurrentTopK<T> implements ResultCollector<T> {
+    private final int capacity;
+    @Nullable
+    private final Comparator<? super T> tieBreak;
+    private final AtomicInteger threshold = new AtomicInteger(Integer.MIN_VALUE);
+    // heap of each producer thread
+    private final ConcurrentHashMap<Thread, TopK<T>> heaps = new ConcurrentHashMap<>();
+
+    public ConcurrentTopK(int capacity, @Nullable Comparator<? super T> tieBreak) {
+        this.capacity = capacity;
+        this.tieBreak = tieBreak;
+    }
+
+    @Override
+    public boolean offer(int score, @NonNull T item) {
+        if (score < threshold.get())
+            return false;
+        TopK<T> heap = getHeap();
+        boolean added;
+        int minScore;
+        // only contended while a snapshot is taken
+        synchronized (heap) {
+            added = heap.offer(score, item);
+            minScore = heap.getMinScore();
+        }
+        if (added)
+            raiseThreshold(minScore);
+        return added;
+    }
+
+    @Override
+    public int offerAll(@NonNull int[] scores, @NonNull T[] items, int count) {
+        TopK<T> heap = getHeap();
+        int added = 0;
+        int minScore;
+        synchronized (heap) {
+            int limit = threshold.get();
+            for (int i = 0; i < count; i += 1) {
+                if (scores[i] >= limit && heap.offer(scores[i], items[i]))
+                    added += 1;
+            }
+            minScore = heap.getMinScore();
+        }
+        if (added > 0)
+            raiseThreshold(minScore);
+        return added;
+    }
+
+    @NonNull
+    private TopK<T> getHeap() {
+        Thread thread = Thread.currentThread();
+        TopK<T> heap = heaps.get(thread);
+        if (heap == null) {
+            // only this thread adds with this key
+            heap = new TopK<>(capacity, tieBreak);
+            heaps.put(thread, heap);
+        }
+        return heap;
+    }
+
+    private void raiseThreshold(int minScore) {
+        int current = threshold.get();
+        while (minScore > current && !threshold.compareAndSet(current, minScore))
+            current = threshold.get();
+    }
+
+    @Override
+    public int getMinScore() {
+        return threshold.get();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (TopK<T> heap : heaps.values()) {
+            synchronized (heap) {
+                if (!heap.isEmpty())
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Do not call while producers are still adding
+     */
+    @Override
+    public void clear() {
+        for (TopK<T> heap : heaps.values()) {
+            synchronized (heap) {
+                heap.clear();
+            }
+        }
+        threshold.set(Integer.MIN_VALUE);
+    }
+
+    /**
+     * Merge the heaps of all threads. May be called while producers are still adding.
+     */
+    @NonNull
+    @Override
+    public ArrayList<T> toSortedList() {
+        TopK<T> merged = new TopK<>(capacity, tieBreak);
+        for (TopK<T> heap : heaps.values()) {
+            synchronized (heap) {
+                heap.offerTo(merged);
+            }
+        }
+        ArrayList<T> list = new ArrayList<>(merged.size());
+        merged.drainTo(list);
+        return list;
+    }
+}
@@ -39,15 +39,16 @@ public class HistorySearcher extends Searcher {
         processedPojos.clear();
         List<EntryItem> history = getHistory(activity, mHistoryMode);
         int order = history.size();
+        int[] scores = new int[order];
+        ScoredHit[] items = new ScoredHit[order];
+        int count = 0;
         for (EntryItem item : history) {
-            item.setRelevance(item.normalizedName, null);
-            item.boostRelevance(order--);
-
-            //addResult(item);
-            processedPojos.add(item);
-            if (processedPojos.size() > maxResults)
-                processedPojos.poll();
+            scores[count] = order;
+            items[count] = ScoredHit.of(item, order);
+            count += 1;
+            order -= 1;
         }
+        processedPojos.offerAll(scores, items, count);
         return null;
     }
 
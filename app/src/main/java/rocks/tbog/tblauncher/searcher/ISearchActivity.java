@@ -27,7 +27,7 @@ public interface ISearchActivity {
     /**
      * Called when searcher found results
      */
-    void updateAdapter(List<? extends EntryItem> results, boolean isRefresh);
+    void updateAdapter(List<ScoredHit> results, boolean isRefresh);
 
     /**
      * Called when user removed/hidden app
@@ -3,13 +3,16 @@ package rocks.tbog.tblauncher.searcher;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.WorkerThread;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 
+import rocks.tbog.tblauncher.DataHandler;
 import rocks.tbog.tblauncher.TBApplication;
-import rocks.tbog.tblauncher.db.DBHelper;
 import rocks.tbog.tblauncher.db.ValuedHistoryRecord;
 import rocks.tbog.tblauncher.entry.EntryItem;
 import rocks.tbog.tblauncher.utils.MapCompat;
@@ -22,24 +25,54 @@ import rocks.tbog.tblauncher.utils.MapCompat;
 public class QuerySearcher extends Searcher {
     private final String trimmedQuery;
     private final HashMap<String, Integer> knownIds = new HashMap<>();
+    @Nullable
+    private final SearchSession session;
+    // all entries that matched, used to refine the next query
+    private final ArrayList<EntryItem> matched = new ArrayList<>();
+    private volatile boolean incomplete = false;
+    @Nullable
+    private final SpeculativeSearch speculative;
+    // queries to search ahead of time, computed in the background
+    @Nullable
+    private List<String> predictions = null;
 
     public QuerySearcher(ISearchActivity activity, @NonNull String query) {
+        this(activity, query, null, null);
+    }
+
+    public QuerySearcher(ISearchActivity activity, @NonNull String query, @Nullable SearchSession session) {
+        this(activity, query, session, null);
+    }
+
+    public QuerySearcher(ISearchActivity activity, @NonNull String query, @Nullable SearchSession session, @Nullable SpeculativeSearch speculative) {
         super(activity, query);
         trimmedQuery = query.trim();
+        this.session = session;
+        this.speculative = speculative;
     }
 
     @Override
-    public boolean addResult(EntryItem... pojos) {
+    public boolean addResult(@NonNull Collection<ScoredHit> hits) {
         // Give a boost if item was previously selected for this query
-        for (EntryItem pojo : pojos) {
-            int historyRecord = MapCompat.getOrDefault(knownIds, pojo.id, 0);
-            if (historyRecord != 0) {
-                pojo.boostRelevance(25 * historyRecord);
+        ArrayList<ScoredHit> boosted = new ArrayList<>(hits.size());
+        for (ScoredHit hit : hits) {
+            int historyRecord = MapCompat.getOrDefault(knownIds, hit.entry.id, 0);
+            boosted.add(hit.withBoost(25 * historyRecord));
+        }
+
+        if (session != null) {
+            // providers may run in parallel
+            synchronized (matched) {
+                for (ScoredHit hit : hits)
+                    matched.add(hit.entry);
             }
         }
 
         // call super implementation to update the adapter
-        return super.addResult(pojos);
+        if (super.addResult(boosted))
+            return true;
+        incomplete = true;
+        return false;
     }
 
     /**
@@ -48,20 +81,63 @@ public class QuerySearcher extends Searcher {
     @WorkerThread
     @Override
     protected Void doInBackground(Void... voids) {
+        search();
+        return null;
+    }
+
+    /**
+     * Ask the providers for results. This is not tied to the AsyncTask, a speculative search
+     * calls it from its own thread.
+     */
+    @WorkerThread
+    void search() {
         ISearchActivity searchActivity = activityWeakReference.get();
         Context context = searchActivity != null ? searchActivity.getContext() : null;
         if (context == null)
-            return null;
+            return;
+
+        DataHandler dataHandler = TBApplication.getApplication(context).getDataHandler();
 
         // Have we ever made the same query and selected something ?
-        List<ValuedHistoryRecord> lastIdsForQuery = DBHelper.getPreviousResultsForQuery(context, trimmedQuery);
+        List<ValuedHistoryRecord> lastIdsForQuery = dataHandler.getHistoryModel().getPreviousResultsForQuery(trimmedQuery);
         knownIds.clear();
         for (ValuedHistoryRecord id : lastIdsForQuery) {
             knownIds.put(id.record, (int) id.value);
         }
 
         // Request results via "addResult"
-        TBApplication.getApplication(context).getDataHandler().requestResults(trimmedQuery, this);
-        return null;
+        int dataVersion = dataHandler.getDataVersion();
+        dataHandler.requestResults(trimmedQuery, this, session);
+
+        // remember what matched only if all providers had the chance to add results
+        if (!incomplete && !isCancelled())
+            onQueryComplete(dataVersion, matched);
+    }
+
+    /**
+     * Called on the background thread after all providers added their results
+     *
+     * @param dataVersion data version used by the search
+     * @param matched     all entries that matched, empty if there is no session
+     */
+    @WorkerThread
+    protected void onQueryComplete(int dataVersion, @NonNull List<EntryItem> matched) {
+        if (session != null)
+            session.commit(trimmedQuery, tagsEnabled(), dataVersion, matched);
+        if (speculative != null)
+            predictions = speculative.predict(query, processedPojos.toSortedList());
+    }
+
+    @Override
+    protected void onPostExecute(Void param) {
+        List<String> next = predictions;
+        super.onPostExecute(param);
+        if (speculative != null && next != null)
+            speculative.start(next);
+    }
+
+    @NonNull
+    String getTrimmedQuery() {
+        return trimmedQuery;
     }
 }
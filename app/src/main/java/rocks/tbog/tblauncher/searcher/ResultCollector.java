@@ -0,0 +1,48 @@
+package rocks.tbog.tblauncher.searcher;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Keep the best `capacity` items offered, ordered by score then by a tie-break comparator
+ *
+ * @param <T> item type
+ */
+public interface ResultCollector<T> {
+    /**
+     * @param score higher is better
+     * @param item  what to keep
+     * @return true if the item is (for now) part of the best results
+     */
+    boolean offer(int score, @NonNull T item);
+
+    /**
+     * Offer a batch of scored items
+     *
+     * @param scores score of each item
+     * @param items  the items
+     * @param count  how many items from the start of the arrays to offer
+     * @return how many items were added
+     */
+    int offerAll(@NonNull int[] scores, @NonNull T[] items, int count);
+
+    /**
+     * Items with a lower score will be rejected
+     *
+     * @return lowest score of the kept items if full, {@link Integer#MIN_VALUE} otherwise
+     */
+    int getMinScore();
+
+    boolean isEmpty();
+
+    void clear();
+
+    /**
+     * Copy the kept items, does not change the collector
+     *
+     * @return items sorted from the least relevant to the most relevant
+     */
+    @NonNull
+    ArrayList<T> toSortedList();
+}
@@ -0,0 +1,107 @@
+package rocks.tbog.tblauncher.searcher;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+
+import rocks.tbog.tblauncher.entry.EntryItem;
+import rocks.tbog.tblauncher.normalizer.StringNormalizer;
+import rocks.tbog.tblauncher.utils.FuzzyScore;
+
+/**
+ * An entry found by a query. Each query makes its own hits so the entries are never modified
+ * and searches may overlap.
+ */
+public final class ScoredHit {
+    private static final long[] NO_RANGES = new long[0];
+
+    public static final Comparator<ScoredHit> RELEVANCE_COMPARATOR = new RelevanceComparator();
+    public static final Comparator<ScoredHit> NAME_COMPARATOR = (lhs, rhs) -> EntryItem.NAME_COMPARATOR.compare(lhs.entry, rhs.entry);
+
+    @NonNull
+    public final EntryItem entry;
+    /**
+     * How relevant is this hit? The higher, the most probable it will be displayed
+     */
+    public final int score;
+    /**
+     * The normalized text that matched, used for highlighting
+     */
+    @Nullable
+    public final StringNormalizer.Result source;
+    /**
+     * Matched positions in the source, packed with {@link FuzzyScore#packRange(int, int)}
+     */
+    @NonNull
+    private final long[] matchedRanges;
+
+    private ScoredHit(@NonNull EntryItem entry, int score, @Nullable StringNormalizer.Result source, @NonNull long[] matchedRanges) {
+        this.entry = entry;
+        this.score = score;
+        this.source = source;
+        this.matchedRanges = matchedRanges;
+    }
+
+    /**
+     * @param entry     what matched
+     * @param source    the normalized text of the entry that matched
+     * @param matchInfo result of the match, will not be kept
+     */
+    @NonNull
+    public static ScoredHit of(@NonNull EntryItem entry, @NonNull StringNormalizer.Result source, @NonNull FuzzyScore.MatchInfo matchInfo) {
+        return new ScoredHit(entry, matchInfo.score, source, matchInfo.getMatchedRanges());
+    }
+
+    /**
+     * Hit without highlighting
+     */
+    @NonNull
+    public static ScoredHit of(@NonNull EntryItem entry, int score) {
+        return new ScoredHit(entry, score, null, NO_RANGES);
+    }
+
+    /**
+     * Wrap entries that are displayed without a query
+     */
+    @NonNull
+    public static ArrayList<ScoredHit> fromEntries(@NonNull Collection<? extends EntryItem> entries) {
+        ArrayList<ScoredHit> hits = new ArrayList<>(entries.size());
+        for (EntryItem entry : entries)
+            hits.add(of(entry, 0));
+        return hits;
+    }
+
+    @NonNull
+    public ScoredHit withBoost(int boost) {
+        return boost == 0 ? this : new ScoredHit(entry, score + boost, source, matchedRanges);
+    }
+
+    /**
+     * @param text normalized text of the entry
+     * @return true if the text is what matched the query
+     */
+    public boolean isMatchOf(@Nullable StringNormalizer.Result text) {
+        return source != null && matchedRanges.length > 0 && source.equals(text);
+    }
+
+    @NonNull
+    public long[] getMatchedRanges() {
+        return matchedRanges;
+    }
+
+    public static class RelevanceComparator implements Comparator<ScoredHit> {
+        @Override
+        public int compare(ScoredHit lhs, ScoredHit rhs) {
+            if (lhs.score == rhs.score) {
+                if (lhs.source != null && rhs.source != null)
+                    return lhs.source.compareTo(rhs.source);
+                else
+                    return lhs.entry.getName().compareTo(rhs.entry.getName());
+            }
+            return Integer.compare(lhs.score, rhs.score);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package rocks.tbog.tblauncher.searcher;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import rocks.tbog.tblauncher.entry.EntryItem;
+
+/**
+ * Remember what matched the last completed query.
+ * When the next query extends the previous one ("fir" → "fire") only the entries that
+ * matched before can match again, so the providers only need to check those.
+ */
+public class SearchSession {
+    @Nullable
+    private String mQuery = null;
+    private boolean mTagsEnabled = false;
+    private int mDataVersion = 0;
+    @NonNull
+    private List<EntryItem> mCandidates = Collections.emptyList();
+
+    /**
+     * Get the query that produced the candidate list
+     *
+     * @return null if there is no previous result to refine
+     */
+    @Nullable
+    public synchronized String getQuery() {
+        return mQuery;
+    }
+
+    /**
+     * Get the entries that may match the query.
+     *
+     * @param query       the new (trimmed) query
+     * @param tagsEnabled the searcher will also check tags
+     * @param dataVersion see {@link rocks.tbog.tblauncher.DataHandler#getDataVersion()}
+     * @return all entries that matched the previous query or null if a full scan is needed
+     */
+    @Nullable
+    public synchronized List<EntryItem> getCandidates(@NonNull String query, boolean tagsEnabled, int dataVersion) {
+        if (mQuery == null || mTagsEnabled != tagsEnabled || mDataVersion != dataVersion)
+            return null;
+        // refresh, deletion or edit of the query
+        if (query.length() <= mQuery.length() || !query.startsWith(mQuery))
+            return null;
+        return mCandidates;
+    }
+
+    /**
+     * Store the result of a completed query. Do not call this for a cancelled query.
+     *
+     * @param query       the (trimmed) query
+     * @param tagsEnabled the searcher also checked tags
+     * @param dataVersion data version used by the search
+     * @param matched     all entries that matched, not just the ones displayed
+     */
+    public synchronized void commit(@NonNull String query, boolean tagsEnabled, int dataVersion, @NonNull Collection<? extends EntryItem> matched) {
+        mQuery = query;
+        mTagsEnabled = tagsEnabled;
+        mDataVersion = dataVersion;
+        mCandidates = Collections.unmodifiableList(new ArrayList<>(matched));
+    }
+
+    public synchronized void reset() {
+        mQuery = null;
+        mCandidates = Collections.emptyList();
+    }
+}
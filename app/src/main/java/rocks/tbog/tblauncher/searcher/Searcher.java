@@ -12,8 +12,8 @@ import androidx.annotation.WorkerThread;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.PriorityQueue;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -22,12 +22,11 @@ import rocks.tbog.tblauncher.entry.EntryItem;
 import rocks.tbog.tblauncher.utils.PrefCache;
 import rocks.tbog.tblauncher.utils.Utilities;
 
-public abstract class Searcher extends AsyncTask<Void, EntryItem, Void> {
+public abstract class Searcher extends AsyncTask<Void, ScoredHit, Void> {
     // define a different thread than the default AsyncTask thread or else we will block everything else that uses AsyncTask while we search
     public static final ExecutorService SEARCH_THREAD = Executors.newSingleThreadExecutor();
-    protected static final int INITIAL_CAPACITY = 50;
     protected final WeakReference<ISearchActivity> activityWeakReference;
-    protected final PriorityQueue<EntryItem> processedPojos;
+    protected final ResultCollector<ScoredHit> processedPojos;
     protected final int maxResults;
     private final boolean tagsEnabled;
     private long start;
@@ -43,9 +42,9 @@ public abstract class Searcher extends AsyncTask<Void, EntryItem, Void> {
         super();
         this.query = query;
         activityWeakReference = new WeakReference<>(activity);
-        processedPojos = getPojoProcessor(activity);
         tagsEnabled = PrefCache.getFuzzySearchTags(activity.getContext());
         maxResults = getMaxResultCount(activity.getContext());
+        processedPojos = getPojoProcessor(activity);
     }
 
     @NonNull
@@ -53,8 +52,11 @@ public abstract class Searcher extends AsyncTask<Void, EntryItem, Void> {
         return query;
     }
 
-    protected PriorityQueue<EntryItem> getPojoProcessor(ISearchActivity activity) {
-        return new PriorityQueue<>(INITIAL_CAPACITY, EntryItem.RELEVANCE_COMPARATOR);
+    protected ResultCollector<ScoredHit> getPojoProcessor(ISearchActivity activity) {
+        // providers may run in parallel
+        if (PrefCache.searchProvidersInParallel(activity.getContext()))
+            return new ConcurrentTopK<>(maxResults, ScoredHit.RELEVANCE_COMPARATOR);
+        return new TopK<>(maxResults, ScoredHit.RELEVANCE_COMPARATOR);
     }
 
     protected int getMaxResultCount(Context context) {
@@ -65,20 +67,71 @@ public abstract class Searcher extends AsyncTask<Void, EntryItem, Void> {
      * This is called from the background thread by the providers
      */
     @WorkerThread
-    public boolean addResult(EntryItem... pojos) {
+    public final boolean addResult(ScoredHit... hits) {
+        return addResult(Arrays.asList(hits));
+    }
+
+    /**
+     * This is called from the background thread by the providers
+     */
+    @WorkerThread
+    public boolean addResult(@NonNull Collection<ScoredHit> hits) {
+        if (!canAddResults())
+            return false;
+
+        for (ScoredHit hit : hits)
+            processedPojos.offer(hit.score, hit);
+
+        return true;
+    }
+
+    /**
+     * Add entries that were not matched against the query, like when listing all entries.
+     * This is called from the background thread
+     */
+    @WorkerThread
+    public boolean addEntries(@NonNull Collection<? extends EntryItem> entries) {
+        if (!canAddResults())
+            return false;
+
+        for (EntryItem entry : entries)
+            processedPojos.offer(0, ScoredHit.of(entry, 0));
+
+        return true;
+    }
+
+    /**
+     * @return false if the search got cancelled or there is nowhere to display the results
+     */
+    protected boolean canAddResults() {
         if (isCancelled())
             return false;
 
         ISearchActivity searchActivity = activityWeakReference.get();
         Activity activity = searchActivity != null ? Utilities.getActivity(searchActivity.getContext()) : null;
-        if (activity == null)
-            return false;
+        return activity != null;
+    }
+
+    /**
+     * Display what was found so far while slow providers are still running.
+     * This is called from the background thread
+     */
+    @WorkerThread
+    public void publishPartialResults() {
+        if (isCancelled())
+            return;
+        publishProgress(processedPojos.toSortedList().toArray(new ScoredHit[0]));
+    }
 
-        Collections.addAll(processedPojos, pojos);
-        while (processedPojos.size() > maxResults)
-            processedPojos.poll();
+    @Override
+    protected void onProgressUpdate(ScoredHit... results) {
+        ISearchActivity activity = activityWeakReference.get();
+        if (activity == null || results.length == 0)
+            return;
 
-        return true;
+        activity.updateAdapter(Arrays.asList(results), isRefresh);
+        // the final results should not reset the scroll of the partial results
+        isRefresh = true;
     }
 
     @CallSuper
@@ -110,12 +163,7 @@ public abstract class Searcher extends AsyncTask<Void, EntryItem, Void> {
         if (this.processedPojos.isEmpty()) {
             activity.clearAdapter();
         } else {
-            PriorityQueue<EntryItem> queue = this.processedPojos;
-            ArrayList<EntryItem> results = new ArrayList<>(queue.size());
-            while (queue.peek() != null) {
-                results.add(queue.poll());
-            }
-
+            ArrayList<ScoredHit> results = this.processedPojos.toSortedList();
             activity.updateAdapter(results, isRefresh);
         }
 
@@ -132,4 +180,11 @@ public abstract class Searcher extends AsyncTask<Void, EntryItem, Void> {
     public boolean tagsEnabled() {
         return tagsEnabled;
     }
+
+    /**
+     * Speculative searches run ahead of time, their results may never be displayed
+     */
+    public boolean isSpeculative() {
+        return false;
+    }
 }
@@ -0,0 +1,313 @@
+package rocks.tbog.tblauncher.searcher;
+
+import android.content.Context;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseIntArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.UiThread;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rocks.tbog.tblauncher.TBApplication;
+import rocks.tbog.tblauncher.normalizer.StringNormalizer;
+import rocks.tbog.tblauncher.utils.DebugInfo;
+import rocks.tbog.tblauncher.utils.FuzzyScore;
+import rocks.tbog.tblauncher.utils.PrefCache;
+
+/**
+ * While the user is typing, search ahead of time for the most likely next keystrokes.
+ * The next character is predicted from the text that follows the matched part of the current
+ * results. When the prediction is right the results are displayed without running the providers.
+ */
+public class SpeculativeSearch {
+    private static final String TAG = "SpecSearch";
+    // low priority thread, the user query must not wait for a speculative search
+    private static final ExecutorService SPECULATIVE_THREAD = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(() -> {
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            runnable.run();
+        }, "SpeculativeSearch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int STATE_RUNNING = 0;
+    private static final int STATE_DONE = 1;
+    private static final int STATE_USED = 2;
+    private static final int STATE_DISCARDED = 3;
+
+    @NonNull
+    private final ISearchActivity activity;
+    @NonNull
+    private final SearchSession session;
+    // only accessed from the UI thread
+    private final ArrayList<Speculation> mRunning = new ArrayList<>(0);
+
+    // statistics
+    private int mKeystrokeCount = 0;
+    private int mPredictedCount = 0;
+    private int mHitCount = 0;
+    private final AtomicLong mUsedCpuMs = new AtomicLong(0);
+    private final AtomicLong mWastedCpuMs = new AtomicLong(0);
+
+    public SpeculativeSearch(@NonNull ISearchActivity activity, @NonNull SearchSession session) {
+        this.activity = activity;
+        this.session = session;
+    }
+
+    /**
+     * Find the most likely characters to follow the query.
+     *
+     * @param query   the query as typed by the user
+     * @param results results of the query, from the least relevant to the most relevant
+     * @return the queries to search ahead of time, may be empty
+     */
+    @NonNull
+    public List<String> predict(@NonNull String query, @NonNull List<ScoredHit> results) {
+        int count = PrefCache.getSpeculativeSearchCount(activity.getContext());
+        if (count <= 0 || query.trim().isEmpty() || Character.isWhitespace(query.charAt(query.length() - 1)))
+            return Collections.emptyList();
+
+        // weight each code point with the rank of the result
+        SparseIntArray weights = new SparseIntArray();
+        int rank = 0;
+        for (ScoredHit hit : results) {
+            rank += 1;
+            StringNormalizer.Result source = hit.source;
+            long[] ranges = hit.getMatchedRanges();
+            if (source == null || ranges.length == 0)
+                continue;
+            int pos = FuzzyScore.rangeEnd(ranges[ranges.length - 1]);
+            if (pos >= source.lowerCodePoints.length)
+                continue;
+            if ((source.charClass[pos] & StringNormalizer.Result.CHAR_SEPARATOR) != 0)
+                continue;
+            int codePoint = source.lowerCodePoints[pos];
+            weights.put(codePoint, weights.get(codePoint) + rank);
+        }
+
+        ArrayList<String> predictions = new ArrayList<>(Math.min(count, weights.size()));
+        while (predictions.size() < count && weights.size() > 0) {
+            int best = 0;
+            for (int i = 1; i < weights.size(); i += 1)
+                if (weights.valueAt(i) > weights.valueAt(best))
+                    best = i;
+            predictions.add(query + new String(Character.toChars(weights.keyAt(best))));
+            weights.removeAt(best);
+        }
+        return predictions;
+    }
+
+    /**
+     * Cancel the previous speculative searches and start new ones
+     *
+     * @param queries what to search for
+     */
+    @UiThread
+    public void start(@NonNull List<String> queries) {
+        cancel();
+        for (String query : queries) {
+            Speculation speculation = new Speculation(new SpeculativeSearcher(activity, query, session, this));
+            speculation.future = SPECULATIVE_THREAD.submit(speculation);
+            mRunning.add(speculation);
+        }
+    }
+
+    /**
+     * Called when the user changed the query. All other speculative searches are discarded.
+     * If the results are returned, the searches ahead of them are started.
+     *
+     * @param query the query as typed by the user
+     * @return the results if a speculative search for this query completed, null otherwise
+     */
+    @UiThread
+    @Nullable
+    public List<ScoredHit> take(@NonNull String query) {
+        Speculation found = null;
+        for (Speculation speculation : mRunning) {
+            if (found == null && speculation.searcher.getQuery().equals(query))
+                found = speculation;
+            else
+                speculation.discard(mWastedCpuMs);
+        }
+        mRunning.clear();
+
+        mKeystrokeCount += 1;
+        List<ScoredHit> results = null;
+        List<String> next = null;
+        if (found != null) {
+            mPredictedCount += 1;
+            if (isValid(found.searcher) && found.use(mUsedCpuMs)) {
+                mHitCount += 1;
+                SpeculativeSearcher searcher = found.searcher;
+                session.commit(searcher.getTrimmedQuery(), searcher.tagsEnabled(), searcher.getDataVersion(), searcher.getMatched());
+                TBApplication.dataHandler(activity.getContext()).setCurrentQuery(searcher.getTrimmedQuery());
+                results = searcher.getResults();
+                next = searcher.getPredictions();
+            } else {
+                found.discard(mWastedCpuMs);
+            }
+        }
+        logStats();
+        // predicted on the speculative thread, when the search completed
+        if (next != null)
+            start(next);
+        return results;
+    }
+
+    /**
+     * Discard all speculative searches
+     */
+    @UiThread
+    public void cancel() {
+        for (Speculation speculation : mRunning)
+            speculation.discard(mWastedCpuMs);
+        mRunning.clear();
+    }
+
+    private boolean isValid(@NonNull SpeculativeSearcher searcher) {
+        if (!searcher.isComplete())
+            return false;
+        Context context = activity.getContext();
+        if (searcher.tagsEnabled() != PrefCache.getFuzzySearchTags(context))
+            return false;
+        return searcher.getDataVersion() == TBApplication.dataHandler(context).getDataVersion();
+    }
+
+    /**
+     * @return the counters since this was created
+     */
+    @UiThread
+    @NonNull
+    public Stats getStats() {
+        return new Stats(mKeystrokeCount, mPredictedCount, mHitCount, mUsedCpuMs.get(), mWastedCpuMs.get());
+    }
+
+    private void logStats() {
+        if (!DebugInfo.speculativeSearch(activity.getContext()))
+            return;
+        Log.i(TAG, getStats().toString());
+    }
+
+    /**
+     * Snapshot of the speculative search counters
+     */
+    public static final class Stats {
+        /**
+         * Queries typed by the user
+         */
+        public final int keystrokeCount;
+        /**
+         * Typed queries that had a speculative search started
+         */
+        public final int predictedCount;
+        /**
+         * Typed queries displayed from a speculative search
+         */
+        public final int hitCount;
+        /**
+         * CPU time of the speculative searches that got displayed
+         */
+        public final long usedCpuMs;
+        /**
+         * CPU time of the speculative searches that got discarded
+         */
+        public final long wastedCpuMs;
+
+        Stats(int keystrokeCount, int predictedCount, int hitCount, long usedCpuMs, long wastedCpuMs) {
+            this.keystrokeCount = keystrokeCount;
+            this.predictedCount = predictedCount;
+            this.hitCount = hitCount;
+            this.usedCpuMs = usedCpuMs;
+            this.wastedCpuMs = wastedCpuMs;
+        }
+
+        /**
+         * @return typed queries that had to run the providers
+         */
+        public int getMissCount() {
+            return keystrokeCount - hitCount;
+        }
+
+        /**
+         * @return percent of the typed queries displayed from a speculative search
+         */
+        public float getHitRate() {
+            return keystrokeCount == 0 ? 0f : 100f * hitCount / keystrokeCount;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US,
+                    "keystrokes %d, predicted %d, hits %d (%.1f%%), misses %d, cpu used %dms, wasted %dms",
+                    keystrokeCount, predictedCount, hitCount, getHitRate(), getMissCount(), usedCpuMs, wastedCpuMs);
+        }
+    }
+
+    private static class Speculation implements Runnable {
+        @NonNull
+        final SpeculativeSearcher searcher;
+        Future<?> future = null;
+        final AtomicInteger state = new AtomicInteger(STATE_RUNNING);
+        volatile long cpuTimeMs = 0;
+        // set by discard, the search thread adds the cpu time when it finishes
+        volatile AtomicLong wastedCounter = null;
+
+        Speculation(@NonNull SpeculativeSearcher searcher) {
+            this.searcher = searcher;
+        }
+
+        @WorkerThread
+        @Override
+        public void run() {
+            if (searcher.isCancelled())
+                return;
+            long cpuStart = SystemClock.currentThreadTimeMillis();
+            try {
+                searcher.search();
+            } finally {
+                cpuTimeMs = SystemClock.currentThreadTimeMillis() - cpuStart;
+                if (!state.compareAndSet(STATE_RUNNING, STATE_DONE)) {
+                    AtomicLong counter = wastedCounter;
+                    if (counter != null)
+                        counter.addAndGet(cpuTimeMs);
+                }
+            }
+        }
+
+        /**
+         * @return true if the search finished and the results can be used
+         */
+        boolean use(@NonNull AtomicLong usedCounter) {
+            if (!state.compareAndSet(STATE_DONE, STATE_USED))
+                return false;
+            usedCounter.addAndGet(cpuTimeMs);
+            return true;
+        }
+
+        void discard(@NonNull AtomicLong wastedCounter) {
+            this.wastedCounter = wastedCounter;
+            searcher.cancel(false);
+            if (future != null)
+                future.cancel(false);
+            if (state.compareAndSet(STATE_DONE, STATE_DISCARDED))
+                wastedCounter.addAndGet(cpuTimeMs);
+            else
+                state.compareAndSet(STATE_RUNNING, STATE_DISCARDED);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package rocks.tbog.tblauncher.searcher;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import rocks.tbog.tblauncher.entry.EntryItem;
+
+/**
+ * Query searcher that runs before the user typed the query. It is not executed as an AsyncTask,
+ * {@link SpeculativeSearch} calls {@link #search()} and keeps the results.
+ */
+class SpeculativeSearcher extends QuerySearcher {
+    @NonNull
+    private final SpeculativeSearch owner;
+    private volatile boolean complete = false;
+    private int dataVersion = 0;
+    @NonNull
+    private List<EntryItem> matched = new ArrayList<>(0);
+    @NonNull
+    private List<ScoredHit> results = new ArrayList<>(0);
+    @NonNull
+    private List<String> predictions = new ArrayList<>(0);
+
+    SpeculativeSearcher(ISearchActivity activity, @NonNull String query, @Nullable SearchSession session, @NonNull SpeculativeSearch owner) {
+        super(activity, query, session, null);
+        this.owner = owner;
+    }
+
+    @Override
+    protected ResultCollector<ScoredHit> getPojoProcessor(ISearchActivity activity) {
+        // providers run one after another, on the same thread
+        return new TopK<>(maxResults, ScoredHit.RELEVANCE_COMPARATOR);
+    }
+
+    @Override
+    public boolean isSpeculative() {
+        return true;
+    }
+
+    @WorkerThread
+    @Override
+    protected void onQueryComplete(int dataVersion, @NonNull List<EntryItem> matched) {
+        // don't commit the session, the user may never type this query
+        this.dataVersion = dataVersion;
+        this.matched = new ArrayList<>(matched);
+        this.results = processedPojos.toSortedList();
+        // if the user types this query, the next searches can start right away
+        this.predictions = owner.predict(query, results);
+        complete = true;
+    }
+
+    /**
+     * @return true if all providers added their results
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Only valid if {@link #isComplete()}
+     */
+    int getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * Only valid if {@link #isComplete()}
+     */
+    @NonNull
+    List<EntryItem> getMatched() {
+        return matched;
+    }
+
+    /**
+     * Only valid if {@link #isComplete()}
+     *
+     * @return results sorted from the least relevant to the most relevant
+     */
+    @NonNull
+    List<ScoredHit> getResults() {
+        return results;
+    }
+
+    /**
+     * Only valid if {@link #isComplete()}
+     *
+     * @return the queries to search ahead of this one
+     */
+    @NonNull
+    List<String> getPredictions() {
+        return predictions;
+    }
+}
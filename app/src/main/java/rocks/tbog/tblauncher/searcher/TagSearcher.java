@@ -1,18 +1,16 @@
 package rocks.tbog.tblauncher.searcher;
 
-import android.app.Activity;
 import android.content.Context;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.WorkerThread;
 
+import java.util.Collection;
 import java.util.HashSet;
-import java.util.PriorityQueue;
 
 import rocks.tbog.tblauncher.TBApplication;
 import rocks.tbog.tblauncher.entry.EntryItem;
 import rocks.tbog.tblauncher.entry.EntryWithTags;
-import rocks.tbog.tblauncher.utils.Utilities;
 
 public class TagSearcher extends Searcher {
     final EntryWithTags.TagDetails tagDetails;
@@ -24,19 +22,15 @@ public class TagSearcher extends Searcher {
     }
 
     @Override
-    protected PriorityQueue<EntryItem> getPojoProcessor(ISearchActivity activity) {
-        return new PriorityQueue<>(INITIAL_CAPACITY, EntryItem.NAME_COMPARATOR);
+    protected ResultCollector<ScoredHit> getPojoProcessor(ISearchActivity activity) {
+        // all entries have the same score, sort by name
+        return new TopK<>(maxResults, ScoredHit.NAME_COMPARATOR);
     }
 
     @WorkerThread
     @Override
-    public boolean addResult(EntryItem... pojos) {
-        if (isCancelled())
-            return false;
-
-        ISearchActivity searchActivity = activityWeakReference.get();
-        Activity activity = searchActivity != null ? Utilities.getActivity(searchActivity.getContext()) : null;
-        if (activity == null)
+    public boolean addEntries(@NonNull Collection<? extends EntryItem> pojos) {
+        if (!canAddResults())
             return false;
 
         for (EntryItem entryItem : pojos) {
@@ -45,9 +39,7 @@ public class TagSearcher extends Searcher {
                     if (!foundIdSet.contains(entryItem.id)) {
                         foundIdSet.add(entryItem.id);
 
-                        processedPojos.add(entryItem);
-                        if (processedPojos.size() > maxResults)
-                            processedPojos.poll();
+                        processedPojos.offer(0, ScoredHit.of(entryItem, 0));
                     }
                 }
             }
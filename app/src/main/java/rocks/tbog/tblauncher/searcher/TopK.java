@@ -0,0 +1,189 @@
+package rocks.tbog.tblauncher.searcher;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Bounded min-heap of the best `capacity` items. Not thread safe.
+ * <p>
+ * Scores are kept in a primitive array next to the items so an item that can't make it in
+ * the result is rejected with a single int comparison and without touching the heap.
+ *
+ * @param <T> item type
+ */
+public class TopK<T> implements ResultCollector<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int capacity;
+    @Nullable
+    private final Comparator<? super T> tieBreak;
+    private int[] scores;
+    private Object[] items;
+    private int size = 0;
+
+    /**
+     * @param capacity how many items to keep
+     * @param tieBreak order of the items with the same score, null if any order will do
+     */
+    public TopK(int capacity, @Nullable Comparator<? super T> tieBreak) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("capacity " + capacity);
+        this.capacity = capacity;
+        this.tieBreak = tieBreak;
+        int initialCapacity = Math.min(capacity, INITIAL_CAPACITY);
+        scores = new int[initialCapacity];
+        items = new Object[initialCapacity];
+    }
+
+    private TopK(@NonNull TopK<T> o) {
+        capacity = o.capacity;
+        tieBreak = o.tieBreak;
+        scores = Arrays.copyOf(o.scores, o.size);
+        items = Arrays.copyOf(o.items, o.size);
+        size = o.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public int getMinScore() {
+        return size == capacity ? scores[0] : Integer.MIN_VALUE;
+    }
+
+    @Override
+    public boolean offer(int score, @NonNull T item) {
+        if (size == capacity) {
+            // fast reject
+            if (score < scores[0] || (score == scores[0] && compareItem(item, 0) <= 0))
+                return false;
+            // replace the least relevant
+            scores[0] = score;
+            items[0] = item;
+            siftDown(0);
+            return true;
+        }
+        if (size == scores.length) {
+            int newLength = (int) Math.min(scores.length * 2L + 1, capacity);
+            scores = Arrays.copyOf(scores, newLength);
+            items = Arrays.copyOf(items, newLength);
+        }
+        scores[size] = score;
+        items[size] = item;
+        siftUp(size);
+        size += 1;
+        return true;
+    }
+
+    @Override
+    public int offerAll(@NonNull int[] scores, @NonNull T[] items, int count) {
+        int added = 0;
+        for (int i = 0; i < count; i += 1) {
+            // fast reject without the call
+            if (size == capacity && scores[i] < this.scores[0])
+                continue;
+            if (offer(scores[i], items[i]))
+                added += 1;
+        }
+        return added;
+    }
+
+    /**
+     * Offer all our items to another collector
+     */
+    @SuppressWarnings("unchecked")
+    public void offerTo(@NonNull ResultCollector<T> collector) {
+        for (int i = 0; i < size; i += 1)
+            collector.offer(scores[i], (T) items[i]);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(items, 0, size, null);
+        size = 0;
+    }
+
+    @NonNull
+    @Override
+    public ArrayList<T> toSortedList() {
+        ArrayList<T> list = new ArrayList<>(size);
+        new TopK<>(this).drainTo(list);
+        return list;
+    }
+
+    /**
+     * Remove all items
+     *
+     * @param list where to add the items, from the least relevant to the most relevant
+     */
+    @SuppressWarnings("unchecked")
+    public void drainTo(@NonNull ArrayList<? super T> list) {
+        while (size > 0) {
+            list.add((T) items[0]);
+            size -= 1;
+            scores[0] = scores[size];
+            items[0] = items[size];
+            items[size] = null;
+            siftDown(0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private int compareItem(T item, int idx) {
+        return tieBreak == null ? 0 : tieBreak.compare(item, (T) items[idx]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private boolean less(int i, int j) {
+        if (scores[i] != scores[j])
+            return scores[i] < scores[j];
+        return tieBreak != null && tieBreak.compare((T) items[i], (T) items[j]) < 0;
+    }
+
+    private void swap(int i, int j) {
+        int score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+        Object item = items[i];
+        items[i] = items[j];
+        items[j] = item;
+    }
+
+    private void siftUp(int idx) {
+        while (idx > 0) {
+            int parent = (idx - 1) >>> 1;
+            if (!less(idx, parent))
+                break;
+            swap(idx, parent);
+            idx = parent;
+        }
+    }
+
+    private void siftDown(int idx) {
+        while (true) {
+            int child = 2 * idx + 1;
+            if (child >= size)
+                break;
+            if (child + 1 < size && less(child + 1, child))
+                child += 1;
+            if (!less(child, idx))
+                break;
+            swap(idx, child);
+            idx = child;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package rocks.tbog.tblauncher.searcher;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import rocks.tbog.tblauncher.utils.PriorityExecutor;
+
+/**
+ * Insert the same random scores in each result collector and measure the time needed. The
+ * PriorityQueue is how the results were kept before {@link TopK}. Started from the debug section
+ * of the settings.
+ */
+public class TopKBenchmark {
+    private static final String TAG = "TopKBench";
+    private static final int INSERT_COUNT = 10_000;
+    private static final int K = 50;
+    private static final int WARMUP = 5;
+    private static final int REPEAT = 50;
+    // a small range makes many items with the same score
+    private static final int MAX_SCORE = 1000;
+    private static final long SEED = 42;
+
+    private static final class Item {
+        final int score;
+        final int id;
+
+        Item(int score, int id) {
+            this.score = score;
+            this.id = id;
+        }
+    }
+
+    private static final Comparator<Item> TIE_BREAK = (lhs, rhs) -> Integer.compare(lhs.id, rhs.id);
+    // least relevant first, like the heap of TopK
+    private static final Comparator<Item> RELEVANCE = (lhs, rhs) -> {
+        if (lhs.score != rhs.score)
+            return Integer.compare(lhs.score, rhs.score);
+        return TIE_BREAK.compare(lhs, rhs);
+    };
+
+    private interface Collect {
+        @NonNull
+        ArrayList<Item> collect();
+    }
+
+    private final int[] scores = new int[INSERT_COUNT];
+    private final Item[] items = new Item[INSERT_COUNT];
+    private final StringBuilder report = new StringBuilder();
+    private ArrayList<Item> expected = null;
+
+    public TopKBenchmark() {
+        Random random = new Random(SEED);
+        for (int i = 0; i < INSERT_COUNT; i += 1) {
+            scores[i] = random.nextInt(MAX_SCORE);
+            items[i] = new Item(scores[i], i);
+        }
+    }
+
+    /**
+     * @return the results, one line for each collector
+     */
+    @WorkerThread
+    @NonNull
+    public String run() {
+        report.setLength(0);
+        report.append(String.format(Locale.US, "%d inserts, K=%d\n", INSERT_COUNT, K));
+        report.append("collector: p50 / p90 / max (µs)\n");
+
+        expected = null;
+        measure("PriorityQueue", this::collectPriorityQueue);
+        measure("TopK offer", this::collectTopK);
+        measure("TopK offerAll", this::collectTopKBatch);
+        measure("ConcurrentTopK 1 thread", this::collectConcurrentTopK);
+
+        int threadCount = PriorityExecutor.cpuThreadCount();
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        try {
+            measure("ConcurrentTopK " + threadCount + " threads", () -> collectConcurrentTopK(executor, threadCount));
+        } finally {
+            executor.shutdown();
+        }
+
+        String result = report.toString();
+        Log.i(TAG, result);
+        return result;
+    }
+
+    private void measure(@NonNull String name, @NonNull Collect collect) {
+        ArrayList<Item> result = null;
+        for (int i = 0; i < WARMUP; i += 1)
+            result = collect.collect();
+
+        long[] times = new long[REPEAT];
+        for (int i = 0; i < REPEAT; i += 1) {
+            long start = System.nanoTime();
+            result = collect.collect();
+            times[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(times);
+        report.append(String.format(Locale.US, "%s: %d / %d / %d", name,
+                percentile(times, 50), percentile(times, 90), times[times.length - 1] / 1000));
+
+        // all collectors must keep the same items in the same order
+        if (expected == null)
+            expected = result;
+        else if (!expected.equals(result))
+            report.append(" DIFFERENT RESULT");
+        report.append('\n');
+    }
+
+    private static long percentile(long[] sortedTimes, int percent) {
+        int index = (sortedTimes.length - 1) * percent / 100;
+        return sortedTimes[index] / 1000;
+    }
+
+    @NonNull
+    private ArrayList<Item> collectPriorityQueue() {
+        PriorityQueue<Item> queue = new PriorityQueue<>(K + 1, RELEVANCE);
+        for (Item item : items) {
+            queue.add(item);
+            if (queue.size() > K)
+                queue.poll();
+        }
+        ArrayList<Item> list = new ArrayList<>(queue.size());
+        while (!queue.isEmpty())
+            list.add(queue.poll());
+        return list;
+    }
+
+    @NonNull
+    private ArrayList<Item> collectTopK() {
+        TopK<Item> topK = new TopK<>(K, TIE_BREAK);
+        for (int i = 0; i < INSERT_COUNT; i += 1)
+            topK.offer(scores[i], items[i]);
+        return topK.toSortedList();
+    }
+
+    @NonNull
+    private ArrayList<Item> collectTopKBatch() {
+        TopK<Item> topK = new TopK<>(K, TIE_BREAK);
+        topK.offerAll(scores, items, INSERT_COUNT);
+        return topK.toSortedList();
+    }
+
+    @NonNull
+    private ArrayList<Item> collectConcurrentTopK() {
+        ConcurrentTopK<Item> topK = new ConcurrentTopK<>(K, TIE_BREAK);
+        for (int i = 0; i < INSERT_COUNT; i += 1)
+            topK.offer(scores[i], items[i]);
+        return topK.toSortedList();
+    }
+
+    /**
+     * Each thread offers a slice of the items, like the providers of a parallel search
+     */
+    @NonNull
+    private ArrayList<Item> collectConcurrentTopK(@NonNull ExecutorService executor, int threadCount) {
+        ConcurrentTopK<Item> topK = new ConcurrentTopK<>(K, TIE_BREAK);
+        CountDownLatch done = new CountDownLatch(threadCount);
+        int sliceSize = (INSERT_COUNT + threadCount - 1) / threadCount;
+        for (int t = 0; t < threadCount; t += 1) {
+            final int from = t * sliceSize;
+            final int to = Math.min(INSERT_COUNT, from + sliceSize);
+            executor.execute(() -> {
+                for (int i = from; i < to; i += 1)
+                    topK.offer(scores[i], items[i]);
+                done.countDown();
+            });
+        }
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return topK.toSortedList();
+    }
+}
@@ -9,7 +9,6 @@ import android.content.pm.LauncherApps;
 import android.content.pm.PackageManager;
 import android.content.pm.ShortcutInfo;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.graphics.drawable.Drawable;
 import android.os.Build;
 import android.os.Process;
@@ -181,12 +180,7 @@ public class ShortcutUtil {
 
     @Nullable
     public static Bitmap getInitialIcon(@NonNull Context context, long dbId) {
-        byte[] iconBlob = DBHelper.getShortcutIcon(context, dbId);
-
-        if (iconBlob != null)
-            return BitmapFactory.decodeByteArray(iconBlob, 0, iconBlob.length);
-
-        return null;
+        return DBHelper.getShortcutIcon(context, dbId);
     }
 
     /**
@@ -0,0 +1,104 @@
+package rocks.tbog.tblauncher.utils;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+
+/**
+ * Keep the temporary bitmaps used while rendering icons so the next icon can draw on them.
+ * Only the bitmaps that are not visible anywhere should be released to the pool.
+ */
+public class BitmapPool {
+    /**
+     * Pool for the temporary bitmaps of the icon shape and mask
+     */
+    public static final BitmapPool ICONS = new BitmapPool(4 * 1024 * 1024);
+
+    private final int maxBytes;
+    private int bytes = 0;
+    // width and height -> free bitmaps of that size
+    private final HashMap<Long, ArrayList<Bitmap>> mPool = new HashMap<>();
+    private int mHitCount = 0;
+    private int mMissCount = 0;
+    private int mDropCount = 0;
+
+    public BitmapPool(int maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    private static long getKey(int width, int height) {
+        return ((long) width << 32) | (height & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Get a transparent ARGB_8888 bitmap, from the pool if one is free
+     */
+    @NonNull
+    public Bitmap acquire(int width, int height) {
+        Bitmap bitmap = null;
+        synchronized (mPool) {
+            ArrayList<Bitmap> list = mPool.get(getKey(width, height));
+            if (list != null && !list.isEmpty()) {
+                bitmap = list.remove(list.size() - 1);
+                bytes -= getByteCount(bitmap);
+                mHitCount += 1;
+            } else {
+                mMissCount += 1;
+            }
+        }
+        if (bitmap == null)
+            return Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        bitmap.eraseColor(Color.TRANSPARENT);
+        return bitmap;
+    }
+
+    /**
+     * Give back a bitmap from {@link #acquire}. The bitmap must not be used after this.
+     */
+    public void release(@Nullable Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() != Bitmap.Config.ARGB_8888)
+            return;
+        int size = getByteCount(bitmap);
+        synchronized (mPool) {
+            if (bytes + size > maxBytes) {
+                // the garbage collector will take care of it
+                mDropCount += 1;
+                return;
+            }
+            long key = getKey(bitmap.getWidth(), bitmap.getHeight());
+            ArrayList<Bitmap> list = mPool.get(key);
+            if (list == null)
+                mPool.put(key, list = new ArrayList<>(2));
+            list.add(bitmap);
+            bytes += size;
+        }
+    }
+
+    public void clear() {
+        synchronized (mPool) {
+            mPool.clear();
+            bytes = 0;
+        }
+    }
+
+    @NonNull
+    public String getStats() {
+        synchronized (mPool) {
+            return String.format(Locale.US, "bitmap pool: hit %d, miss %d, dropped %d, %dKiB of %dKiB",
+                    mHitCount, mMissCount, mDropCount, bytes / 1024, maxBytes / 1024);
+        }
+    }
+
+    private static int getByteCount(@NonNull Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT)
+            return bitmap.getAllocationByteCount();
+        return bitmap.getByteCount();
+    }
+}
@@ -9,6 +9,7 @@ import android.graphics.BitmapFactory;
 import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
+import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Path;
 import android.graphics.PointF;
@@ -61,9 +62,28 @@ public class DrawableUtils {
             SHAPE_ROUND_OCTAGON,
     };
 
-    private static final Paint PAINT = new Paint();
-    private static final Path SHAPE_PATH = new Path();
-    private static final RectF RECT_F = new RectF();
+    // icons are rendered on more threads at the same time, each thread has its own tools
+    private static final ThreadLocal<RenderTools> RENDER_TOOLS = new ThreadLocal<RenderTools>() {
+        @Override
+        protected RenderTools initialValue() {
+            return new RenderTools();
+        }
+    };
+
+    /**
+     * Objects reused for every icon rendered on the same thread
+     */
+    public static class RenderTools {
+        public final Paint paint = new Paint();
+        public final Path path = new Path();
+        public final RectF rect = new RectF();
+        public final Matrix matrix = new Matrix();
+    }
+
+    @NonNull
+    public static RenderTools getRenderTools() {
+        return RENDER_TOOLS.get();
+    }
 
     @NonNull
     public static String shapeName(Context context, int shape) {
@@ -169,7 +189,7 @@ public class DrawableUtils {
         int layerOffset = (layerSize - iconSize) / 2;
 
         // Create a bitmap of the icon to use it as the shader of the outputBitmap
-        Bitmap iconBitmap = Bitmap.createBitmap(iconSize, iconSize, Bitmap.Config.ARGB_8888);
+        Bitmap iconBitmap = BitmapPool.ICONS.acquire(iconSize, iconSize);
         Canvas iconCanvas = new Canvas(iconBitmap);
 
         if (!onlyForeground) {
@@ -189,7 +209,7 @@ public class DrawableUtils {
 
         Bitmap outputBitmap;
         Canvas outputCanvas;
-        final Paint outputPaint = PAINT;
+        final Paint outputPaint = getRenderTools().paint;
         outputPaint.reset();
         outputPaint.setFlags(Paint.ANTI_ALIAS_FLAG);
 
@@ -199,6 +219,7 @@ public class DrawableUtils {
         outputPaint.setShader(new BitmapShader(iconBitmap, TileMode.CLAMP, TileMode.CLAMP));
         cropIconShape(outputCanvas, outputPaint, shape);
         outputPaint.setShader(null);
+        BitmapPool.ICONS.release(iconBitmap);
 
         return new BitmapDrawable(ctx.getResources(), outputBitmap);
     }
@@ -215,7 +236,7 @@ public class DrawableUtils {
 
         Bitmap outputBitmap;
         Canvas outputCanvas;
-        final Paint outputPaint = PAINT;
+        final Paint outputPaint = getRenderTools().paint;
         outputPaint.reset();
         outputPaint.setFlags(Paint.ANTI_ALIAS_FLAG);
         if (isAdaptiveIconDrawable(icon)) {
@@ -226,7 +247,7 @@ public class DrawableUtils {
             int layerOffset = (layerSize - iconSize) / 2;
 
             // Create a bitmap of the icon to use it as the shader of the outputBitmap
-            Bitmap iconBitmap = Bitmap.createBitmap(iconSize, iconSize, Bitmap.Config.ARGB_8888);
+            Bitmap iconBitmap = BitmapPool.ICONS.acquire(iconSize, iconSize);
             Canvas iconCanvas = new Canvas(iconBitmap);
 
             {
@@ -252,6 +273,7 @@ public class DrawableUtils {
             outputPaint.setShader(new BitmapShader(iconBitmap, TileMode.CLAMP, TileMode.CLAMP));
             cropIconShape(outputCanvas, outputPaint, shape);
             outputPaint.setShader(null);
+            BitmapPool.ICONS.release(iconBitmap);
         }
         // If icon is not adaptive, put it in a white canvas to make it have a unified shape
         else if (icon != null) {
@@ -291,7 +313,9 @@ public class DrawableUtils {
      */
     private static void cropIconShape(Canvas canvas, Paint paint, int shape) {
         final float iconSize = canvas.getHeight();
-        final Path path = SHAPE_PATH;
+        final RenderTools tools = getRenderTools();
+        final Path path = tools.path;
+        final RectF rect = tools.rect;
         path.rewind();
 
         switch (shape) {
@@ -321,48 +345,48 @@ public class DrawableUtils {
                 path.addRect(0f, 0f, iconSize, iconSize, Path.Direction.CCW);
                 break;
             case SHAPE_ROUND_RECT:
-                RECT_F.set(0f, 0f, iconSize, iconSize);
-                canvas.drawRoundRect(RECT_F, iconSize / 8f, iconSize / 12f, paint);
+                rect.set(0f, 0f, iconSize, iconSize);
+                canvas.drawRoundRect(rect, iconSize / 8f, iconSize / 12f, paint);
 
-                path.addRoundRect(RECT_F, iconSize / 8f, iconSize / 12f, Path.Direction.CCW);
+                path.addRoundRect(rect, iconSize / 8f, iconSize / 12f, Path.Direction.CCW);
                 break;
             case SHAPE_TEARDROP_RND: // this is handled before we get here
             case SHAPE_TEARDROP_BR:
-                RECT_F.set(0f, 0f, iconSize, iconSize);
-                path.addArc(RECT_F, 90, 270);
+                rect.set(0f, 0f, iconSize, iconSize);
+                path.addArc(rect, 90, 270);
                 path.lineTo(iconSize, iconSize * 0.70f);
-                RECT_F.set(iconSize * 0.70f, iconSize * 0.70f, iconSize, iconSize);
-                path.arcTo(RECT_F, 0, 90, false);
+                rect.set(iconSize * 0.70f, iconSize * 0.70f, iconSize, iconSize);
+                path.arcTo(rect, 0, 90, false);
                 path.close();
 
                 canvas.drawPath(path, paint);
                 break;
             case SHAPE_TEARDROP_BL:
-                RECT_F.set(0f, 0f, iconSize, iconSize);
-                path.addArc(RECT_F, 180, 270);
+                rect.set(0f, 0f, iconSize, iconSize);
+                path.addArc(rect, 180, 270);
                 path.lineTo(iconSize * .3f, iconSize);
-                RECT_F.set(0f, iconSize * .7f, iconSize * .3f, iconSize);
-                path.arcTo(RECT_F, 90, 90, false);
+                rect.set(0f, iconSize * .7f, iconSize * .3f, iconSize);
+                path.arcTo(rect, 90, 90, false);
                 path.close();
 
                 canvas.drawPath(path, paint);
                 break;
             case SHAPE_TEARDROP_TL:
-                RECT_F.set(0f, 0f, iconSize, iconSize);
-                path.addArc(RECT_F, 270, 270);
+                rect.set(0f, 0f, iconSize, iconSize);
+                path.addArc(rect, 270, 270);
                 path.lineTo(0, iconSize * .3f);
-                RECT_F.set(0f, 0f, iconSize * .3f, iconSize * .3f);
-                path.arcTo(RECT_F, 180, 90, false);
+                rect.set(0f, 0f, iconSize * .3f, iconSize * .3f);
+                path.arcTo(rect, 180, 90, false);
                 path.close();
 
                 canvas.drawPath(path, paint);
                 break;
             case SHAPE_TEARDROP_TR:
-                RECT_F.set(0f, 0f, iconSize, iconSize);
-                path.addArc(RECT_F, 0, 270);
+                rect.set(0f, 0f, iconSize, iconSize);
+                path.addArc(rect, 0, 270);
                 path.lineTo(iconSize * .7f, 0f);
-                RECT_F.set(iconSize * .7f, 0f, iconSize, iconSize * .3f);
-                path.arcTo(RECT_F, 270, 90, false);
+                rect.set(iconSize * .7f, 0f, iconSize, iconSize * .3f);
+                path.arcTo(rect, 270, 90, false);
                 path.close();
 
                 canvas.drawPath(path, paint);
@@ -407,7 +431,7 @@ public class DrawableUtils {
                     p.x = ((float) Math.cos(rad) * .5f + .5f) * iconSize;
                     p.y = ((float) Math.sin(rad) * .5f + .5f) * iconSize;
                 };
-                roundedPolyPath(path, gen, 6, iconSize * .16f);
+                roundedPolyPath(path, rect, gen, 6, iconSize * .16f);
                 path.close();
 
                 canvas.drawPath(path, paint);
@@ -420,7 +444,7 @@ public class DrawableUtils {
                     p.x = ((float) Math.cos(rad) * .5f + .5f) * iconSize;
                     p.y = ((float) Math.sin(rad) * .5f + .5f) * iconSize;
                 };
-                roundedPolyPath(path, gen, 8, iconSize * .2f);
+                roundedPolyPath(path, rect, gen, 8, iconSize * .2f);
                 path.close();
 
                 canvas.drawPath(path, paint);
@@ -479,11 +503,12 @@ public class DrawableUtils {
      * the radius or the distance between corners does not allow room the corners radius is reduced to a best fit.
      *
      * @param path       geometric contour to add the polygon to
+     * @param rect       temporary rectangle used to add the arcs
      * @param point      provider of polygon vertices positions
      * @param pointCount vertices count
      * @param radius     desired circle radius to use for rounding
      */
-    private static void roundedPolyPath(@NonNull Path path, PointProvider point, int pointCount, float radius) {
+    private static void roundedPolyPath(@NonNull Path path, @NonNull RectF rect, PointProvider point, int pointCount, float radius) {
         final PointF p1 = new PointF();
         final PointF p2 = new PointF();
         final PointF p3 = new PointF();
@@ -539,7 +564,7 @@ public class DrawableUtils {
             x += -v2.ny * cRadius * radDirection;
             y += v2.nx * cRadius * radDirection;
             // x,y is the rounded corner circle center
-            RECT_F.set((float) (x - cRadius), (float) (y - cRadius), (float) (x + cRadius), (float) (y + cRadius));
+            rect.set((float) (x - cRadius), (float) (y - cRadius), (float) (x + cRadius), (float) (y + cRadius));
 
             double startAngle = v1.ang + Math.PI / 2.0 * radDirection;
             double endAngle = v2.ang - Math.PI / 2.0 * radDirection;
@@ -549,7 +574,7 @@ public class DrawableUtils {
                 endAngle -= Math.PI * 2.0;
             final float sweepAngle = (float) Math.toDegrees(endAngle - startAngle);
 
-            path.arcTo(RECT_F, (float) Math.toDegrees(startAngle), sweepAngle, false); // draw the arc clockwise
+            path.arcTo(rect, (float) Math.toDegrees(startAngle), sweepAngle, false); // draw the arc clockwise
 
             p1.set(p2);
         }
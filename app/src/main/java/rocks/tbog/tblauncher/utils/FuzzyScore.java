@@ -1,12 +1,11 @@
 package rocks.tbog.tblauncher.utils;
 
-import android.util.Pair;
-
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import rocks.tbog.tblauncher.normalizer.StringNormalizer;
 
 /**
  * A Sublime Text inspired fuzzy match algorithm
@@ -18,7 +17,6 @@ import java.util.List;
  */
 public class FuzzyScore {
     private final int patternLength;
-    private final int[] patternChar;
     private final int[] patternLower;
     /**
      * bonus for adjacent matches
@@ -50,10 +48,8 @@ public class FuzzyScore {
     public FuzzyScore(int[] pattern, boolean detailedMatchIndices) {
         super();
         patternLength = pattern.length;
-        patternChar = new int[patternLength];
         patternLower = new int[patternLength];
         for (int i = 0; i < patternLower.length; i += 1) {
-            patternChar[i] = pattern[i];
             patternLower[i] = Character.toLowerCase(pattern[i]);
         }
         adjacency_bonus = 10;
@@ -120,6 +116,26 @@ public class FuzzyScore {
      * @return true if each character in pattern is found sequentially within text
      */
     public MatchInfo match(int[] text) {
+        return match(text, null, null);
+    }
+
+    /**
+     * Match using the lowercase and character class tables computed by the normalizer
+     *
+     * @param text normalized string
+     * @return true if each character in pattern is found sequentially within text
+     */
+    public MatchInfo match(@NonNull StringNormalizer.Result text) {
+        return match(text.codePoints, text.lowerCodePoints, text.charClass);
+    }
+
+    /**
+     * @param text      string converted to codepoints
+     * @param textLower lowercase codepoints or null to compute them
+     * @param charClass character class of each codepoint or null to compute them
+     * @return true if each character in pattern is found sequentially within text
+     */
+    private MatchInfo match(int[] text, @Nullable int[] textLower, @Nullable byte[] charClass) {
         // Loop variables
         int score = 0;
         int patternIdx = 0;
@@ -130,40 +146,48 @@ public class FuzzyScore {
         boolean prevSeparator = true;       // true so if first letter match gets separator bonus
 
         // Use "best" matched letter if multiple string letters match the pattern
-        Integer bestLetter = null;
-        Integer bestLower = null;
-        Integer bestLetterIdx = null;
+        // bestLetterIdx is -1 when there is no best letter
+        int bestLower = 0;
+        int bestLetterIdx = -1;
         int bestLetterScore = 0;
 
-        if (matchInfo.matchedIndices != null) {
-            matchInfo.matchedIndices.clear();
-        }
+        matchInfo.matchedCount = 0;
 
         // Loop over strings
         while (strIdx != strLength) {
-            Integer patternChar = null;
-            Integer patternLower = null;
-            if (patternIdx != patternLength) {
-                patternChar = this.patternChar[patternIdx];
-                patternLower = this.patternLower[patternIdx];
+            boolean hasPattern = patternIdx != patternLength;
+            int patternLower = hasPattern ? this.patternLower[patternIdx] : 0;
+            int strLower;
+            boolean strIsLower;
+            boolean strIsUpper;
+            boolean strIsSeparator;
+            if (charClass != null) {
+                strLower = textLower[strIdx];
+                byte flags = charClass[strIdx];
+                strIsLower = (flags & StringNormalizer.Result.CHAR_LOWER) != 0;
+                strIsUpper = (flags & StringNormalizer.Result.CHAR_UPPER) != 0;
+                strIsSeparator = (flags & StringNormalizer.Result.CHAR_SEPARATOR) != 0;
+            } else {
+                int strChar = text[strIdx];
+                strLower = Character.toLowerCase(strChar);
+                int strUpper = Character.toUpperCase(strChar);
+                // Includes "clever" isLetter check.
+                strIsLower = strChar == strLower && strLower != strUpper;
+                strIsUpper = strChar == strUpper && strLower != strUpper;
+                strIsSeparator = Character.isWhitespace(strChar);
             }
-            int strChar = text[strIdx];
-            int strLower = Character.toLowerCase(strChar);
-            int strUpper = Character.toUpperCase(strChar);
 
-            boolean nextMatch = patternChar != null && patternLower == strLower;
-            boolean rematch = bestLetter != null && bestLower == strLower;
+            boolean hasBest = bestLetterIdx != -1;
+            boolean nextMatch = hasPattern && patternLower == strLower;
+            boolean rematch = hasBest && bestLower == strLower;
 
-            boolean advanced = nextMatch && bestLetter != null;
-            boolean patternRepeat = bestLetter != null && patternChar != null && patternLower.equals(bestLower);
+            boolean advanced = nextMatch && hasBest;
+            boolean patternRepeat = hasBest && hasPattern && patternLower == bestLower;
             if (advanced || patternRepeat) {
                 score += bestLetterScore;
-                if (matchInfo.matchedIndices != null) {
-                    matchInfo.matchedIndices.add(bestLetterIdx);
-                }
-                bestLetter = null;
-                bestLower = null;
-                bestLetterIdx = null;
+                matchInfo.addMatchedIndex(bestLetterIdx);
+                bestLower = 0;
+                bestLetterIdx = -1;
                 bestLetterScore = 0;
             }
 
@@ -186,7 +210,7 @@ public class FuzzyScore {
                     newScore += separator_bonus;
 
                 // Apply bonus across camel case boundaries. Includes "clever" isLetter check.
-                if (prevLower && strChar == strUpper && strLower != strUpper)
+                if (prevLower && strIsUpper)
                     newScore += camel_bonus;
 
                 // Update pattern index IF the next pattern letter was matched
@@ -197,10 +221,9 @@ public class FuzzyScore {
                 if (newScore >= bestLetterScore) {
 
                     // Apply penalty for now skipped letter
-                    if (bestLetter != null)
+                    if (bestLetterIdx != -1)
                         score += unmatched_letter_penalty;
 
-                    bestLetter = strChar;
                     bestLower = strLower;
                     bestLetterIdx = strIdx;
                     bestLetterScore = newScore;
@@ -212,19 +235,16 @@ public class FuzzyScore {
                 prevMatched = false;
             }
 
-            // Includes "clever" isLetter check.
-            prevLower = strChar == strLower && strLower != strUpper;
-            prevSeparator = Character.isWhitespace(strChar);
+            prevLower = strIsLower;
+            prevSeparator = strIsSeparator;
 
             ++strIdx;
         }
 
         // Apply score for last match
-        if (bestLetter != null) {
+        if (bestLetterIdx != -1) {
             score += bestLetterScore;
-            if (matchInfo.matchedIndices != null) {
-                matchInfo.matchedIndices.add(bestLetterIdx);
-            }
+            matchInfo.addMatchedIndex(bestLetterIdx);
         }
 
         matchInfo.match = patternIdx == patternLength;
@@ -234,47 +254,89 @@ public class FuzzyScore {
         return matchInfo;
     }
 
+    /**
+     * Pack a [start, end) range in a long
+     */
+    public static long packRange(int start, int end) {
+        return ((long) start << 32) | (end & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @param range packed with {@link #packRange(int, int)}
+     * @return first position in the range
+     */
+    public static int rangeStart(long range) {
+        return (int) (range >>> 32);
+    }
+
+    /**
+     * @param range packed with {@link #packRange(int, int)}
+     * @return position after the last one in the range
+     */
+    public static int rangeEnd(long range) {
+        return (int) range;
+    }
+
     public static class MatchInfo {
+        private static final long[] EMPTY_RANGES = new long[0];
         /**
          * higher is better match. Value has no intrinsic meaning. Range varies with pattern.
          * Can only compare scores with same search pattern.
          */
         public int score;
         public boolean match;
-        final ArrayList<Integer> matchedIndices;
+        /**
+         * matched positions in the text, only the first `matchedCount` values are valid
+         */
+        int[] matchedIndices;
+        int matchedCount = 0;
 
         public MatchInfo() {
             matchedIndices = null;
         }
 
         MatchInfo(int patternLength) {
-            matchedIndices = new ArrayList<>(patternLength);
+            matchedIndices = new int[patternLength];
         }
 
-        public MatchInfo(@NonNull MatchInfo o) {
-            score = o.score;
-            match = o.match;
-            matchedIndices = o.matchedIndices != null ? new ArrayList<>(o.matchedIndices) : null;
+        void addMatchedIndex(int index) {
+            if (matchedIndices == null)
+                return;
+            if (matchedCount == matchedIndices.length)
+                matchedIndices = Arrays.copyOf(matchedIndices, matchedCount * 2 + 1);
+            matchedIndices[matchedCount++] = index;
         }
 
-        public List<Pair<Integer, Integer>> getMatchedSequences() {
-            if (matchedIndices == null)
-                return Collections.emptyList();
-            // compute pair match indices
-            List<Pair<Integer, Integer>> positions = new ArrayList<>(this.matchedIndices.size());
-            int start = this.matchedIndices.get(0);
+        /**
+         * Group consecutive matched positions in ranges
+         *
+         * @return ranges packed with {@link #packRange(int, int)}
+         */
+        @NonNull
+        public long[] getMatchedRanges() {
+            if (matchedIndices == null || matchedCount == 0)
+                return EMPTY_RANGES;
+            // count ranges first so we allocate only once
+            int rangeCount = 1;
+            for (int i = 1; i < matchedCount; i += 1) {
+                if (matchedIndices[i - 1] + 1 != matchedIndices[i])
+                    rangeCount += 1;
+            }
+            long[] ranges = new long[rangeCount];
+            int rangeIdx = 0;
+            int start = matchedIndices[0];
             int end = start + 1;
-            for (int i = 1; i < this.matchedIndices.size(); i += 1) {
-                if (end == this.matchedIndices.get(i)) {
+            for (int i = 1; i < matchedCount; i += 1) {
+                if (end == matchedIndices[i]) {
                     end += 1;
                 } else {
-                    positions.add(new Pair<>(start, end));
-                    start = this.matchedIndices.get(i);
+                    ranges[rangeIdx++] = packRange(start, end);
+                    start = matchedIndices[i];
                     end = start + 1;
                 }
             }
-            positions.add(new Pair<>(start, end));
-            return positions;
+            ranges[rangeIdx] = packRange(start, end);
+            return ranges;
         }
     }
 }
@@ -0,0 +1,204 @@
+package rocks.tbog.tblauncher.utils;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.LinearGradient;
+import android.graphics.Paint;
+import android.graphics.Shader;
+import android.graphics.drawable.AdaptiveIconDrawable;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import rocks.tbog.tblauncher.IconsHandler;
+import rocks.tbog.tblauncher.TBApplication;
+import rocks.tbog.tblauncher.icons.IconPackXML;
+
+/**
+ * Render a fixed set of generated icons through each shape, mask and badge path and measure the
+ * time, the output size and the Java allocations for each icon. Started from the debug section of the settings.
+ */
+public class IconRenderBenchmark {
+    private static final String TAG = "IconBench";
+    private static final int CORPUS_SIZE = 8;
+    private static final int WARMUP = 2;
+    private static final int REPEAT = 5;
+    private static final int[] CORPUS_PIXELS = {48, 96, 192};
+
+    private final Context context;
+    private final StringBuilder report = new StringBuilder();
+
+    public IconRenderBenchmark(@NonNull Context context) {
+        this.context = context;
+    }
+
+    private interface Render {
+        Drawable render(@NonNull Drawable icon);
+    }
+
+    /**
+     * @return the results, one line for each path
+     */
+    @WorkerThread
+    @NonNull
+    public String run() {
+        report.setLength(0);
+        report.append("path: p50 / p90 / p99 / max (µs), output bytes, allocations, allocated bytes (per icon)\n");
+
+        List<Drawable> legacy = makeLegacyCorpus();
+        List<Drawable> adaptive = makeAdaptiveCorpus();
+
+        Runtime runtime = Runtime.getRuntime();
+        long javaHeapBefore = runtime.totalMemory() - runtime.freeMemory();
+        long nativeHeapBefore = Debug.getNativeHeapAllocatedSize();
+
+        for (int shape : DrawableUtils.SHAPE_LIST) {
+            String name = DrawableUtils.shapeName(context, shape);
+            measure("shape " + name, legacy, icon -> DrawableUtils.applyIconMaskShape(context, icon, shape, true));
+            if (!adaptive.isEmpty())
+                measure("shape " + name + " adaptive", adaptive, icon -> DrawableUtils.applyIconMaskShape(context, icon, shape, true));
+        }
+
+        IconsHandler iconsHandler = TBApplication.iconsHandler(context);
+        IconPackXML iconPack = iconsHandler.getCustomIconPack();
+        if (iconPack != null) {
+            iconPack.load(context.getPackageManager());
+            measure("pack " + iconPack.getPackPackageName(), legacy, icon -> iconPack.applyBackgroundAndMask(context, icon, false));
+        }
+        measure("shortcut mask", legacy, icon -> iconsHandler.applyShortcutMask(context, Utilities.drawableToBitmap(icon)));
+        measure("contact mask", legacy, icon -> iconsHandler.applyContactMask(context, icon));
+
+        Intent launchIntent = context.getPackageManager().getLaunchIntentForPackage(context.getPackageName());
+        ComponentName component = launchIntent != null ? launchIntent.getComponent() : null;
+        if (component != null)
+            measure("shortcut badge", legacy, icon -> drawWithBadge(icon, iconsHandler.getDrawableBadgeForPackage(component, UserHandleCompat.CURRENT_USER)));
+
+        long javaHeap = runtime.totalMemory() - runtime.freeMemory() - javaHeapBefore;
+        long nativeHeap = Debug.getNativeHeapAllocatedSize() - nativeHeapBefore;
+        report.append(String.format(Locale.US, "heap growth: java %dKiB, native %dKiB\n", javaHeap / 1024, nativeHeap / 1024));
+        report.append(BitmapPool.ICONS.getStats()).append('\n');
+
+        String result = report.toString();
+        Log.i(TAG, result);
+        return result;
+    }
+
+    @SuppressWarnings("deprecation")
+    private void measure(@NonNull String path, @NonNull List<Drawable> corpus, @NonNull Render render) {
+        for (int i = 0; i < WARMUP; i += 1)
+            for (Drawable icon : corpus)
+                render.render(icon);
+
+        long[] times = new long[corpus.size() * REPEAT];
+        long bytes = 0;
+        int count = 0;
+        for (int i = 0; i < REPEAT; i += 1) {
+            for (Drawable icon : corpus) {
+                long start = System.nanoTime();
+                Drawable output = render.render(icon);
+                times[count++] = System.nanoTime() - start;
+                bytes += getByteCount(output);
+            }
+        }
+        Arrays.sort(times);
+
+        // one more round to count the Java allocations of this thread, counting slows it down
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        for (Drawable icon : corpus)
+            render.render(icon);
+        Debug.stopAllocCounting();
+        int allocCount = Debug.getThreadAllocCount();
+        int allocSize = Debug.getThreadAllocSize();
+
+        report.append(String.format(Locale.US, "%s: %d / %d / %d / %d, %d, %d, %d\n", path,
+                percentile(times, 50), percentile(times, 90), percentile(times, 99), times[times.length - 1] / 1000,
+                bytes / count, allocCount / corpus.size(), allocSize / corpus.size()));
+    }
+
+    /**
+     * Draw the badge over the bottom right of the icon, where the result views show it
+     */
+    @NonNull
+    private Drawable drawWithBadge(@NonNull Drawable icon, @Nullable Drawable badge) {
+        int size = Math.max(1, icon.getIntrinsicWidth());
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        icon.setBounds(0, 0, size, size);
+        icon.draw(canvas);
+        if (badge != null) {
+            int badgeSize = size / 3;
+            badge.setBounds(size - badgeSize, size - badgeSize, size, size);
+            badge.draw(canvas);
+        }
+        return new BitmapDrawable(context.getResources(), bitmap);
+    }
+
+    private static long percentile(long[] sortedTimes, int percent) {
+        int index = (sortedTimes.length - 1) * percent / 100;
+        return sortedTimes[index] / 1000;
+    }
+
+    private static long getByteCount(Drawable drawable) {
+        if (drawable instanceof BitmapDrawable) {
+            Bitmap bitmap = ((BitmapDrawable) drawable).getBitmap();
+            if (bitmap != null)
+                return bitmap.getByteCount();
+        }
+        return 0;
+    }
+
+    @NonNull
+    private List<Drawable> makeLegacyCorpus() {
+        ArrayList<Drawable> corpus = new ArrayList<>(CORPUS_SIZE);
+        for (int i = 0; i < CORPUS_SIZE; i += 1) {
+            int size = CORPUS_PIXELS[i % CORPUS_PIXELS.length];
+            corpus.add(new BitmapDrawable(context.getResources(), makeBitmap(size, i)));
+        }
+        return corpus;
+    }
+
+    @NonNull
+    private List<Drawable> makeAdaptiveCorpus() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O)
+            return new ArrayList<>(0);
+        ArrayList<Drawable> corpus = new ArrayList<>(CORPUS_SIZE);
+        for (int i = 0; i < CORPUS_SIZE; i += 1) {
+            Drawable background = new ColorDrawable(getColor(i + 1));
+            Drawable foreground = new BitmapDrawable(context.getResources(), makeBitmap(108, i));
+            corpus.add(new AdaptiveIconDrawable(background, foreground));
+        }
+        return corpus;
+    }
+
+    private static Bitmap makeBitmap(int size, int seed) {
+        Bitmap bitmap = Bitmap.createBitmap(size, size, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(bitmap);
+        Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        paint.setShader(new LinearGradient(0, 0, size, size, getColor(seed), Color.TRANSPARENT, Shader.TileMode.CLAMP));
+        canvas.drawCircle(size * .5f, size * .5f, size * .4f, paint);
+        return bitmap;
+    }
+
+    private static int getColor(int seed) {
+        float[] hsv = {(seed * 47) % 360, .7f, .9f};
+        return Color.HSVToColor(hsv);
+    }
+}
@@ -11,8 +11,12 @@ public class PrefCache {
 
     private static int RESULT_HISTORY_SIZE = 0;
     private static int RESULT_HISTORY_ADAPTIVE = 0;
+    private static int RESULT_HISTORY_HALF_LIFE = 0;
     private static int RESULT_SEARCHER_CAP = -1;
     private static Boolean FUZZY_SEARCH_TAGS = null;
+    private static Boolean SEARCH_PARALLEL = null;
+    private static int SEARCH_PROVIDER_TIMEOUT = 0;
+    private static int SPECULATIVE_SEARCH_COUNT = -1;
 
     private PrefCache() {
     }
@@ -20,7 +24,11 @@ public class PrefCache {
     public static void resetCache() {
         RESULT_HISTORY_SIZE = 0;
         RESULT_HISTORY_ADAPTIVE = 0;
+        RESULT_HISTORY_HALF_LIFE = 0;
         RESULT_SEARCHER_CAP = -1;
+        SEARCH_PARALLEL = null;
+        SEARCH_PROVIDER_TIMEOUT = 0;
+        SPECULATIVE_SEARCH_COUNT = -1;
     }
 
     public static int getResultHistorySize(Context context) {
@@ -41,6 +49,18 @@ public class PrefCache {
         return RESULT_HISTORY_ADAPTIVE;
     }
 
+    /**
+     * @return after how many hours a launch counts half as much for the decay history
+     */
+    public static int getHistoryHalfLife(Context context) {
+        if (RESULT_HISTORY_HALF_LIFE == 0) {
+            SharedPreferences pref = PreferenceManager.getDefaultSharedPreferences(context);
+            final int defaultHours = context.getResources().getInteger(R.integer.default_result_history_half_life);
+            RESULT_HISTORY_HALF_LIFE = pref.getInt("result-history-half-life", defaultHours);
+        }
+        return RESULT_HISTORY_HALF_LIFE;
+    }
+
     public static boolean showWidgetScreenAfterLaunch(Context context) {
         return true;
     }
@@ -57,6 +77,38 @@ public class PrefCache {
         return FUZZY_SEARCH_TAGS;
     }
 
+    public static boolean searchProvidersInParallel(Context context) {
+        if (SEARCH_PARALLEL == null) {
+            SharedPreferences pref = PreferenceManager.getDefaultSharedPreferences(context);
+            SEARCH_PARALLEL = pref.getBoolean("search-parallel", true);
+        }
+        return SEARCH_PARALLEL;
+    }
+
+    /**
+     * @return how many milliseconds to wait for the providers before showing the first results
+     */
+    public static int getSearchProviderTimeout(Context context) {
+        if (SEARCH_PROVIDER_TIMEOUT == 0) {
+            SharedPreferences pref = PreferenceManager.getDefaultSharedPreferences(context);
+            final int defaultTimeout = context.getResources().getInteger(R.integer.default_search_provider_timeout);
+            SEARCH_PROVIDER_TIMEOUT = pref.getInt("search-provider-timeout", defaultTimeout);
+        }
+        return SEARCH_PROVIDER_TIMEOUT;
+    }
+
+    /**
+     * @return how many queries to search ahead of time while typing, 0 to disable
+     */
+    public static int getSpeculativeSearchCount(Context context) {
+        if (SPECULATIVE_SEARCH_COUNT == -1) {
+            SharedPreferences pref = PreferenceManager.getDefaultSharedPreferences(context);
+            final int defaultCount = context.getResources().getInteger(R.integer.default_speculative_search_count);
+            SPECULATIVE_SEARCH_COUNT = pref.getInt("speculative-search-count", defaultCount);
+        }
+        return SPECULATIVE_SEARCH_COUNT;
+    }
+
     public static int getResultSearcherCap(Context context) {
         if (RESULT_SEARCHER_CAP == -1) {
             SharedPreferences pref = PreferenceManager.getDefaultSharedPreferences(context);
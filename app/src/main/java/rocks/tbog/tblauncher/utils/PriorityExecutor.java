@@ -0,0 +1,92 @@
+package rocks.tbog.tblauncher.utils;
+
+import android.os.Process;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Thread pool that runs the waiting tasks by priority. Tasks with the same priority run from the
+ * newest to the oldest, the last bound view is most likely the one visible on screen.
+ */
+public class PriorityExecutor extends ThreadPoolExecutor {
+    public static final int PRIORITY_LOW = -10;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 10;
+
+    public PriorityExecutor(int threadCount, @NonNull String name) {
+        super(threadCount, threadCount, 1, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), new BackgroundThreadFactory(name));
+        allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return a thread count for work that uses the CPU, like decoding images
+     */
+    public static int cpuThreadCount() {
+        return Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    @Override
+    public void execute(@NonNull Runnable command) {
+        // the queue can only sort tasks
+        super.execute(command instanceof Task ? command : new Wrapper(command));
+    }
+
+    public static abstract class Task implements Runnable, Comparable<Task> {
+        private static final AtomicLong SEQUENCE = new AtomicLong(0);
+        private final long sequence = SEQUENCE.incrementAndGet();
+        private final int priority;
+
+        protected Task(int priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public int compareTo(@NonNull Task other) {
+            if (priority != other.priority)
+                return priority > other.priority ? -1 : 1;
+            // newest first
+            return Long.compare(other.sequence, sequence);
+        }
+    }
+
+    private static class Wrapper extends Task {
+        @NonNull
+        private final Runnable runnable;
+
+        Wrapper(@NonNull Runnable runnable) {
+            super(PRIORITY_NORMAL);
+            this.runnable = runnable;
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+    }
+
+    private static class BackgroundThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger(1);
+        @NonNull
+        private final String name;
+
+        BackgroundThreadFactory(@NonNull String name) {
+            this.name = name;
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable runnable) {
+            return new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, name + " #" + count.getAndIncrement());
+        }
+    }
+}
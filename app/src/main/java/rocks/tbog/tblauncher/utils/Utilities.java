@@ -329,7 +329,7 @@ public class Utilities {
         protected AsyncSetDrawable(@NonNull ImageView image) {
             super();
             if (image.getTag() instanceof ResultViewHelper.AsyncSetEntryDrawable)
-                ((ResultViewHelper.AsyncSetEntryDrawable) image.getTag()).cancel(true);
+                ((ResultViewHelper.AsyncSetEntryDrawable) image.getTag()).cancel();
             image.setTag(this);
             image.setImageResource(android.R.color.transparent);
             this.weakImage = new WeakReference<>(image);